@@ -37,7 +37,7 @@ public class PingCallbackClient extends BaseClient<PingCallbackRequest, PingCall
     }
 
     public PingCallbackResponse exec() {
-        if (this.fapiCompatibility) {
+        if (this.fapiCompatibility && getExecutor() == null) { // caller may provide executor with suitable SSL context
             setExecutor(getApacheHttpClient4ExecutorForMTLS());
         }
         initClientRequest();
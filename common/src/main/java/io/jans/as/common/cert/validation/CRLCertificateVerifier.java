@@ -13,17 +13,15 @@ import java.math.BigInteger;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.security.NoSuchProviderException;
+import java.net.URLConnection;
 import java.security.Principal;
 import java.security.cert.CRLException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
-import java.security.cert.X509CRLEntry;
 import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
@@ -41,15 +39,10 @@ import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.GeneralName;
 import org.bouncycastle.asn1.x509.GeneralNames;
 import org.bouncycastle.asn1.x509.X509Extensions;
-import org.bouncycastle.x509.NoSuchParserException;
-import org.bouncycastle.x509.util.StreamParsingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 
 import io.jans.as.common.cert.validation.model.ValidationStatus;
 import io.jans.as.model.util.SecurityProviderUtility;
@@ -64,25 +57,34 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 	private static final Logger log = LoggerFactory.getLogger(CRLCertificateVerifier.class);
 
+	private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+	private static final int READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+
 	private int maxCrlSize;
 
-	private LoadingCache<String, X509CRL> crlCache;
+	private boolean allowFileUrls;
+
+	private CRLStore crlStore;
 
 	public CRLCertificateVerifier(final int maxCrlSize) {
+		this(maxCrlSize, false);
+	}
+
+	/**
+	 * @param allowFileUrls allows to read CRL from local file (file: distribution point URL), e.g. for tests
+	 */
+	public CRLCertificateVerifier(final int maxCrlSize, final boolean allowFileUrls) {
 		SecurityProviderUtility.installBCProvider(true);
 
 		this.maxCrlSize = maxCrlSize;
-		
-		CacheLoader<String, X509CRL> checkedLoader = new CacheLoader<String, X509CRL>() {
-			public X509CRL load(String crlURL) throws CertificateException, CRLException, NoSuchProviderException, NoSuchParserException, StreamParsingException, MalformedURLException, IOException, ExecutionException {
-				X509CRL result = requestCRL(crlURL);
-				Preconditions.checkNotNull(result);
+		this.allowFileUrls = allowFileUrls;
 
-				return result;
-			}
-		};
+		this.crlStore = new CRLStore(crlURL -> {
+			X509CRL result = requestCRL(crlURL);
+			Preconditions.checkNotNull(result, "Failed to load CRL from '" + crlURL + "'");
 
-		this.crlCache = CacheBuilder.newBuilder().maximumSize(10).expireAfterWrite(60, TimeUnit.MINUTES).build(checkedLoader);
+			return result;
+		});
 	}
 
 	@Override
@@ -101,25 +103,25 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 			log.debug("CRL's URL for '" + subjectX500Principal + "' is '" + crlURL + "'");
 
-			X509CRL x509crl = getCrl(crlURL);
+			CRLStore.CrlEntry x509crl = getCrl(crlURL);
 			if (!validateCRL(x509crl, certificate, issuer, validationDate)) {
 				log.error("The CRL is not valid!");
 				status.setValidity(ValidationStatus.CertificateValidity.INVALID);
 				return status;
 			}
 
-			X509CRLEntry crlEntry = x509crl.getRevokedCertificate(certificate.getSerialNumber());
-			if (crlEntry == null) {
+			Date revocationDate = x509crl.getRevocationDate(certificate.getSerialNumber());
+			if (revocationDate == null) {
 				log.debug("CRL status is valid for '" + subjectX500Principal + "'");
 				status.setValidity(ValidationStatus.CertificateValidity.VALID);
-			} else if (crlEntry.getRevocationDate().after(validationDate)) {
+			} else if (revocationDate.after(validationDate)) {
 				log.warn("CRL revocation time after the validation date, the certificate '" + subjectX500Principal + "' was valid at " + validationDate);
 				status.setRevocationObjectIssuingTime(x509crl.getThisUpdate());
 				status.setValidity(ValidationStatus.CertificateValidity.VALID);
 			} else {
-				log.info("CRL for certificate '" + subjectX500Principal + "' is revoked since " + crlEntry.getRevocationDate());
+				log.info("CRL for certificate '" + subjectX500Principal + "' is revoked since " + revocationDate);
 				status.setRevocationObjectIssuingTime(x509crl.getThisUpdate());
-				status.setRevocationDate(crlEntry.getRevocationDate());
+				status.setRevocationDate(revocationDate);
 				status.setValidity(ValidationStatus.CertificateValidity.REVOKED);
 			}
 		} catch (Exception ex) {
@@ -129,7 +131,7 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 		return status;
 	}
 
-	private boolean validateCRL(X509CRL x509crl, X509Certificate certificate, X509Certificate issuerCertificate, Date validationDate) {
+	private boolean validateCRL(CRLStore.CrlEntry x509crl, X509Certificate certificate, X509Certificate issuerCertificate, Date validationDate) {
 		Principal subjectX500Principal = certificate.getSubjectX500Principal();
 
 		if (x509crl == null) {
@@ -139,20 +141,20 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 		if (log.isTraceEnabled()) {
 			try {
-				log.trace("CRL number: " + getCrlNumber(x509crl));
+				log.trace("CRL number: " + getCrlNumber(x509crl.getCrl()));
 			} catch (IOException ex) {
 				log.error("Failed to get CRL number", ex);
 			}
 		}
 
-		if (!x509crl.getIssuerX500Principal().equals(issuerCertificate.getSubjectX500Principal())) {
+		if (!x509crl.getIssuer().equals(issuerCertificate.getSubjectX500Principal())) {
 			log.error("The CRL must be signed by the issuer '" + subjectX500Principal + "' but instead is signed by '"
-					+ x509crl.getIssuerX500Principal() + "'");
+					+ x509crl.getIssuer() + "'");
 			return false;
 		}
 
 		try {
-			x509crl.verify(issuerCertificate.getPublicKey());
+			x509crl.verify(issuerCertificate.getPublicKey()); // verified once per CRL and issuer key
 		} catch (Exception ex) {
 			log.error("The signature verification for CRL cannot be performed", ex);
 			return false;
@@ -181,23 +183,21 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 	}
 
-	private X509CRL getCrl(String url) throws CertificateException, CRLException, NoSuchProviderException, NoSuchParserException, StreamParsingException,
-			MalformedURLException, IOException, ExecutionException {
-		if (!(url.startsWith("http://") || url.startsWith("https://"))) {
+	private CRLStore.CrlEntry getCrl(String url) throws Exception {
+		if (!(url.startsWith("http://") || url.startsWith("https://") || (allowFileUrls && url.startsWith("file:")))) {
 			log.error("It's possible to download CRL via HTTP and HTTPS only");
 			return null;
 		}
-		
-		String cacheKey = url.toLowerCase();
-		X509CRL crl = crlCache.get(cacheKey);
 
-		return crl;
+		return crlStore.get(url);
 	}
 
 	public X509CRL requestCRL(String url) throws IOException, MalformedURLException, CertificateException, CRLException {
-		HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
+		URLConnection con = new URL(url).openConnection();
 		try {
 			con.setUseCaches(false);
+			con.setConnectTimeout(CONNECT_TIMEOUT);
+			con.setReadTimeout(READ_TIMEOUT);
 
 			InputStream in = new BoundedInputStream(con.getInputStream(), maxCrlSize);
 			try {
@@ -212,8 +212,8 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 		} catch (IOException ex) {
 			log.error("Failed to download CRL from '" + url + "'", ex);
 		} finally {
-			if (con != null) {
-				con.disconnect();
+			if (con instanceof HttpURLConnection) {
+				((HttpURLConnection) con).disconnect();
 			}
 		}
 		
@@ -293,7 +293,7 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 	@Override
 	public void destroy() {
-		crlCache.cleanUp();
+		crlStore.destroy();
 	}
 
 }
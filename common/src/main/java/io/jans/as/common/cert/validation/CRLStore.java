@@ -0,0 +1,269 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.common.cert.validation;
+
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Store of CRLs by distribution point URL. Revoked serial numbers of each CRL are indexed in hash map, so check of
+ * certificate does not scan CRL.
+ * <p>
+ * CRL is downloaded once (concurrent requests for same URL wait for the same download) and then refreshed in
+ * background at least every DEFAULT_REFRESH_INTERVAL and before nextUpdate. Current CRL is served till new one is
+ * loaded, if refresh fails it is retried after RETRY_INTERVAL. CRL which is not used during IDLE_EXPIRATION is dropped
+ * instead of refresh.
+ * <p>
+ * Store keeps at most MAX_ENTRIES CRLs, least recently used CRL is dropped to make room for new one. If store is full
+ * of CRLs which are still loading, CRL is loaded without caching.
+ */
+public class CRLStore {
+
+	private static final Logger log = LoggerFactory.getLogger(CRLStore.class);
+
+	private static final long DEFAULT_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(60);
+	private static final long MIN_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+	private static final long RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+	private static final long IDLE_EXPIRATION = TimeUnit.HOURS.toMillis(24);
+	private static final int MAX_ENTRIES = 10;
+
+	@FunctionalInterface
+	public interface CrlLoader {
+		X509CRL load(String url) throws Exception;
+	}
+
+	private final CrlLoader loader;
+	private final ConcurrentMap<String, CompletableFuture<CrlEntry>> entries = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService refresher;
+
+	public CRLStore(CrlLoader loader) {
+		this.loader = loader;
+		this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "crl-refresher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @return CRL entry of given URL, CRL is downloaded only if it is not in store yet
+	 */
+	public CrlEntry get(String url) throws Exception {
+		final String key = url.toLowerCase();
+		CompletableFuture<CrlEntry> future = entries.get(key);
+		if (future == null) {
+			if (!evictIfFull()) {
+				log.debug("CRL store is full, CRL '{}' is loaded without caching", url);
+				return new CrlEntry(loader.load(url));
+			}
+
+			final CompletableFuture<CrlEntry> newFuture = new CompletableFuture<>();
+			future = entries.putIfAbsent(key, newFuture);
+			if (future == null) {
+				future = newFuture;
+				load(key, url, newFuture);
+			}
+		}
+
+		try {
+			final CrlEntry entry = future.get();
+			entry.lastAccessTime = System.currentTimeMillis();
+			return entry;
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+	}
+
+	/**
+	 * @return true if there is room for new CRL
+	 */
+	private boolean evictIfFull() {
+		while (entries.size() >= MAX_ENTRIES) {
+			Map.Entry<String, CompletableFuture<CrlEntry>> eldest = null;
+			long eldestAccessTime = Long.MAX_VALUE;
+			for (Map.Entry<String, CompletableFuture<CrlEntry>> candidate : entries.entrySet()) {
+				final CrlEntry entry = candidate.getValue().getNow(null);
+				if (entry != null && entry.lastAccessTime < eldestAccessTime) {
+					eldest = candidate;
+					eldestAccessTime = entry.lastAccessTime;
+				}
+			}
+
+			if (eldest == null) {
+				return false; // all are loading
+			}
+			if (entries.remove(eldest.getKey(), eldest.getValue())) {
+				log.debug("CRL store is full, least recently used CRL '{}' is removed", eldest.getKey());
+			}
+		}
+		return true;
+	}
+
+	private void load(String key, String url, CompletableFuture<CrlEntry> future) {
+		try {
+			final CrlEntry entry = new CrlEntry(loader.load(url));
+			future.complete(entry);
+			scheduleRefresh(key, url, future, refreshDelay(entry));
+		} catch (Exception e) {
+			entries.remove(key, future); // next request tries again
+			future.completeExceptionally(e);
+		}
+	}
+
+	void refresh(String key, String url) {
+		refresh(key, url, entries.get(key));
+	}
+
+	private void refresh(String key, String url, CompletableFuture<CrlEntry> expected) {
+		final CompletableFuture<CrlEntry> current = entries.get(key);
+		if (current == null || current != expected) {
+			return; // CRL is removed (or removed and loaded again, then it has own refresh)
+		}
+
+		final CrlEntry currentEntry = current.getNow(null);
+		if (currentEntry != null && System.currentTimeMillis() - currentEntry.lastAccessTime > IDLE_EXPIRATION) {
+			log.debug("CRL '{}' is not used, it is removed from store", url);
+			entries.remove(key, current);
+			return;
+		}
+
+		try {
+			final CrlEntry entry = new CrlEntry(loader.load(url));
+			if (currentEntry != null) {
+				entry.lastAccessTime = currentEntry.lastAccessTime;
+			}
+			final CompletableFuture<CrlEntry> refreshed = CompletableFuture.completedFuture(entry);
+			if (entries.replace(key, current, refreshed)) {
+				log.debug("CRL '{}' is refreshed, revoked certificates: {}", url, entry.revocationDates.size());
+				scheduleRefresh(key, url, refreshed, refreshDelay(entry));
+			}
+		} catch (Exception e) {
+			log.error("Failed to refresh CRL '" + url + "', current CRL is kept", e);
+			scheduleRefresh(key, url, current, RETRY_INTERVAL);
+		}
+	}
+
+	private void scheduleRefresh(String key, String url, CompletableFuture<CrlEntry> expected, long delay) {
+		try {
+			refresher.schedule(() -> refresh(key, url, expected), delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			log.trace("CRL store is destroyed, refresh is not scheduled", e);
+		}
+	}
+
+	/**
+	 * @return delay of refresh, it is done when 90% of CRL validity period is passed but not later than
+	 * DEFAULT_REFRESH_INTERVAL
+	 */
+	static long refreshDelay(CrlEntry entry) {
+		final Date nextUpdate = entry.getNextUpdate();
+		if (nextUpdate == null) {
+			return DEFAULT_REFRESH_INTERVAL;
+		}
+
+		final long now = System.currentTimeMillis();
+		final long thisUpdate = entry.getThisUpdate() != null ? entry.getThisUpdate().getTime() : now;
+		final long refreshTime = nextUpdate.getTime() - (nextUpdate.getTime() - thisUpdate) / 10;
+		return Math.max(MIN_REFRESH_INTERVAL, Math.min(DEFAULT_REFRESH_INTERVAL, refreshTime - now));
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public void destroy() {
+		refresher.shutdownNow();
+		entries.clear();
+	}
+
+	/**
+	 * Loaded CRL with index of revoked serial numbers. Signature is verified once per issuer key.
+	 */
+	public static class CrlEntry {
+
+		private final X509CRL crl;
+		private final X500Principal issuer;
+		private final Date thisUpdate;
+		private final Date nextUpdate;
+		private final Map<BigInteger, Date> revocationDates;
+
+		private final Set<PublicKey> verifiedKeys = Collections.newSetFromMap(new ConcurrentHashMap<>());
+		private volatile long lastAccessTime = System.currentTimeMillis();
+
+		public CrlEntry(X509CRL crl) {
+			this.crl = crl;
+			this.issuer = crl.getIssuerX500Principal();
+			this.thisUpdate = crl.getThisUpdate();
+			this.nextUpdate = crl.getNextUpdate();
+
+			final Set<? extends X509CRLEntry> revoked = crl.getRevokedCertificates();
+			if (revoked == null || revoked.isEmpty()) {
+				this.revocationDates = Collections.emptyMap();
+			} else {
+				final Map<BigInteger, Date> map = new HashMap<>((int) (revoked.size() / 0.75f) + 1);
+				for (X509CRLEntry revokedEntry : revoked) {
+					map.put(revokedEntry.getSerialNumber(), revokedEntry.getRevocationDate());
+				}
+				this.revocationDates = map;
+			}
+		}
+
+		/**
+		 * Verifies signature of CRL, result is remembered so signature is verified only once for the key.
+		 */
+		public void verify(PublicKey issuerKey) throws Exception {
+			if (verifiedKeys.contains(issuerKey)) {
+				return;
+			}
+			crl.verify(issuerKey);
+			verifiedKeys.add(issuerKey);
+		}
+
+		/**
+		 * @return revocation date of certificate or null if certificate is not revoked
+		 */
+		public Date getRevocationDate(BigInteger serialNumber) {
+			return revocationDates.get(serialNumber);
+		}
+
+		public X509CRL getCrl() {
+			return crl;
+		}
+
+		public X500Principal getIssuer() {
+			return issuer;
+		}
+
+		public Date getThisUpdate() {
+			return thisUpdate;
+		}
+
+		public Date getNextUpdate() {
+			return nextUpdate;
+		}
+	}
+}
@@ -7,8 +7,15 @@
 package io.jans.as.common.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 
@@ -32,45 +39,92 @@ public abstract class AttributeService extends io.jans.service.AttributeService
      */
     private static final long serialVersionUID = -990409035168814270L;
 
+    private static final long ATTRIBUTE_INDEX_LIFETIME_IN_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final AtomicLong ATTRIBUTE_INDEX_VERSION = new AtomicLong();
+
     @Inject
     private Logger logger;
 
     @Inject
     private StaticConfiguration staticConfiguration;
 
+    private transient volatile AttributeIndex attributeIndex;
+    private final transient AtomicBoolean indexRebuilding = new AtomicBoolean();
+
     /**
      * returns GluuAttribute by Dn
      *
      * @return GluuAttribute
      */
     public GluuAttribute getAttributeByDn(String dn) {
+        final GluuAttribute indexed = getAttributeIndex().byDn.get(dn);
+        if (indexed != null) {
+            return indexed;
+        }
+
         BaseCacheService usedCacheService = getCacheService();
 
         return usedCacheService.getWithPut(dn, () -> persistenceEntryManager.find(GluuAttribute.class, dn), 60);
     }
 
     public GluuAttribute getByLdapName(String name) {
-        List<GluuAttribute> gluuAttributes = getAttributesByAttribute("jansAttrName", name, staticConfiguration.getBaseDn().getAttributes());
-        if (gluuAttributes.size() > 0) {
-            for (GluuAttribute gluuAttribute : gluuAttributes) {
-                if (gluuAttribute.getName() != null && gluuAttribute.getName().equals(name)) {
-                    return gluuAttribute;
-                }
-            }
-        }
-        return null;
+        return name != null ? getAttributeIndex().byLdapName.get(name) : null;
     }
 
     public GluuAttribute getByClaimName(String name) {
-        List<GluuAttribute> gluuAttributes = getAttributesByAttribute("jansClaimName", name, staticConfiguration.getBaseDn().getAttributes());
-        if (gluuAttributes.size() > 0) {
-            for (GluuAttribute gluuAttribute : gluuAttributes) {
-                if (gluuAttribute.getClaimName() != null && gluuAttribute.getClaimName().equals(name)) {
-                    return gluuAttribute;
+        return name != null ? getAttributeIndex().byClaimName.get(name) : null;
+    }
+
+    /**
+     * @return version of attributes snapshot, it is changed when re-loaded attributes are different from previous
+     * ones (or index was cleared), so data derived from attributes can be invalidated
+     */
+    public long getAttributesVersion() {
+        return getAttributeIndex().version;
+    }
+
+    /**
+     * Drops attribute index, it is rebuilt from persistence on next lookup.
+     */
+    public void clearAttributeIndex() {
+        attributeIndex = null;
+    }
+
+    /**
+     * Expired index is rebuilt by single caller, other callers are served with previous index meanwhile. Callers wait
+     * only if there is no index at all (first lookup or index was cleared).
+     */
+    private AttributeIndex getAttributeIndex() {
+        final AttributeIndex index = attributeIndex;
+        if (index == null) {
+            synchronized (this) {
+                final AttributeIndex current = attributeIndex;
+                return current != null ? current : rebuildAttributeIndex(null);
+            }
+        }
+
+        if (index.isExpired() && indexRebuilding.compareAndSet(false, true)) {
+            try {
+                if (attributeIndex == index) {
+                    return rebuildAttributeIndex(index);
                 }
+            } finally {
+                indexRebuilding.set(false);
             }
         }
-        return null;
+        return index;
+    }
+
+    private AttributeIndex rebuildAttributeIndex(AttributeIndex previous) {
+        try {
+            final AttributeIndex rebuilt = new AttributeIndex(persistenceEntryManager.findEntries(
+                    staticConfiguration.getBaseDn().getAttributes(), GluuAttribute.class, null), previous);
+            attributeIndex = rebuilt;
+            return rebuilt;
+        } catch (Exception e) {
+            logger.error("Failed to load attributes", e);
+            return previous != null ? previous : AttributeIndex.EMPTY; // serve stale index rather than nothing
+        }
     }
 
     public String generateInumForNewAttribute() {
@@ -171,16 +225,90 @@ public abstract class AttributeService extends io.jans.service.AttributeService
     public void removeAttribute(GluuAttribute attribute) {
         logger.trace("Removing attribute {}", attribute.getDisplayName());
         persistenceEntryManager.remove(attribute);
+        clearAttributeIndex();
     }
 
     public void addAttribute(GluuAttribute attribute) {
         persistenceEntryManager.persist(attribute);
+        clearAttributeIndex();
     }
 
     public void updateAttribute(GluuAttribute attribute) {
         persistenceEntryManager.merge(attribute);
+        clearAttributeIndex();
     }
 
     protected abstract boolean isUseLocalCache();
 
+    /**
+     * Immutable snapshot of attributes indexed by claim name, ldap name and dn. Index is swapped as a whole, so
+     * lookups never see partially built maps. Version of previous index is kept if attributes are not changed.
+     */
+    private static class AttributeIndex {
+
+        private static final AttributeIndex EMPTY = new AttributeIndex(Collections.emptyList());
+
+        private final Map<String, GluuAttribute> byClaimName;
+        private final Map<String, GluuAttribute> byLdapName;
+        private final Map<String, GluuAttribute> byDn;
+        private final long expiresAt;
+        private final long version;
+
+        private AttributeIndex(List<GluuAttribute> attributes) {
+            this(attributes, null);
+        }
+
+        private AttributeIndex(List<GluuAttribute> attributes, AttributeIndex previous) {
+            final Map<String, GluuAttribute> claimNames = new HashMap<>();
+            final Map<String, GluuAttribute> ldapNames = new HashMap<>();
+            final Map<String, GluuAttribute> dns = new HashMap<>();
+            if (attributes != null) {
+                for (GluuAttribute attribute : attributes) {
+                    if (attribute.getClaimName() != null) {
+                        claimNames.putIfAbsent(attribute.getClaimName(), attribute);
+                    }
+                    if (attribute.getName() != null) {
+                        ldapNames.putIfAbsent(attribute.getName(), attribute);
+                    }
+                    if (attribute.getDn() != null) {
+                        dns.putIfAbsent(attribute.getDn(), attribute);
+                    }
+                }
+            }
+
+            this.byClaimName = Collections.unmodifiableMap(claimNames);
+            this.byLdapName = Collections.unmodifiableMap(ldapNames);
+            this.byDn = Collections.unmodifiableMap(dns);
+            this.expiresAt = System.currentTimeMillis() + ATTRIBUTE_INDEX_LIFETIME_IN_MILLIS;
+            this.version = previous != null && previous.hasSameAttributes(dns) ?
+                    previous.version : ATTRIBUTE_INDEX_VERSION.incrementAndGet();
+        }
+
+        private boolean hasSameAttributes(Map<String, GluuAttribute> dns) {
+            if (byDn.size() != dns.size()) {
+                return false;
+            }
+            for (Map.Entry<String, GluuAttribute> entry : dns.entrySet()) {
+                final GluuAttribute current = byDn.get(entry.getKey());
+                if (current == null || !isSame(current, entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // compares properties which are used by data derived from attributes (e.g. claim plans)
+        private static boolean isSame(GluuAttribute a1, GluuAttribute a2) {
+            return Objects.equals(a1.getName(), a2.getName())
+                    && Objects.equals(a1.getClaimName(), a2.getClaimName())
+                    && Objects.equals(a1.getDisplayName(), a2.getDisplayName())
+                    && Objects.equals(a1.getDataType(), a2.getDataType())
+                    && Objects.equals(a1.getOxMultiValuedAttribute(), a2.getOxMultiValuedAttribute());
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.common.cert.validation;
+
+import io.jans.as.common.cert.validation.model.ValidationStatus;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+public class CRLCertificateVerifierTest {
+
+    private static final BigInteger REVOKED_SERIAL = BigInteger.valueOf(1001);
+    private static final BigInteger GOOD_SERIAL = BigInteger.valueOf(1002);
+
+    private KeyPair caKeys;
+    private X509Certificate caCertificate;
+    private File crlFile;
+    private String crlUrl;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        caKeys = generator.generateKeyPair();
+
+        final X500Name caName = new X500Name("CN=Test CA");
+        final JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(caName, BigInteger.ONE,
+                new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)), new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(30)),
+                caName, caKeys.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+        caCertificate = new JcaX509CertificateConverter().getCertificate(builder.build(signer()));
+
+        crlFile = File.createTempFile("test", ".crl");
+        crlUrl = crlFile.toURI().toURL().toString();
+        writeCrl(REVOKED_SERIAL);
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(crlFile.toPath());
+    }
+
+    @Test
+    public void validate_withRevokedAndGoodCertificates_shouldReturnRevokedAndValid() throws Exception {
+        final CRLCertificateVerifier verifier = new CRLCertificateVerifier(1024 * 1024, true);
+        try {
+            assertEquals(validate(verifier, REVOKED_SERIAL), ValidationStatus.CertificateValidity.REVOKED);
+            assertEquals(validate(verifier, GOOD_SERIAL), ValidationStatus.CertificateValidity.VALID);
+        } finally {
+            verifier.destroy();
+        }
+    }
+
+    @Test
+    public void validate_withFileUrlNotAllowed_shouldReturnInvalid() throws Exception {
+        final CRLCertificateVerifier verifier = new CRLCertificateVerifier(1024 * 1024);
+        try {
+            assertEquals(validate(verifier, REVOKED_SERIAL), ValidationStatus.CertificateValidity.INVALID);
+        } finally {
+            verifier.destroy();
+        }
+    }
+
+    @Test
+    public void get_calledTwice_shouldLoadCrlOnceAndRefreshReplacesIt() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final CRLCertificateVerifier verifier = new CRLCertificateVerifier(1024 * 1024, true);
+        final CRLStore store = new CRLStore(url -> {
+            loads.incrementAndGet();
+            return verifier.requestCRL(url);
+        });
+        try {
+            final CRLStore.CrlEntry entry = store.get(crlUrl);
+            assertEquals(store.get(crlUrl), entry);
+            assertEquals(loads.get(), 1);
+            assertNull(entry.getRevocationDate(GOOD_SERIAL));
+
+            writeCrl(REVOKED_SERIAL, GOOD_SERIAL);
+            assertEquals(store.get(crlUrl), entry); // stale CRL is served till refresh
+
+            store.refresh(crlUrl.toLowerCase(), crlUrl);
+            assertEquals(loads.get(), 2);
+            final CRLStore.CrlEntry refreshed = store.get(crlUrl);
+            refreshed.verify(caKeys.getPublic());
+            assertNotNull(refreshed.getRevocationDate(GOOD_SERIAL));
+        } finally {
+            store.destroy();
+            verifier.destroy();
+            writeCrl(REVOKED_SERIAL);
+        }
+    }
+
+    @Test
+    public void refreshDelay_withDayLongValidity_shouldRefreshAtLeastHourly() throws Exception {
+        final CRLCertificateVerifier verifier = new CRLCertificateVerifier(1024 * 1024, true);
+        try {
+            final CRLStore.CrlEntry entry = new CRLStore.CrlEntry(verifier.requestCRL(crlUrl));
+            assertEquals(CRLStore.refreshDelay(entry), TimeUnit.HOURS.toMillis(1));
+        } finally {
+            verifier.destroy();
+        }
+    }
+
+    @Test
+    public void get_withManyUrls_shouldKeepStoreBounded() throws Exception {
+        final CRLCertificateVerifier verifier = new CRLCertificateVerifier(1024 * 1024, true);
+        final CRLStore store = new CRLStore(url -> verifier.requestCRL(crlUrl));
+        try {
+            for (int i = 0; i < 20; i++) {
+                assertNotNull(store.get(crlUrl + "?" + i));
+            }
+            assertEquals(store.size(), 10);
+        } finally {
+            store.destroy();
+            verifier.destroy();
+        }
+    }
+
+    private ValidationStatus.CertificateValidity validate(CRLCertificateVerifier verifier, BigInteger serial) throws Exception {
+        return verifier.validate(leafCertificate(serial), Collections.singletonList(caCertificate), new Date()).getValidity();
+    }
+
+    private X509Certificate leafCertificate(BigInteger serial) throws Exception {
+        final KeyPair keys = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        final JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(new X500Name("CN=Test CA"), serial,
+                new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)), new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(30)),
+                new X500Name("CN=client " + serial), keys.getPublic());
+        final DistributionPointName name = new DistributionPointName(new GeneralNames(new GeneralName(GeneralName.uniformResourceIdentifier, crlUrl)));
+        builder.addExtension(Extension.cRLDistributionPoints, false, new CRLDistPoint(new DistributionPoint[]{new DistributionPoint(name, null, null)}));
+        return new JcaX509CertificateConverter().getCertificate(builder.build(signer()));
+    }
+
+    private void writeCrl(BigInteger... revokedSerials) throws Exception {
+        final Date now = new Date();
+        final X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=Test CA"), now);
+        builder.setNextUpdate(new Date(now.getTime() + TimeUnit.DAYS.toMillis(1)));
+        for (BigInteger serial : revokedSerials) {
+            builder.addCRLEntry(serial, new Date(now.getTime() - TimeUnit.HOURS.toMillis(1)), CRLReason.keyCompromise);
+        }
+        final X509CRL crl = new JcaX509CRLConverter().getCRL(builder.build(signer()));
+        Files.write(crlFile.toPath(), crl.getEncoded());
+    }
+
+    private ContentSigner signer() throws Exception {
+        return new JcaContentSignerBuilder("SHA256withRSA").build(caKeys.getPrivate());
+    }
+}
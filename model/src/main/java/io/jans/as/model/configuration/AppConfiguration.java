@@ -128,6 +128,8 @@ public class AppConfiguration implements Configuration {
 
     private Boolean persistIdTokenInLdap = false;
     private Boolean persistRefreshTokenInLdap = true;
+    private Boolean tokenWriteBehindEnabled = false;
+    private Boolean introspectionLocalJwtValidationEnabled = false;
     private Boolean allowPostLogoutRedirectWithoutValidation = false;
     private Boolean invalidateSessionCookiesAfterAuthorizationFlow = false;
     private Boolean returnClientSecretOnRead = false;
@@ -151,6 +153,13 @@ public class AppConfiguration implements Configuration {
     private Boolean sessionIdRequestParameterEnabled = false; // #1195
     private Boolean changeSessionIdOnAuthentication = true;
     private Boolean sessionIdPersistInCache = false;
+    /**
+     * lastUsedAt of session is kept in memory and flushed every sessionIdLastUsedAtFlushIntervalInSeconds (0 - merge on each update).
+     * Other nodes see lastUsedAt up to this interval behind, so it must stay well below sessionIdUnusedLifetime
+     * (and sessionIdUnauthenticatedUnusedLifetime), otherwise active session can be treated as unused.
+     * Not used if sessionIdPersistInCache is true.
+     */
+    private int sessionIdLastUsedAtFlushIntervalInSeconds = 30;
     /**
      * SessionId will be expired after sessionIdLifetime seconds
      */
@@ -193,6 +202,8 @@ public class AppConfiguration implements Configuration {
     private Set<String> jmsBrokerURISet;
     private String jmsUserName;
     private String jmsPassword;
+    private int auditLogQueueCapacity = 10000;
+    private String auditLogSpoolFile;
     private List<String> clientWhiteList;
     private List<String> clientBlackList;
     private Boolean legacyIdTokenClaims;
@@ -202,6 +213,10 @@ public class AppConfiguration implements Configuration {
     private String loggingLayout;
     private Boolean updateUserLastLogonTime;
     private Boolean updateClientAccessTime;
+    /**
+     * Access time of client is kept in memory and flushed every clientAccessTimeFlushIntervalInSeconds (0 - merge on each update)
+     */
+    private int clientAccessTimeFlushIntervalInSeconds = 30;
     private Boolean logClientIdOnClientAuthentication;
     private Boolean logClientNameOnClientAuthentication;
     private Boolean disableJdkLogger = true;
@@ -259,7 +274,17 @@ public class AppConfiguration implements Configuration {
     private int cibaMaxExpirationTimeAllowedSec;
     private Boolean cibaEnabled;
 
+    // shared client of server initiated calls (CIBA callbacks, backchannel logout, etc.), applied on start
+    private int outboundHttpMaxConnections = 200;
+    private int outboundHttpMaxConnectionsPerRoute = 20;
+    private int outboundHttpTimeoutInSeconds = 10;
+
     public int discoveryCacheLifetimeInMinutes = 60;
+    private int jwksCacheLifetimeInMinutes = 5;
+
+    // Cache-Control max-age of discovery and JWKS responses (0 - no-cache, clients revalidate with If-None-Match)
+    private int discoveryCacheControlMaxAgeInSeconds = 60;
+    private int jwksCacheControlMaxAgeInSeconds = 60;
 
     public Boolean getUseNestedJwtDuringEncryption() {
         if (useNestedJwtDuringEncryption == null) useNestedJwtDuringEncryption = true;
@@ -287,6 +312,31 @@ public class AppConfiguration implements Configuration {
         this.discoveryCacheLifetimeInMinutes = discoveryCacheLifetimeInMinutes;
     }
 
+    public int getDiscoveryCacheControlMaxAgeInSeconds() {
+        return discoveryCacheControlMaxAgeInSeconds;
+    }
+
+    public void setDiscoveryCacheControlMaxAgeInSeconds(int discoveryCacheControlMaxAgeInSeconds) {
+        this.discoveryCacheControlMaxAgeInSeconds = discoveryCacheControlMaxAgeInSeconds;
+    }
+
+    public int getJwksCacheControlMaxAgeInSeconds() {
+        return jwksCacheControlMaxAgeInSeconds;
+    }
+
+    public void setJwksCacheControlMaxAgeInSeconds(int jwksCacheControlMaxAgeInSeconds) {
+        this.jwksCacheControlMaxAgeInSeconds = jwksCacheControlMaxAgeInSeconds;
+    }
+
+    public int getJwksCacheLifetimeInMinutes() {
+        if (jwksCacheLifetimeInMinutes <= 0) jwksCacheLifetimeInMinutes = 5;
+        return jwksCacheLifetimeInMinutes;
+    }
+
+    public void setJwksCacheLifetimeInMinutes(int jwksCacheLifetimeInMinutes) {
+        this.jwksCacheLifetimeInMinutes = jwksCacheLifetimeInMinutes;
+    }
+
     public String getSoftwareStatementValidationType() {
         if (softwareStatementValidationType == null) return softwareStatementValidationType = SoftwareStatementValidationType.DEFAULT.getValue();
         return softwareStatementValidationType;
@@ -356,6 +406,24 @@ public class AppConfiguration implements Configuration {
         this.expirationNotificatorIntervalInSeconds = expirationNotificatorIntervalInSeconds;
     }
 
+    public Boolean getTokenWriteBehindEnabled() {
+        if (tokenWriteBehindEnabled == null) tokenWriteBehindEnabled = false;
+        return tokenWriteBehindEnabled;
+    }
+
+    public void setTokenWriteBehindEnabled(Boolean tokenWriteBehindEnabled) {
+        this.tokenWriteBehindEnabled = tokenWriteBehindEnabled;
+    }
+
+    public Boolean getIntrospectionLocalJwtValidationEnabled() {
+        if (introspectionLocalJwtValidationEnabled == null) introspectionLocalJwtValidationEnabled = false;
+        return introspectionLocalJwtValidationEnabled;
+    }
+
+    public void setIntrospectionLocalJwtValidationEnabled(Boolean introspectionLocalJwtValidationEnabled) {
+        this.introspectionLocalJwtValidationEnabled = introspectionLocalJwtValidationEnabled;
+    }
+
     public Boolean getRejectJwtWithNoneAlg() {
         if (rejectJwtWithNoneAlg == null) rejectJwtWithNoneAlg = true;
         return rejectJwtWithNoneAlg;
@@ -419,6 +487,14 @@ public class AppConfiguration implements Configuration {
         this.sessionIdPersistInCache = sessionIdPersistInCache;
     }
 
+    public int getSessionIdLastUsedAtFlushIntervalInSeconds() {
+        return sessionIdLastUsedAtFlushIntervalInSeconds;
+    }
+
+    public void setSessionIdLastUsedAtFlushIntervalInSeconds(int sessionIdLastUsedAtFlushIntervalInSeconds) {
+        this.sessionIdLastUsedAtFlushIntervalInSeconds = sessionIdLastUsedAtFlushIntervalInSeconds;
+    }
+
     public Boolean getChangeSessionIdOnAuthentication() {
         if (changeSessionIdOnAuthentication == null) changeSessionIdOnAuthentication = true;
         return changeSessionIdOnAuthentication;
@@ -1655,6 +1731,22 @@ public class AppConfiguration implements Configuration {
         this.jmsPassword = jmsPassword;
     }
 
+    public int getAuditLogQueueCapacity() {
+        return auditLogQueueCapacity;
+    }
+
+    public void setAuditLogQueueCapacity(int auditLogQueueCapacity) {
+        this.auditLogQueueCapacity = auditLogQueueCapacity;
+    }
+
+    public String getAuditLogSpoolFile() {
+        return auditLogSpoolFile;
+    }
+
+    public void setAuditLogSpoolFile(String auditLogSpoolFile) {
+        this.auditLogSpoolFile = auditLogSpoolFile;
+    }
+
     public List<String> getClientWhiteList() {
         return clientWhiteList;
     }
@@ -1707,6 +1799,14 @@ public class AppConfiguration implements Configuration {
         this.updateClientAccessTime = updateClientAccessTime;
     }
 
+    public int getClientAccessTimeFlushIntervalInSeconds() {
+        return clientAccessTimeFlushIntervalInSeconds;
+    }
+
+    public void setClientAccessTimeFlushIntervalInSeconds(int clientAccessTimeFlushIntervalInSeconds) {
+        this.clientAccessTimeFlushIntervalInSeconds = clientAccessTimeFlushIntervalInSeconds;
+    }
+
     public Boolean getHttpLoggingEnabled() {
         return httpLoggingEnabled;
     }
@@ -2035,6 +2135,30 @@ public class AppConfiguration implements Configuration {
         this.backchannelRequestsProcessorJobChunkSize = backchannelRequestsProcessorJobChunkSize;
     }
 
+    public int getOutboundHttpMaxConnections() {
+        return outboundHttpMaxConnections;
+    }
+
+    public void setOutboundHttpMaxConnections(int outboundHttpMaxConnections) {
+        this.outboundHttpMaxConnections = outboundHttpMaxConnections;
+    }
+
+    public int getOutboundHttpMaxConnectionsPerRoute() {
+        return outboundHttpMaxConnectionsPerRoute;
+    }
+
+    public void setOutboundHttpMaxConnectionsPerRoute(int outboundHttpMaxConnectionsPerRoute) {
+        this.outboundHttpMaxConnectionsPerRoute = outboundHttpMaxConnectionsPerRoute;
+    }
+
+    public int getOutboundHttpTimeoutInSeconds() {
+        return outboundHttpTimeoutInSeconds;
+    }
+
+    public void setOutboundHttpTimeoutInSeconds(int outboundHttpTimeoutInSeconds) {
+        this.outboundHttpTimeoutInSeconds = outboundHttpTimeoutInSeconds;
+    }
+
     public Boolean getClientRegDefaultToCodeFlowWithRefresh() {
         if (clientRegDefaultToCodeFlowWithRefresh == null) clientRegDefaultToCodeFlowWithRefresh = false;
         return clientRegDefaultToCodeFlowWithRefresh;
@@ -24,6 +24,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.security.AlgorithmParameters;
 import java.security.KeyFactory;
 import java.security.PrivateKey;
@@ -44,6 +45,12 @@ public abstract class AbstractCryptoProvider {
 
     private int keyRegenerationIntervalInDays = -1;
 
+    /**
+     * Decoded public keys by JWK json object. JWKS resolved via cache keeps the same JSONObject instances
+     * until it is re-fetched, so decoding is done once per key (entries go away together with JWKS).
+     */
+    private final Map<JSONObject, PublicKey> decodedPublicKeys = Collections.synchronizedMap(new WeakHashMap<>());
+
     public JSONObject generateKey(Algorithm algorithm, Long expirationTime) throws Exception {
         return generateKey(algorithm, expirationTime, Use.SIGNATURE);
     }
@@ -52,6 +59,14 @@ public abstract class AbstractCryptoProvider {
 
     public abstract String sign(String signingInput, String keyId, String sharedSecret, SignatureAlgorithm signatureAlgorithm) throws Exception;
 
+    /**
+     * Signs already encoded signing input (e.g. {@link io.jans.as.model.jwt.Jwt#getSigningInputBytes()}),
+     * providers which work on bytes override it to avoid extra copies.
+     */
+    public String sign(byte[] signingInput, String keyId, String sharedSecret, SignatureAlgorithm signatureAlgorithm) throws Exception {
+        return sign(new String(signingInput, StandardCharsets.UTF_8), keyId, sharedSecret, signatureAlgorithm);
+    }
+
     public abstract boolean verifySignature(String signingInput, String encodedSignature, String keyId, JSONObject jwks, String sharedSecret, SignatureAlgorithm signatureAlgorithm) throws Exception;
 
     public abstract boolean deleteKey(String keyId) throws Exception;
@@ -64,6 +79,13 @@ public abstract class AbstractCryptoProvider {
 
     public abstract PrivateKey getPrivateKey(String keyId) throws Exception;
 
+    /**
+     * Drops any decoded key material held in memory. Must be called when keys are rotated outside of
+     * {@link #generateKey(Algorithm, Long, Use)} and {@link #deleteKey(String)}.
+     */
+    public void clearKeyCache() {
+    }
+
     public String getKeyId(JSONWebKeySet jsonWebKeySet, Algorithm algorithm, Use use) throws Exception {
         if (algorithm == null || AlgorithmFamily.HMAC.equals(algorithm.getFamily())) {
             return null;
@@ -222,7 +244,10 @@ public abstract class AbstractCryptoProvider {
             family = AlgorithmFamily.fromString(key.getString(KEY_TYPE));
         }
 
-        if (AlgorithmFamily.RSA.equals(family)) {
+        publicKey = decodedPublicKeys.get(key);
+        if (publicKey != null) {
+            // already decoded
+        } else if (AlgorithmFamily.RSA.equals(family)) {
             KeyFactory keyFactory = KeyFactory.getInstance("RSA");
             RSAPublicKeySpec pubKeySpec = new RSAPublicKeySpec(
                     new BigInteger(1, Base64Util.base64urldecode(key.getString(MODULUS))),
@@ -240,6 +265,9 @@ public abstract class AbstractCryptoProvider {
                             new BigInteger(1, Base64Util.base64urldecode(key.getString(Y)))
                     ), ecParameters));
         }
+        if (publicKey != null) {
+            decodedPublicKeys.put(key, publicKey);
+        }
 
         if (key.has(EXPIRATION_TIME)) {
             checkKeyExpiration(alias, key.getLong(EXPIRATION_TIME));
@@ -250,10 +278,15 @@ public abstract class AbstractCryptoProvider {
 
     protected void checkKeyExpiration(String alias, Long expirationTime) {
         try {
-            Date expirationDate = new Date(expirationTime);
-            SimpleDateFormat ft = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
             Date today = new Date();
             long expiresInDays = (expirationTime - today.getTime()) / (24 * 60 * 60 * 1000);
+            int warningPeriodInDays = keyRegenerationIntervalInDays <= 0 ? 30 : keyRegenerationIntervalInDays;
+            if (expiresInDays > 0 && expiresInDays >= warningPeriodInDays) {
+                return; // nothing to warn about, called on each sign/verify so keep it cheap
+            }
+
+            Date expirationDate = new Date(expirationTime);
+            SimpleDateFormat ft = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
             if (expiresInDays == 0) {
                 LOG.warn("\nWARNING! Key will expire soon, alias: " + alias
                         + "\n\tExpires On: " + ft.format(expirationDate)
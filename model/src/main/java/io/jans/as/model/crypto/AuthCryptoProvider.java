@@ -34,14 +34,12 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import javax.crypto.Mac;
-import javax.crypto.SecretKey;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.PrivateKey;
 import java.security.PublicKey;
@@ -53,6 +51,8 @@ import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.ECGenParameterSpec;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import static io.jans.as.model.jwk.JWKParameter.*;
@@ -73,6 +73,17 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
     private final boolean rejectNoneAlg;
     private final KeySelectionStrategy keySelectionStrategy;
 
+    /**
+     * Decoded key material by alias. Keystore unwrap (PBE) is done only once per alias,
+     * cache is dropped whenever keystore content changes (load, generate, delete).
+     */
+    private final ConcurrentMap<String, CachedKey> keyCache = new ConcurrentHashMap<>();
+
+    /**
+     * Selected kid by (algorithm, use), see {@link #getKeyId(JSONWebKeySet, Algorithm, Use)}.
+     */
+    private final ConcurrentMap<String, SelectedKid> kidCache = new ConcurrentHashMap<>();
+
     public AuthCryptoProvider() throws Exception {
         this(null, null, null);
     }
@@ -119,9 +130,18 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
             LOG.trace("Loaded keys:"+ getKeys());
         } catch (Exception e) {
             LOG.error(e.getMessage(), e);
+        } finally {
+            clearKeyCache();
         }
     }
 
+    @Override
+    public void clearKeyCache() {
+        keyCache.clear();
+        kidCache.clear();
+        LOG.trace("Cleared key cache.");
+    }
+
     public String getKeyStoreFile() {
         return keyStoreFile;
     }
@@ -177,6 +197,7 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
 
         FileOutputStream stream = new FileOutputStream(keyStoreFile);
         keyStore.store(stream, keyStoreSecret.toCharArray());
+        clearKeyCache();
 
         PublicKey publicKey = keyPair.getPublic();
 
@@ -228,7 +249,7 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
                 return false;
             }
 
-            return keyStore.getKey(keyId, keyStoreSecret.toCharArray()) != null;
+            return getCachedKey(keyId) != null;
         } catch (Exception e) {
             LOG.error(e.getMessage(), e);
             return false;
@@ -237,13 +258,15 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
 
     @Override
     public String sign(String signingInput, String alias, String sharedSecret, SignatureAlgorithm signatureAlgorithm) throws Exception {
+        return sign(signingInput.getBytes(StandardCharsets.UTF_8), alias, sharedSecret, signatureAlgorithm);
+    }
+
+    @Override
+    public String sign(byte[] signingInput, String alias, String sharedSecret, SignatureAlgorithm signatureAlgorithm) throws Exception {
         if (signatureAlgorithm == SignatureAlgorithm.NONE) {
             return "";
         } else if (AlgorithmFamily.HMAC.equals(signatureAlgorithm.getFamily())) {
-            SecretKey secretKey = new SecretKeySpec(sharedSecret.getBytes(Util.UTF8_STRING_ENCODING), signatureAlgorithm.getAlgorithm());
-            Mac mac = Mac.getInstance(signatureAlgorithm.getAlgorithm());
-            mac.init(secretKey);
-            byte[] sig = mac.doFinal(signingInput.getBytes());
+            byte[] sig = SignatureEngineCache.mac(signatureAlgorithm.getAlgorithm(), sharedSecret, signingInput);
             return Base64Util.base64urlencode(sig);
         } else { // EC or RSA
             PrivateKey privateKey = getPrivateKey(alias);
@@ -255,11 +278,7 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
                 throw new RuntimeException(error);
             }
 
-            Signature signer = Signature.getInstance(signatureAlgorithm.getAlgorithm(), "BC");
-            signer.initSign(privateKey);
-            signer.update(signingInput.getBytes());
-
-            byte[] signature = signer.sign();
+            byte[] signature = SignatureEngineCache.sign(signatureAlgorithm.getAlgorithm(), privateKey, signingInput);
             if (AlgorithmFamily.EC.equals(signatureAlgorithm.getFamily())) {
             	int signatureLenght = ECDSA.getSignatureByteArrayLength(JWSAlgorithm.parse(signatureAlgorithm.getName()));
                 signature = ECDSA.transcodeSignatureToConcat(signature, signatureLenght);
@@ -300,15 +319,13 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
                 	signatureDer = ECDSA.transcodeSignatureToDER(signatureDer);
                 }
 
-                Signature verifier = Signature.getInstance(signatureAlgorithm.getAlgorithm(), "BC");
-                verifier.initVerify(publicKey);
-                verifier.update(signingInput.getBytes());
+                final byte[] signingInputBytes = signingInput.getBytes(StandardCharsets.UTF_8);
                 try {
-                	return verifier.verify(signatureDer);
+                	return SignatureEngineCache.verify(signatureAlgorithm.getAlgorithm(), publicKey, signingInputBytes, signatureDer);
                 } catch (SignatureException e) {
                 	// Fall back to old format
                 	// TODO: remove in Gluu 5.0
-                	return verifier.verify(signature);
+                	return SignatureEngineCache.verify(signatureAlgorithm.getAlgorithm(), publicKey, signingInputBytes, signature);
                 }
             } catch (Exception e) {
                 LOG.error(e.getMessage(), e);
@@ -331,29 +348,38 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
         keyStore.deleteEntry(alias);
         FileOutputStream stream = new FileOutputStream(keyStoreFile);
         keyStore.store(stream, keyStoreSecret.toCharArray());
+        clearKeyCache();
         return true;
     }
 
     public PublicKey getPublicKey(String alias) {
-        PublicKey publicKey = null;
+        if (Util.isNullOrEmpty(alias)) {
+            return null;
+        }
 
         try {
-            if (Util.isNullOrEmpty(alias)) {
-                return null;
+            final CachedKey cachedKey = getCachedKey(alias);
+            if (cachedKey == null || cachedKey.publicKey == null) {
+                return getCertificatePublicKey(alias); // trusted certificate entry (no private key) is not cached
             }
 
-            java.security.cert.Certificate certificate = keyStore.getCertificate(alias);
-            if (certificate == null) {
-                return null;
-            }
-            publicKey = certificate.getPublicKey();
-
-            checkKeyExpiration(alias);
-        } catch (KeyStoreException e) {
-            e.printStackTrace();
+            checkKeyExpiration(alias, cachedKey);
+            return cachedKey.publicKey;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            return null;
         }
+    }
 
-        return publicKey;
+    private PublicKey getCertificatePublicKey(String alias) throws KeyStoreException {
+        java.security.cert.Certificate certificate = keyStore.getCertificate(alias);
+        if (certificate == null) {
+            return null;
+        }
+        if (certificate instanceof X509Certificate) {
+            checkKeyExpiration(alias, ((X509Certificate) certificate).getNotAfter().getTime());
+        }
+        return certificate.getPublicKey();
     }
 
     public String getKeyId(JSONWebKeySet jsonWebKeySet, Algorithm algorithm, Use use) throws Exception {
@@ -363,16 +389,17 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
 
         String kid = null;
         final List<JSONWebKey> keys = jsonWebKeySet.getKeys();
-        LOG.trace("WebKeys:" + keys.stream().map(JSONWebKey::getKid).collect(Collectors.toList()));
-        LOG.trace("KeyStoreKeys:" + getKeys());
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("WebKeys:" + keys.stream().map(JSONWebKey::getKid).collect(Collectors.toList()));
+            LOG.trace("KeyStoreKeys:" + getKeys());
+        }
 
         List<JSONWebKey> keysByAlgAndUse = new ArrayList<>();
 
         for (JSONWebKey key : keys) {
             if (algorithm == key.getAlg() && (use == null || use == key.getUse())) {
                 kid = key.getKid();
-                Key keyFromStore = keyStore.getKey(kid, keyStoreSecret.toCharArray());
-                if (keyFromStore != null) {
+                if (getCachedKey(kid) != null) {
                     keysByAlgAndUse.add(key);
                 }
             }
@@ -383,8 +410,17 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
             return kid;
         }
 
+        final String cacheKey = algorithm.getParamName() + "_" + (use != null ? use.getParamName() : "");
+        final SelectedKid cached = kidCache.get(cacheKey);
+        if (cached != null && cached.matches(keysByAlgAndUse)) {
+            return cached.kid;
+        }
+
         final JSONWebKey selectedKey = keySelectionStrategy.select(keysByAlgAndUse);
         final String selectedKid = selectedKey != null ? selectedKey.getKid() : null;
+        if (selectedKid != null) {
+            kidCache.put(cacheKey, new SelectedKid(keysByAlgAndUse, selectedKid));
+        }
         LOG.trace("Selected kid: " + selectedKid + ", keySelection Strategy: " + keySelectionStrategy);
         return selectedKid;
     }
@@ -395,15 +431,45 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
             return null;
         }
 
+        final CachedKey cachedKey = getCachedKey(alias);
+        if (cachedKey == null) {
+            return null;
+        }
+
+        checkKeyExpiration(alias, cachedKey);
+
+        return cachedKey.privateKey;
+    }
+
+    /**
+     * Returns decoded key material for given alias. Keystore is hit only on first access to alias,
+     * unknown aliases are not cached (kid comes from request and can be anything).
+     */
+    private CachedKey getCachedKey(String alias)
+            throws UnrecoverableKeyException, NoSuchAlgorithmException, KeyStoreException {
+        CachedKey cachedKey = keyCache.get(alias);
+        if (cachedKey != null) {
+            return cachedKey;
+        }
+
         Key key = keyStore.getKey(alias, keyStoreSecret.toCharArray());
-        if (key == null) {
+        if (!(key instanceof PrivateKey)) {
             return null;
         }
-        PrivateKey privateKey = (PrivateKey) key;
 
-        checkKeyExpiration(alias);
+        PublicKey publicKey = null;
+        Long expirationTime = null;
+        java.security.cert.Certificate certificate = keyStore.getCertificate(alias);
+        if (certificate != null) {
+            publicKey = certificate.getPublicKey();
+            if (certificate instanceof X509Certificate) {
+                expirationTime = ((X509Certificate) certificate).getNotAfter().getTime();
+            }
+        }
 
-        return privateKey;
+        cachedKey = new CachedKey((PrivateKey) key, publicKey, expirationTime);
+        keyCache.put(alias, cachedKey);
+        return cachedKey;
     }
 
     public X509Certificate generateV3Certificate(KeyPair keyPair, String issuer, String signatureAlgorithm, Long expirationTime) throws CertIOException, OperatorCreationException, CertificateException {
@@ -470,12 +536,9 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
     }
 
 
-    private void checkKeyExpiration(String alias) {
-        try {
-            Date expirationDate = ((X509Certificate) keyStore.getCertificate(alias)).getNotAfter();
-            checkKeyExpiration(alias, expirationDate.getTime());
-        } catch (KeyStoreException e) {
-            e.printStackTrace();
+    private void checkKeyExpiration(String alias, CachedKey cachedKey) {
+        if (cachedKey.expirationTime != null) {
+            checkKeyExpiration(alias, cachedKey.expirationTime);
         }
     }
 
@@ -483,4 +546,40 @@ public class AuthCryptoProvider extends AbstractCryptoProvider {
         return keyStore;
     }
 
+    private static class CachedKey {
+
+        private final PrivateKey privateKey;
+        private final PublicKey publicKey;
+        private final Long expirationTime;
+
+        private CachedKey(PrivateKey privateKey, PublicKey publicKey, Long expirationTime) {
+            this.privateKey = privateKey;
+            this.publicKey = publicKey;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    private static class SelectedKid {
+
+        private final List<String> candidates;
+        private final String kid;
+
+        private SelectedKid(List<JSONWebKey> candidates, String kid) {
+            this.candidates = toKids(candidates);
+            this.kid = kid;
+        }
+
+        private boolean matches(List<JSONWebKey> keys) {
+            return candidates.equals(toKids(keys));
+        }
+
+        private static List<String> toKids(List<JSONWebKey> keys) {
+            List<String> kids = new ArrayList<>(keys.size());
+            for (JSONWebKey key : keys) {
+                kids.add(key.getKid());
+            }
+            return kids;
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.model.crypto;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Thread-confined cache of initialized {@link Signature} engines keyed by (algorithm, key). {@link Mac} engines are
+ * not cached since they are keyed by shared secret.
+ * <p>
+ * Provider lookup and engine construction are done once per thread and key, after that engine is re-used
+ * (sign/verify/doFinal reset engine to initialized state). Engine which failed in the middle of operation is
+ * dropped since its state is undefined.
+ */
+public final class SignatureEngineCache {
+
+    private static final int MAX_ENGINES_PER_THREAD = 64;
+
+    private static final ThreadLocal<Map<EngineKey, Object>> ENGINES = ThreadLocal.withInitial(() -> new LinkedHashMap<EngineKey, Object>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<EngineKey, Object> eldest) {
+            return size() > MAX_ENGINES_PER_THREAD;
+        }
+    });
+
+    private SignatureEngineCache() {
+    }
+
+    public static byte[] sign(String algorithm, PrivateKey privateKey, byte[] signingInput) throws GeneralSecurityException {
+        final EngineKey engineKey = new EngineKey(Mode.SIGN, algorithm, privateKey);
+        Signature signer = (Signature) ENGINES.get().get(engineKey);
+        if (signer == null) {
+            signer = Signature.getInstance(algorithm, "BC");
+            signer.initSign(privateKey);
+            ENGINES.get().put(engineKey, signer);
+        }
+
+        try {
+            signer.update(signingInput);
+            return signer.sign();
+        } catch (GeneralSecurityException | RuntimeException e) {
+            ENGINES.get().remove(engineKey);
+            throw e;
+        }
+    }
+
+    public static boolean verify(String algorithm, PublicKey publicKey, byte[] signingInput, byte[] signature) throws GeneralSecurityException {
+        final EngineKey engineKey = new EngineKey(Mode.VERIFY, algorithm, publicKey);
+        Signature verifier = (Signature) ENGINES.get().get(engineKey);
+        if (verifier == null) {
+            verifier = Signature.getInstance(algorithm, "BC");
+            verifier.initVerify(publicKey);
+            ENGINES.get().put(engineKey, verifier);
+        }
+
+        try {
+            verifier.update(signingInput);
+            return verifier.verify(signature);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            ENGINES.get().remove(engineKey);
+            throw e;
+        }
+    }
+
+    /**
+     * Mac is created per call on purpose: engine initialized with client secret is not pooled, so secret does not stay
+     * reachable from pooled threads (e.g. after secret rotation).
+     */
+    public static byte[] mac(String algorithm, String sharedSecret, byte[] signingInput) throws GeneralSecurityException {
+        final Mac mac = Mac.getInstance(algorithm);
+        mac.init(new SecretKeySpec(sharedSecret.getBytes(StandardCharsets.UTF_8), algorithm));
+        return mac.doFinal(signingInput);
+    }
+
+    /**
+     * Drops engines cached by current thread.
+     */
+    public static void clear() {
+        ENGINES.remove();
+    }
+
+    private enum Mode {
+        SIGN, VERIFY
+    }
+
+    private static class EngineKey {
+
+        private final Mode mode;
+        private final String algorithm;
+        private final Object key;
+
+        private EngineKey(Mode mode, String algorithm, Object key) {
+            this.mode = mode;
+            this.algorithm = algorithm;
+            this.key = Objects.requireNonNull(key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            EngineKey that = (EngineKey) o;
+            return mode == that.mode && algorithm.equals(that.algorithm) && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mode, algorithm, key);
+        }
+    }
+}
@@ -6,8 +6,6 @@
 
 package io.jans.as.model.error;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import io.jans.as.model.authorize.AuthorizeErrorResponseType;
 import io.jans.as.model.clientinfo.ClientInfoErrorResponseType;
 import io.jans.as.model.configuration.AppConfiguration;
@@ -17,7 +15,7 @@ import io.jans.as.model.session.EndSessionErrorResponseType;
 import io.jans.as.model.token.TokenErrorResponseType;
 import io.jans.as.model.token.TokenRevocationErrorResponseType;
 import io.jans.as.model.userinfo.UserInfoErrorResponseType;
-import io.jans.as.model.util.Util;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.model.ciba.BackchannelAuthenticationErrorResponseType;
 import io.jans.as.model.fido.u2f.U2fErrorResponseType;
 import io.jans.as.model.uma.UmaErrorResponseType;
@@ -165,8 +163,7 @@ public class ErrorResponseFactory implements Configuration {
         JsonErrorResponse jsonErrorResponse = new JsonErrorResponse(response);
 
         try {
-            final ObjectMapper mapper = Util.createJsonMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, false);
-            return mapper.writeValueAsString(jsonErrorResponse);
+            return JsonMappers.writerFor(jsonErrorResponse).writeValueAsString(jsonErrorResponse);
         } catch (IOException ex) {
             log.error("Failed to generate error response", ex);
             return null;
@@ -10,10 +10,10 @@ import java.io.IOException;
 import java.io.Serializable;
 
 import io.jans.as.model.util.Base64Util;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.model.fido.u2f.exception.BadInputException;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * FIDO U2F client data
@@ -37,7 +37,7 @@ public class ClientData implements Serializable {
 	public ClientData(String clientData) throws BadInputException {
 		this.rawClientData = new String(Base64Util.base64urldecode(clientData));
 		try {
-			this.data = new ObjectMapper().readTree(rawClientData);
+			this.data = JsonMappers.readerFor(JsonNode.class).readValue(rawClientData);
 			this.typ = getString(TYPE_PARAM);
 			this.challenge = getString(CHALLENGE_PARAM);
 			this.origin = getString(ORIGIN_PARAM);
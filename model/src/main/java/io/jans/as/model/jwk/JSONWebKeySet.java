@@ -8,10 +8,9 @@ package io.jans.as.model.jwk;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsonorg.JsonOrgModule;
 import io.jans.as.model.crypto.signature.AlgorithmFamily;
 import io.jans.as.model.crypto.signature.SignatureAlgorithm;
+import io.jans.as.model.util.JsonMappers;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -106,9 +105,7 @@ public class JSONWebKeySet {
     }
 
 	private String toPrettyJson(JSONObject jsonObject) throws JsonProcessingException {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.registerModule(new JsonOrgModule());
-		return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonObject);
+		return JsonMappers.jsonOrgPrettyWriter().writeValueAsString(jsonObject);
 	}
 
     public static JSONWebKeySet fromJSONObject(JSONObject jwksJSONObject) throws JSONException {
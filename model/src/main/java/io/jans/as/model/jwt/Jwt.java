@@ -51,6 +51,28 @@ public class Jwt extends JsonWebResponse {
         }
     }
 
+    /**
+     * Returns signing input as ASCII bytes. Header and claims are base64url encoded, so bytes are written
+     * directly without concatenated string and charset encoding.
+     */
+    public byte[] getSigningInputBytes() throws InvalidJwtException {
+        final String headerPart = loaded ? encodedHeader : header.toBase64JsonObject();
+        final String claimsPart = loaded ? encodedClaims : claims.toBase64JsonObject();
+
+        final byte[] bytes = new byte[headerPart.length() + 1 + claimsPart.length()];
+        int pos = writeAscii(headerPart, bytes, 0);
+        bytes[pos++] = '.';
+        writeAscii(claimsPart, bytes, pos);
+        return bytes;
+    }
+
+    private static int writeAscii(String str, byte[] target, int offset) {
+        for (int i = 0; i < str.length(); i++) {
+            target[offset++] = (byte) str.charAt(i);
+        }
+        return offset;
+    }
+
     public static Jwt parse(String encodedJwt) throws InvalidJwtException {
         if (StringUtils.isBlank(encodedJwt)) {
             return null;
@@ -0,0 +1,199 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.model.uma;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JsonLogic rule compiled into tree which is evaluated directly over boolean data (results of UMA scopes), without
+ * JavaScript engine and JSON serialization of rule and data.
+ * <p>
+ * Supported operations: "var" (by index), "and", "or", "!", "!!", "if" and boolean literals. It is what UMA
+ * scope expressions are built of. {@link #compile(JsonNode)} returns null for rule with any other operation, such
+ * rule has to be evaluated by {@link JsonLogic}.
+ */
+public abstract class JsonLogicExpression {
+
+    /**
+     * @param data data of rule, "var" N refers to data.get(N)
+     * @return result of rule (truthy value in terms of JsonLogic)
+     */
+    public abstract boolean evaluate(List<Boolean> data);
+
+    /**
+     * @return compiled rule or null if rule contains operation which is not supported
+     */
+    public static JsonLogicExpression compile(JsonNode rule) {
+        if (rule == null || rule.isNull()) {
+            return null;
+        }
+        if (rule.isBoolean()) {
+            return new Literal(rule.booleanValue());
+        }
+        if (!rule.isObject() || rule.size() != 1) {
+            return null;
+        }
+
+        final Map.Entry<String, JsonNode> operation = rule.fields().next();
+        final JsonNode args = operation.getValue();
+        switch (operation.getKey()) {
+            case "var":
+                return compileVar(args);
+            case "and":
+                return compileArgs(args, Operator.AND);
+            case "or":
+                return compileArgs(args, Operator.OR);
+            case "!":
+                return compileArgs(args, Operator.NOT);
+            case "!!":
+                return compileArgs(args, Operator.NOT_NOT);
+            case "if":
+            case "?:":
+                return compileArgs(args, Operator.IF);
+            default:
+                return null;
+        }
+    }
+
+    private static JsonLogicExpression compileVar(JsonNode args) {
+        JsonNode index = args;
+        Boolean defaultValue = null;
+        if (args.isArray()) {
+            if (args.size() == 0 || args.size() > 2) {
+                return null;
+            }
+            index = args.get(0);
+            if (args.size() == 2) {
+                if (!args.get(1).isBoolean()) {
+                    return null;
+                }
+                defaultValue = args.get(1).booleanValue();
+            }
+        }
+
+        final int i;
+        if (index.isInt()) {
+            i = index.intValue();
+        } else if (index.isTextual() && index.textValue().matches("\\d+")) {
+            i = Integer.parseInt(index.textValue());
+        } else {
+            return null;
+        }
+        return new Var(i, defaultValue != null && defaultValue);
+    }
+
+    private static JsonLogicExpression compileArgs(JsonNode args, Operator operator) {
+        final List<JsonLogicExpression> operands = new ArrayList<>();
+        if (args.isArray()) {
+            for (Iterator<JsonNode> it = args.elements(); it.hasNext(); ) {
+                final JsonLogicExpression operand = compile(it.next());
+                if (operand == null) {
+                    return null;
+                }
+                operands.add(operand);
+            }
+        } else {
+            final JsonLogicExpression operand = compile(args); // unary operation may have argument without array
+            if (operand == null) {
+                return null;
+            }
+            operands.add(operand);
+        }
+
+        if (operands.isEmpty() || (operator == Operator.IF && operands.size() % 2 == 0)) {
+            return null; // "if" with even number of args returns null in JsonLogic, leave such rules to JsonLogic
+        }
+        return new Operation(operator, operands.toArray(new JsonLogicExpression[0]));
+    }
+
+    private enum Operator {
+        AND, OR, NOT, NOT_NOT, IF
+    }
+
+    private static class Literal extends JsonLogicExpression {
+
+        private final boolean value;
+
+        private Literal(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean evaluate(List<Boolean> data) {
+            return value;
+        }
+    }
+
+    private static class Var extends JsonLogicExpression {
+
+        private final int index;
+        private final boolean defaultValue;
+
+        private Var(int index, boolean defaultValue) {
+            this.index = index;
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        public boolean evaluate(List<Boolean> data) {
+            if (data == null || index >= data.size() || data.get(index) == null) {
+                return defaultValue;
+            }
+            return data.get(index);
+        }
+    }
+
+    private static class Operation extends JsonLogicExpression {
+
+        private final Operator operator;
+        private final JsonLogicExpression[] operands;
+
+        private Operation(Operator operator, JsonLogicExpression[] operands) {
+            this.operator = operator;
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean evaluate(List<Boolean> data) {
+            switch (operator) {
+                case AND:
+                    for (JsonLogicExpression operand : operands) {
+                        if (!operand.evaluate(data)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                case OR:
+                    for (JsonLogicExpression operand : operands) {
+                        if (operand.evaluate(data)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case NOT:
+                    return !operands[0].evaluate(data);
+                case NOT_NOT:
+                    return operands[0].evaluate(data);
+                case IF:
+                    int i = 0;
+                    for (; i < operands.length - 1; i += 2) {
+                        if (operands[i].evaluate(data)) {
+                            return operands[i + 1].evaluate(data);
+                        }
+                    }
+                    return operands[i].evaluate(data);
+                default:
+                    throw new IllegalStateException("Unknown operator: " + operator);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.model.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsonorg.JsonOrgModule;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared JSON mappers. Mappers are configured once here and never changed afterwards, callers get immutable (thus
+ * thread-safe) readers/writers, which are cached per type.
+ * <p>
+ * Use {@link Util#createJsonMapper()} only if mapper has to be configured differently.
+ */
+public class JsonMappers {
+
+    private static final ObjectMapper MAPPER = Util.createJsonMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, false);
+    private static final ObjectMapper NON_EMPTY_MAPPER = Util.createJsonMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, false)
+            .setDefaultPropertyInclusion(Include.NON_EMPTY);
+    private static final ObjectMapper JSON_ORG_MAPPER = new ObjectMapper().registerModule(new JsonOrgModule());
+
+    private static final ObjectWriter PRETTY_WRITER = MAPPER.writerWithDefaultPrettyPrinter();
+    private static final ObjectWriter NON_EMPTY_PRETTY_WRITER = NON_EMPTY_MAPPER.writerWithDefaultPrettyPrinter();
+    private static final ObjectWriter JSON_ORG_PRETTY_WRITER = JSON_ORG_MAPPER.writerWithDefaultPrettyPrinter();
+
+    private static final ConcurrentMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ObjectWriter> NON_EMPTY_WRITERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ObjectReader> UNWRAP_ROOT_READERS = new ConcurrentHashMap<>();
+
+    private JsonMappers() {
+    }
+
+    /**
+     * @return writer for type of given value (JSONObject/JSONArray are written with json-org module)
+     */
+    public static ObjectWriter writerFor(Object value) {
+        if (value instanceof JSONObject || value instanceof JSONArray) {
+            return JSON_ORG_MAPPER.writer();
+        }
+        return value != null ? WRITERS.computeIfAbsent(value.getClass(), MAPPER::writerFor) : MAPPER.writer();
+    }
+
+    /**
+     * @return writer for type of given value which skips null and empty properties
+     */
+    public static ObjectWriter nonEmptyWriterFor(Object value) {
+        return value != null ? NON_EMPTY_WRITERS.computeIfAbsent(value.getClass(), NON_EMPTY_MAPPER::writerFor) : NON_EMPTY_MAPPER.writer();
+    }
+
+    public static ObjectWriter prettyWriter() {
+        return PRETTY_WRITER;
+    }
+
+    public static ObjectWriter nonEmptyPrettyWriter() {
+        return NON_EMPTY_PRETTY_WRITER;
+    }
+
+    public static ObjectWriter jsonOrgPrettyWriter() {
+        return JSON_ORG_PRETTY_WRITER;
+    }
+
+    public static ObjectReader readerFor(Class<?> type) {
+        return READERS.computeIfAbsent(type, MAPPER::readerFor);
+    }
+
+    public static ObjectReader unwrapRootReaderFor(Class<?> type) {
+        return UNWRAP_ROOT_READERS.computeIfAbsent(type, t -> MAPPER.readerFor(t).with(DeserializationFeature.UNWRAP_ROOT_VALUE));
+    }
+
+    /**
+     * Converts object to JSONObject without writing it to string and parsing back.
+     */
+    public static JSONObject toJSONObject(Object value) {
+        return JSON_ORG_MAPPER.convertValue(value, JSONObject.class);
+    }
+
+    /**
+     * @return entity which writes value directly to response output stream (JSONObject/JSONArray are written by
+     * their own write(Writer), so output is the same as of toString())
+     */
+    public static StreamingOutput streamingOutput(Object value) {
+        if (value instanceof JSONObject || value instanceof JSONArray) {
+            return output -> {
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                if (value instanceof JSONObject) {
+                    ((JSONObject) value).write(writer);
+                } else {
+                    ((JSONArray) value).write(writer);
+                }
+                writer.flush(); // stream is closed by container
+            };
+        }
+        return streamingOutput(writerFor(value), value);
+    }
+
+    /**
+     * @return entity which writes value with given writer directly to response output stream
+     */
+    public static StreamingOutput streamingOutput(ObjectWriter writer, Object value) {
+        final ObjectWriter streamWriter = writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // stream is closed by container
+        return output -> streamWriter.writeValue(output, value);
+    }
+}
@@ -43,6 +43,8 @@ public class JwtUtil {
 
     private static final Logger log = Logger.getLogger(JwtUtil.class);
 
+    private static final ObjectMapper JSON_ORG_MAPPER = new ObjectMapper().registerModule(new JsonOrgModule());
+
     public static void printAlgorithmsAndProviders() {
         Set<String> algorithms = Security.getAlgorithms("Signature");
         for (String algorithm : algorithms) {
@@ -245,9 +247,7 @@ public class JwtUtil {
     }
 
 	public static JSONObject fromJson(String json) throws IOException {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.registerModule(new JsonOrgModule());
-		return mapper.readValue(json, JSONObject.class);
+		return JSON_ORG_MAPPER.readValue(json, JSONObject.class);
 	}
 
 	public static void transferIntoJwtClaims(JSONObject jsonObject, Jwt jwt) {
@@ -6,10 +6,8 @@
 
 package io.jans.as.model.util;
 
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.AnnotationIntrospector;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
 import io.jans.as.model.common.HasParamName;
@@ -63,15 +61,11 @@ public class Util {
     }
 
     public static String asPrettyJson(Object p_object) throws IOException {
-        final ObjectMapper mapper = createJsonMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, false);
-        mapper.setDefaultPropertyInclusion(Include.NON_EMPTY);
-        return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(p_object);
+        return JsonMappers.nonEmptyPrettyWriter().writeValueAsString(p_object);
     }
 
     public static String asJson(Object p_object) throws IOException {
-        final ObjectMapper mapper = createJsonMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, false);
-        mapper.setDefaultPropertyInclusion(Include.NON_EMPTY);
-        return mapper.writeValueAsString(p_object);
+        return JsonMappers.nonEmptyWriterFor(p_object).writeValueAsString(p_object);
     }
 
     public static byte[] getBytes(String p_str) throws UnsupportedEncodingException {
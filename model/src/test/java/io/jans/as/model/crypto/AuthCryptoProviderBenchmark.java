@@ -0,0 +1,88 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.model.crypto;
+
+import io.jans.as.model.crypto.signature.SignatureAlgorithm;
+import io.jans.as.model.jwk.Algorithm;
+import io.jans.as.model.jwk.Use;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.security.Security;
+
+import static io.jans.as.model.jwk.JWKParameter.KEY_ID;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Compares sign throughput of {@link AuthCryptoProvider} with and without resolved key cache.
+ * Run with -Dbenchmark (testng-benchmark.xml).
+ */
+public class AuthCryptoProviderBenchmark {
+
+    private static final int WARM_UP = 500;
+    private static final int ITERATIONS = 5000;
+    private static final String SIGNING_INPUT = "eyJraWQiOiJrZXkiLCJ0eXAiOiJKV1QiLCJhbGciOiJSUzI1NiJ9.eyJzdWIiOiJiZW5jaG1hcmsifQ";
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private File keyStoreFile;
+    private AuthCryptoProvider cryptoProvider;
+    private String kid;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        keyStoreFile = File.createTempFile("benchmark", ".jks");
+        keyStoreFile.delete();
+
+        cryptoProvider = new AuthCryptoProvider(keyStoreFile.getAbsolutePath(), "secret", "CN=Jans Auth CA Certificates");
+        kid = cryptoProvider.generateKey(Algorithm.RS256, System.currentTimeMillis() + 24 * 3600 * 1000L, Use.SIGNATURE).getString(KEY_ID);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        keyStoreFile.delete();
+    }
+
+    @Test
+    public void signWithKeyCache() throws Exception {
+        run("signWithKeyCache", false);
+    }
+
+    @Test
+    public void signWithoutKeyCache() throws Exception {
+        run("signWithoutKeyCache", true);
+    }
+
+    private void run(String name, boolean clearCache) throws Exception {
+        final String expected = cryptoProvider.sign(SIGNING_INPUT, kid, null, SignatureAlgorithm.RS256);
+        for (int i = 0; i < WARM_UP; i++) {
+            sign(clearCache);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(sign(clearCache), expected);
+        }
+        final long takes = System.nanoTime() - start;
+
+        Reporter.log("BENCHMARK REPORT | Method: '" + name + "' | Invoked: " + ITERATIONS + " | Takes: " + takes / 1000000 + "ms"
+                + " | Throughput: " + (ITERATIONS * 1000000000L / takes) + " ops/s", true);
+    }
+
+    private String sign(boolean clearCache) throws Exception {
+        if (clearCache) {
+            cryptoProvider.clearKeyCache();
+        }
+        return cryptoProvider.sign(SIGNING_INPUT, kid, null, SignatureAlgorithm.RS256);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.model.crypto;
+
+import io.jans.as.model.jwk.Algorithm;
+import io.jans.as.model.jwk.Use;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.security.Security;
+import java.security.cert.Certificate;
+
+import static io.jans.as.model.jwk.JWKParameter.KEY_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+public class AuthCryptoProviderTest {
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private File keyStoreFile;
+    private AuthCryptoProvider cryptoProvider;
+    private String kid;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        keyStoreFile = File.createTempFile("test", ".jks");
+        keyStoreFile.delete();
+
+        cryptoProvider = new AuthCryptoProvider(keyStoreFile.getAbsolutePath(), "secret", "CN=Jans Auth CA Certificates");
+        kid = cryptoProvider.generateKey(Algorithm.RS256, System.currentTimeMillis() + 24 * 3600 * 1000L, Use.SIGNATURE).getString(KEY_ID);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        keyStoreFile.delete();
+    }
+
+    @Test
+    public void getPublicKey_withPrivateKeyEntry_shouldReturnPublicKey() {
+        assertNotNull(cryptoProvider.getPublicKey(kid));
+    }
+
+    @Test
+    public void getPublicKey_withCertificateOnlyEntry_shouldReturnPublicKeyOfCertificate() throws Exception {
+        final Certificate certificate = cryptoProvider.getKeyStore().getCertificate(kid);
+        cryptoProvider.getKeyStore().setCertificateEntry("imported_cert", certificate);
+
+        assertEquals(cryptoProvider.getPublicKey("imported_cert"), certificate.getPublicKey());
+        assertEquals(cryptoProvider.getPublicKey("imported_cert"), certificate.getPublicKey()); // second call after cache lookup
+        assertNull(cryptoProvider.getPrivateKey("imported_cert"));
+    }
+
+    @Test
+    public void getPublicKey_withUnknownAlias_shouldReturnNull() {
+        assertNull(cryptoProvider.getPublicKey("unknown_alias"));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.model.crypto;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class SignatureEngineCacheTest {
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private static final byte[] INPUT = "eyJhbGciOiJSUzI1NiJ9.eyJzdWIiOiJ0ZXN0In0".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void reusedSignerProducesVerifiableSignatures() throws Exception {
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", "BC");
+        keyGen.initialize(2048);
+        KeyPair keyPair = keyGen.generateKeyPair();
+
+        for (int i = 0; i < 3; i++) {
+            byte[] signature = SignatureEngineCache.sign("SHA256WITHRSA", keyPair.getPrivate(), INPUT);
+            assertTrue(SignatureEngineCache.verify("SHA256WITHRSA", keyPair.getPublic(), INPUT, signature));
+            assertFalse(SignatureEngineCache.verify("SHA256WITHRSA", keyPair.getPublic(), "other".getBytes(StandardCharsets.UTF_8), signature));
+        }
+    }
+
+    @Test
+    public void macIsStable() throws Exception {
+        byte[] first = SignatureEngineCache.mac("HMACSHA256", "secret", INPUT);
+        byte[] second = SignatureEngineCache.mac("HMACSHA256", "secret", INPUT);
+        byte[] otherSecret = SignatureEngineCache.mac("HMACSHA256", "other_secret", INPUT);
+
+        assertEquals(first, second);
+        assertFalse(Arrays.equals(first, otherSecret));
+    }
+}
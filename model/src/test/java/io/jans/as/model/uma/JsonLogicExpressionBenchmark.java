@@ -0,0 +1,74 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.model.uma;
+
+import io.jans.as.model.util.Util;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static io.jans.as.model.uma.JsonLogicExpressionTest.DEEP_RULE;
+import static io.jans.as.model.uma.JsonLogicExpressionTest.NESTED_RULE;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Compares evaluation of UMA scope expression by JsonLogic (parse of expression and JSON round trip on each call, as
+ * it was done before) with compiled {@link JsonLogicExpression}. Run with -Dbenchmark (testng-benchmark.xml).
+ */
+public class JsonLogicExpressionBenchmark {
+
+    private static final int WARM_UP = 500;
+    private static final int ITERATIONS = 5000;
+
+    @Test
+    public void nestedRuleByJsonLogic() throws Exception {
+        run("nestedRuleByJsonLogic", NESTED_RULE, 3, false);
+    }
+
+    @Test
+    public void nestedRuleCompiled() throws Exception {
+        run("nestedRuleCompiled", NESTED_RULE, 3, true);
+    }
+
+    @Test
+    public void deepRuleByJsonLogic() throws Exception {
+        run("deepRuleByJsonLogic", DEEP_RULE, 6, false);
+    }
+
+    @Test
+    public void deepRuleCompiled() throws Exception {
+        run("deepRuleCompiled", DEEP_RULE, 6, true);
+    }
+
+    private static void run(String name, String rule, int dataSize, boolean compiled) throws Exception {
+        final String expression = "{\"rule\": " + rule + ", \"data\": []}";
+        final JsonLogicExpression compiledRule = JsonLogicExpression.compile(JsonLogicNodeParser.parseNode(expression).getRule());
+
+        for (int i = 0; i < WARM_UP; i++) {
+            evaluate(expression, compiledRule, JsonLogicExpressionTest.data(i, dataSize), compiled);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final List<Boolean> data = JsonLogicExpressionTest.data(i, dataSize);
+            assertEquals(evaluate(expression, compiledRule, data, compiled), compiledRule.evaluate(data));
+        }
+        final long takes = System.nanoTime() - start;
+
+        Reporter.log("BENCHMARK REPORT | Method: '" + name + "' | Invoked: " + ITERATIONS + " | Takes: " + takes / 1000000 + "ms"
+                + " | Throughput: " + (ITERATIONS * 1000000000L / takes) + " ops/s", true);
+    }
+
+    private static boolean evaluate(String expression, JsonLogicExpression compiledRule, List<Boolean> data, boolean compiled) throws Exception {
+        if (compiled) {
+            return compiledRule.evaluate(data);
+        }
+        final JsonLogicNode node = JsonLogicNodeParser.parseNode(expression);
+        return JsonLogic.apply(node.getRule().toString(), Util.asJsonSilently(data));
+    }
+}
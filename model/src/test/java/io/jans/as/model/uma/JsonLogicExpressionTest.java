@@ -0,0 +1,60 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.model.uma;
+
+import io.jans.as.model.util.Util;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Checks that compiled rule gives the same result as JsonLogic for all combinations of data.
+ */
+public class JsonLogicExpressionTest {
+
+    static final String NESTED_RULE = "{\"and\": [{\"or\": [{\"var\": 0}, {\"var\": 1}]}, {\"var\": 2}]}";
+    static final String DEEP_RULE = "{\"or\": [{\"and\": [{\"var\": 0}, {\"!\": {\"var\": 1}}]}, {\"and\": [{\"var\": \"2\"}, {\"!!\": [{\"var\": 3}]}]}, {\"if\": [{\"var\": 4}, {\"var\": 5}, false]}]}";
+
+    @Test
+    public void nestedRule_shouldMatchJsonLogic() throws Exception {
+        assertSameAsJsonLogic(NESTED_RULE, 3);
+    }
+
+    @Test
+    public void deepRule_shouldMatchJsonLogic() throws Exception {
+        assertSameAsJsonLogic(DEEP_RULE, 6);
+    }
+
+    @Test
+    public void compile_withUnsupportedOperation_shouldReturnNull() throws Exception {
+        assertNull(JsonLogicExpression.compile(Util.createJsonMapper().readTree("{\"and\": [{\"var\": 0}, {\"==\": [1, 1]}]}")));
+        assertNull(JsonLogicExpression.compile(Util.createJsonMapper().readTree("{\"var\": \"a.b\"}")));
+    }
+
+    private static void assertSameAsJsonLogic(String rule, int dataSize) throws Exception {
+        final JsonLogicExpression expression = JsonLogicExpression.compile(Util.createJsonMapper().readTree(rule));
+        assertNotNull(expression);
+
+        for (int mask = 0; mask < (1 << dataSize); mask++) {
+            final List<Boolean> data = data(mask, dataSize);
+            assertEquals(expression.evaluate(data), JsonLogic.apply(rule, Util.asJsonSilently(data)), "Data: " + data);
+        }
+    }
+
+    static List<Boolean> data(int mask, int dataSize) {
+        final List<Boolean> data = new ArrayList<>();
+        for (int i = 0; i < dataSize; i++) {
+            data.add((mask & (1 << i)) != 0);
+        }
+        return data;
+    }
+}
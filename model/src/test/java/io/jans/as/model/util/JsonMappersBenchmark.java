@@ -0,0 +1,87 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.model.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.jans.as.model.common.IntrospectionResponse;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Compares throughput and allocation of serialization with mapper created per call (as it was done before) and with
+ * shared {@link JsonMappers} writer. Run with -Dbenchmark (testng-benchmark.xml).
+ */
+public class JsonMappersBenchmark {
+
+    private static final int WARM_UP = 2000;
+    private static final int ITERATIONS = 20000;
+
+    @Test
+    public void serializeWithNewMapper() throws Exception {
+        run("serializeWithNewMapper", false);
+    }
+
+    @Test
+    public void serializeWithSharedWriter() throws Exception {
+        run("serializeWithSharedWriter", true);
+    }
+
+    private void run(String name, boolean shared) throws Exception {
+        final IntrospectionResponse response = newResponse();
+        final String expected = serialize(response, false);
+        for (int i = 0; i < WARM_UP; i++) {
+            serialize(response, shared);
+        }
+
+        final java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final long allocatedBefore = allocatedBytes(threadBean);
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(serialize(response, shared), expected);
+        }
+        final long takes = System.nanoTime() - start;
+        final long allocated = allocatedBytes(threadBean) - allocatedBefore;
+
+        Reporter.log("BENCHMARK REPORT | Method: '" + name + "' | Invoked: " + ITERATIONS + " | Takes: " + takes / 1000000 + "ms"
+                + " | Throughput: " + (ITERATIONS * 1000000000L / takes) + " ops/s"
+                + " | Allocated: " + (allocated >= 0 ? allocated / ITERATIONS + " bytes/op" : "n/a"), true);
+    }
+
+    private static long allocatedBytes(java.lang.management.ThreadMXBean threadBean) {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static String serialize(IntrospectionResponse response, boolean shared) throws Exception {
+        if (shared) {
+            return JsonMappers.writerFor(response).writeValueAsString(response);
+        }
+        final ObjectMapper mapper = Util.createJsonMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, false);
+        return mapper.writeValueAsString(response);
+    }
+
+    private static IntrospectionResponse newResponse() {
+        final IntrospectionResponse response = new IntrospectionResponse(true);
+        response.setScope(Arrays.asList("openid", "profile", "email"));
+        response.setClientId("1201.d3a2c4f8-1c4e-4ec2-b1a3-5f2a3c6d7e8f");
+        response.setUsername("admin");
+        response.setTokenType("Bearer");
+        response.setSub("FJ2u2f9M7p0yPCHM8V2qZxGZ0GQ");
+        response.setIssuer("https://jans.example.org");
+        response.setExpiresAt(1700000300);
+        response.setIssuedAt(1700000000);
+        return response;
+    }
+}
@@ -6,17 +6,21 @@
 
 package io.jans.as.server.audit;
 
+import com.codahale.metrics.Gauge;
 import com.google.common.base.Objects;
 import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.server.model.audit.OAuth2AuditLog;
+import io.jans.as.server.model.config.ConfigurationFactory;
+import io.jans.as.server.service.MetricService;
 import io.jans.as.server.util.ServerUtil;
-import io.jans.service.cdi.async.Asynchronous;
 import io.jans.service.cdi.event.ConfigurationUpdate;
 import io.jans.util.StringHelper;
 import org.apache.activemq.ActiveMQConnectionFactory;
 import org.apache.activemq.pool.PooledConnectionFactory;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.BooleanUtils;
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 
 import javax.annotation.PostConstruct;
@@ -26,29 +30,63 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.jms.*;
+import java.io.File;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Audit log pipeline. Request threads only enqueue audit log into bounded queue (never block), dedicated consumer
+ * thread sends queued logs in batches to JMS (one session per batch) or writes them to log file if JMS is not
+ * configured.
+ * <p>
+ * If broker is not available, audit logs are appended to local spool file ({@link AuditLogSpool}), which is replayed
+ * when broker is available again. If queue is full, audit log is handed over to consumer thread via bounded overflow
+ * queue (consumer spools it), request thread never writes spool. Audit log is dropped (and counted) only if overflow
+ * queue is full too.
+ * <p>
+ * Default spool file is per instance (host) file in logs/audit of server base directory. If spool file is changed by
+ * configuration, not replayed audit logs of previous spool file are moved to new one.
+ */
 @Named
 @ApplicationScoped
 @DependsOn("appInitializer")
 public class ApplicationAuditLogger {
 
+	public static final String QUEUE_DEPTH_GAUGE = "audit_log_queue_depth";
+	public static final String FLUSH_LATENCY_TIMER = "audit_log_flush_latency";
+	public static final String OVERFLOW_COUNTER = "audit_log_overflow";
+	public static final String SPOOLED_COUNTER = "audit_log_spooled";
+	public static final String DROPPED_COUNTER = "audit_log_dropped";
+
+	private static final int MAX_BATCH_SIZE = 500;
+	private static final long POLL_TIMEOUT_IN_MILLIS = 1000;
+	private static final long RETRY_INTERVAL_IN_MILLIS = 30000; // broker is not called meanwhile, logs go to spool
+	private static final String DEFAULT_SPOOL_DIR = "logs" + File.separator + "audit";
+	private static final String INSTANCE_ID = instanceId();
+
 	@Inject
 	private Logger log;
 
 	@Inject
 	private AppConfiguration appConfiguration;
 
+	@Inject
+	private MetricService metricService;
+
 	private final String BROKER_URL_PREFIX = "failover:(";
 	private final String BROKER_URL_SUFFIX = ")?timeout=5000&jms.useAsyncSend=true";
-	private final int ACK_MODE = Session.AUTO_ACKNOWLEDGE;
 	private final String CLIENT_QUEUE_NAME = "oauth2.audit.logging";
-	private final boolean transacted = false;
 
 	private volatile PooledConnectionFactory pooledConnectionFactory;
 
@@ -58,12 +96,30 @@ public class ApplicationAuditLogger {
 
 	private final ReentrantLock lock = new ReentrantLock();
 
-	private boolean enabled;
-	private boolean sendAuditJms;
+	private volatile boolean enabled;
+	private volatile boolean sendAuditJms;
+
+	private BlockingQueue<OAuth2AuditLog> queue;
+	private BlockingQueue<OAuth2AuditLog> overflowQueue;
+	private volatile AuditLogSpool spool;
+	private final Queue<AuditLogSpool> previousSpools = new ConcurrentLinkedQueue<>();
+	private long migrateRetryAfter; // accessed only by consumer thread
+	private Thread consumer;
+	private volatile boolean running;
+	private long retryAfter; // accessed only by consumer thread
+
+	private volatile boolean gaugeRegistered;
 
 	@PostConstruct
 	public void init() {
+		queue = new ArrayBlockingQueue<>(Math.max(1, appConfiguration.getAuditLogQueueCapacity()));
+		overflowQueue = new ArrayBlockingQueue<>(Math.max(1, appConfiguration.getAuditLogQueueCapacity()));
 		updateConfiguration(appConfiguration);
+
+		running = true;
+		consumer = ServerUtil.daemonThreadFactory().newThread(this::consume);
+		consumer.setName("audit-log-consumer");
+		consumer.start();
 	}
 
 	public void updateConfiguration(@Observes @ConfigurationUpdate AppConfiguration appConfiguration) {
@@ -72,35 +128,68 @@ public class ApplicationAuditLogger {
 				&& StringHelper.isNotEmpty(appConfiguration.getJmsPassword())
 				&& CollectionUtils.isNotEmpty(appConfiguration.getJmsBrokerURISet());
 
+		final File spoolFile = spoolFile(appConfiguration);
+		if (spool == null || !spool.getFile().equals(spoolFile)) {
+			if (spool != null) {
+				previousSpools.add(spool); // consumer moves not replayed audit logs to new spool
+			}
+			spool = new AuditLogSpool(spoolFile);
+		}
+
 		boolean configChanged = !Objects.equal(this.jmsUserName, appConfiguration.getJmsUserName())
 				|| !Objects.equal(this.jmsPassword, appConfiguration.getJmsPassword())
 				|| !Objects.equal(this.jmsBrokerURISet, appConfiguration.getJmsBrokerURISet());
 
 		if (configChanged) {
-			destroy();
+			closeConnectionFactory();
 		}
 	}
 
-	@Asynchronous
+	/**
+	 * Queues audit log and returns immediately (no I/O is done on calling thread).
+	 */
 	public void sendMessage(OAuth2AuditLog oAuth2AuditLog) {
 		if (!enabled) {
 			return;
 		}
 
-		boolean messageDelivered = false;
-		if (sendAuditJms) {
-			if (tryToEstablishJMSConnection()) {
-				messageDelivered = loggingThroughJMS(oAuth2AuditLog);
+		registerGauge();
+		if (!queue.offer(oAuth2AuditLog)) {
+			metricService.incCounter(OVERFLOW_COUNTER, 1);
+			if (!overflowQueue.offer(oAuth2AuditLog)) {
+				metricService.incCounter(DROPPED_COUNTER, 1);
+				log.trace("Audit log queue and overflow queue are full, audit log is dropped.");
 			}
 		}
-
-		if (!messageDelivered) {
-			loggingThroughFile(oAuth2AuditLog);
-		}
 	}
 
 	@PreDestroy
 	public void destroy() {
+		running = false;
+		if (consumer != null) {
+			consumer.interrupt();
+			try {
+				consumer.join(TimeUnit.SECONDS.toMillis(10));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		// consumer is stopped, keep what is left in queues
+		migrateSpools();
+		final List<OAuth2AuditLog> rest = new ArrayList<>();
+		queue.drainTo(rest);
+		overflowQueue.drainTo(rest);
+		if (sendAuditJms) {
+			spool(rest);
+		} else {
+			rest.forEach(this::loggingThroughFile);
+		}
+
+		closeConnectionFactory();
+	}
+
+	private void closeConnectionFactory() {
 		if (this.pooledConnectionFactory == null) {
 			return;
 		}
@@ -109,6 +198,162 @@ public class ApplicationAuditLogger {
 		this.pooledConnectionFactory = null;
 	}
 
+	private void consume() {
+		final List<OAuth2AuditLog> batch = new ArrayList<>(MAX_BATCH_SIZE);
+		while (running) {
+			try {
+				migrateSpoolsIfNeeded();
+				spoolOverflow();
+
+				final OAuth2AuditLog first = queue.poll(POLL_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					replaySpoolIfNeeded(); // idle
+					continue;
+				}
+
+				batch.add(first);
+				queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+				flush(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (Exception e) {
+				log.error("Failed to process audit logs", e);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void flush(List<OAuth2AuditLog> batch) {
+		final long start = System.nanoTime();
+		try {
+			if (!sendAuditJms) {
+				batch.forEach(this::loggingThroughFile);
+				return;
+			}
+
+			if (!isBrokerAvailable()) {
+				spool(batch);
+				return;
+			}
+
+			final List<String> messages = asJson(batch);
+			try {
+				final AuditLogJmsSender sender = new AuditLogJmsSender(pooledConnectionFactory, CLIENT_QUEUE_NAME);
+				spool.replay(sender, MAX_BATCH_SIZE); // spooled logs go first
+				sender.send(messages);
+			} catch (Exception e) {
+				log.error("Can't send audit logs, please check your activeMQ configuration. Logs are written to spool " + spool.getFile(), e);
+				retryAfter = System.currentTimeMillis() + RETRY_INTERVAL_IN_MILLIS;
+				spoolMessages(messages);
+			}
+		} finally {
+			metricService.updateTimer(FLUSH_LATENCY_TIMER, System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Audit logs which did not fit into queue go to spool (or log file) from consumer thread, so request thread is
+	 * never blocked by I/O.
+	 */
+	private void spoolOverflow() {
+		if (overflowQueue.isEmpty()) {
+			return;
+		}
+
+		final List<OAuth2AuditLog> overflow = new ArrayList<>();
+		overflowQueue.drainTo(overflow);
+		if (sendAuditJms) {
+			spool(overflow);
+		} else {
+			overflow.forEach(this::loggingThroughFile);
+		}
+	}
+
+	private void migrateSpoolsIfNeeded() {
+		if (!previousSpools.isEmpty() && System.currentTimeMillis() >= migrateRetryAfter) {
+			migrateSpools();
+		}
+	}
+
+	private void migrateSpools() {
+		AuditLogSpool previous;
+		while ((previous = previousSpools.peek()) != null) {
+			final AuditLogSpool current = spool;
+			if (previous == current) { // spool file is changed back
+				previousSpools.poll();
+				continue;
+			}
+
+			try {
+				final int moved = previous.migrateTo(current, MAX_BATCH_SIZE);
+				previousSpools.poll();
+				log.debug("Moved {} audit log(s) from spool {} to {}", moved, previous.getFile(), current.getFile());
+			} catch (IOException e) {
+				log.error("Can't move audit logs from spool " + previous.getFile() + " to " + current.getFile() + ", will retry", e);
+				migrateRetryAfter = System.currentTimeMillis() + RETRY_INTERVAL_IN_MILLIS;
+				return;
+			}
+		}
+	}
+
+	private void replaySpoolIfNeeded() {
+		if (!sendAuditJms || spool.isEmpty() || !isBrokerAvailable()) {
+			return;
+		}
+
+		try {
+			final int sent = spool.replay(new AuditLogJmsSender(pooledConnectionFactory, CLIENT_QUEUE_NAME), MAX_BATCH_SIZE);
+			log.debug("Replayed {} audit log(s) from spool.", sent);
+		} catch (Exception e) {
+			log.error("Can't replay audit logs from spool " + spool.getFile(), e);
+			retryAfter = System.currentTimeMillis() + RETRY_INTERVAL_IN_MILLIS;
+		}
+	}
+
+	private boolean isBrokerAvailable() {
+		return System.currentTimeMillis() >= retryAfter && tryToEstablishJMSConnection();
+	}
+
+	private void spool(List<OAuth2AuditLog> oAuth2AuditLogs) {
+		spoolMessages(asJson(oAuth2AuditLogs));
+	}
+
+	private List<String> asJson(List<OAuth2AuditLog> oAuth2AuditLogs) {
+		final List<String> messages = new ArrayList<>(oAuth2AuditLogs.size());
+		for (OAuth2AuditLog oAuth2AuditLog : oAuth2AuditLogs) {
+			try {
+				// one line, spool is line based
+				messages.add(JsonMappers.writerFor(oAuth2AuditLog).writeValueAsString(oAuth2AuditLog));
+			} catch (IOException e) {
+				metricService.incCounter(DROPPED_COUNTER, 1);
+				log.error("Can't serialize the audit log", e);
+			}
+		}
+		return messages;
+	}
+
+	private void spoolMessages(List<String> messages) {
+		if (messages.isEmpty()) {
+			return;
+		}
+
+		try {
+			spool.append(messages);
+			metricService.incCounter(SPOOLED_COUNTER, messages.size());
+		} catch (IOException e) {
+			metricService.incCounter(DROPPED_COUNTER, messages.size());
+			log.error("Can't write audit logs to spool " + spool.getFile() + ", " + messages.size() + " audit log(s) are dropped", e);
+		}
+	}
+
+	private void registerGauge() {
+		if (!gaugeRegistered) {
+			gaugeRegistered = metricService.registerGauge(QUEUE_DEPTH_GAUGE, (Gauge<Integer>) () -> queue.size());
+		}
+	}
+
 	private boolean tryToEstablishJMSConnection() {
 		if (this.pooledConnectionFactory != null) {
 			return true;
@@ -161,47 +406,31 @@ public class ApplicationAuditLogger {
 		return true;
 	}
 
-	private boolean loggingThroughJMS(OAuth2AuditLog oAuth2AuditLog) {
-		QueueConnection connection = null;
+	private void loggingThroughFile(OAuth2AuditLog oAuth2AuditLog) {
 		try {
-			connection = pooledConnectionFactory.createQueueConnection();
-			connection.start();
-
-			QueueSession session = connection.createQueueSession(transacted, ACK_MODE);
-			MessageProducer producer = session.createProducer(session.createQueue(CLIENT_QUEUE_NAME));
-
-			TextMessage txtMessage = session.createTextMessage();
-			txtMessage.setText(ServerUtil.asPrettyJson(oAuth2AuditLog));
-			producer.send(txtMessage);
-			
-			return true;
-		} catch (JMSException e) {
-			log.error("Can't send message", e);
+			log.info(ServerUtil.asPrettyJson(oAuth2AuditLog));
 		} catch (IOException e) {
 			log.error("Can't serialize the audit log", e);
-		} catch (Exception e) {
-			log.error("Can't send message, please check your activeMQ configuration.", e);
-		} finally {
-			if (connection == null) {
-				return false;
-			}
+		}
+	}
 
-			try {
-				connection.close();
-			} catch (JMSException e) {
-				log.error("Can't close connection.");
-			}
+	private static File spoolFile(AppConfiguration appConfiguration) {
+		if (StringUtils.isNotBlank(appConfiguration.getAuditLogSpoolFile())) {
+			return new File(appConfiguration.getAuditLogSpoolFile());
 		}
-		
-		return false;
+		final String baseDir = ConfigurationFactory.getBaseDir();
+		final File dir = baseDir != null ? new File(baseDir, DEFAULT_SPOOL_DIR) : new File(DEFAULT_SPOOL_DIR);
+		return new File(dir, "jans-auth-audit-" + INSTANCE_ID + ".spool");
 	}
 
-	private void loggingThroughFile(OAuth2AuditLog oAuth2AuditLog) {
+	/**
+	 * @return host name, so default spool is not shared by instances with same base directory and is found again after restart
+	 */
+	private static String instanceId() {
 		try {
-			log.info(ServerUtil.asPrettyJson(oAuth2AuditLog));
-		} catch (IOException e) {
-			log.error("Can't serialize the audit log", e);
+			return InetAddress.getLocalHost().getHostName().replaceAll("[^A-Za-z0-9._-]", "_");
+		} catch (Exception e) {
+			return "default";
 		}
 	}
-
 }
@@ -0,0 +1,65 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.audit;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.List;
+
+/**
+ * Sends batch of audit messages to JMS queue with one session (and producer) per batch. Session is transacted, so
+ * batch is delivered completely or not at all.
+ */
+public class AuditLogJmsSender implements AuditLogSpool.BatchSender {
+
+    private final ConnectionFactory connectionFactory;
+    private final String queueName;
+
+    public AuditLogJmsSender(ConnectionFactory connectionFactory, String queueName) {
+        this.connectionFactory = connectionFactory;
+        this.queueName = queueName;
+    }
+
+    @Override
+    public void send(List<String> messages) throws JMSException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        final Connection connection = connectionFactory.createConnection();
+        try {
+            connection.start();
+
+            final Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+            try {
+                final MessageProducer producer = session.createProducer(session.createQueue(queueName));
+                for (String message : messages) {
+                    producer.send(session.createTextMessage(message));
+                }
+                session.commit();
+            } catch (JMSException e) {
+                rollback(session);
+                throw e;
+            } finally {
+                session.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static void rollback(Session session) {
+        try {
+            session.rollback();
+        } catch (JMSException e) {
+            // connection is broken, nothing is committed
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.audit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only local spool of audit messages (one message per line) which were not delivered to JMS broker. Spooled
+ * messages are replayed in batches when broker is available again.
+ * <p>
+ * Replay takes over spool file (renames it to *.replay), so new messages are appended to new spool file meanwhile.
+ * If replay fails, not sent messages stay in replay file and are replayed first next time.
+ * <p>
+ * Spool files (and created directories) are accessible only by owner, where file system supports POSIX permissions.
+ */
+public class AuditLogSpool {
+
+    @FunctionalInterface
+    public interface BatchSender {
+        void send(List<String> messages) throws Exception;
+    }
+
+    private final File file;
+    private final File replayFile;
+
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    private final Object lock = new Object();
+
+    public AuditLogSpool(File file) {
+        this.file = file;
+        this.replayFile = new File(file.getPath() + ".replay");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Appends messages to spool file.
+     *
+     * @throws IOException if messages can't be written
+     */
+    public void append(Collection<String> messages) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        synchronized (lock) {
+            createIfNeeded(file);
+            try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND)) {
+                for (String message : messages) {
+                    writer.write(message);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves all messages of this spool (replay file first) to target spool, used when spool location is changed.
+     *
+     * @return number of moved messages
+     * @throws IOException if messages can't be moved (messages which are not moved stay in this spool)
+     */
+    public int migrateTo(AuditLogSpool target, int batchSize) throws IOException {
+        synchronized (lock) {
+            int moved = 0;
+            for (File source : new File[]{replayFile, file}) {
+                if (!source.exists()) {
+                    continue;
+                }
+
+                final List<String> batch = new ArrayList<>(batchSize);
+                try (BufferedReader reader = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isEmpty()) {
+                            batch.add(line);
+                        }
+                        if (batch.size() >= batchSize) {
+                            target.append(batch);
+                            moved += batch.size();
+                            batch.clear();
+                        }
+                    }
+                }
+                target.append(batch);
+                moved += batch.size();
+                Files.delete(source.toPath());
+            }
+            return moved;
+        }
+    }
+
+    public boolean isEmpty() {
+        return !replayFile.exists() && (!file.exists() || file.length() == 0);
+    }
+
+    /**
+     * Sends spooled messages in batches of batchSize.
+     *
+     * @return number of sent messages
+     * @throws Exception if batch can't be sent (batch and all following messages stay in spool)
+     */
+    public int replay(BatchSender sender, int batchSize) throws Exception {
+        synchronized (lock) {
+            if (!replayFile.exists()) {
+                if (!file.exists()) {
+                    return 0;
+                }
+                Files.move(file.toPath(), replayFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+
+        int sent = 0;
+        final List<String> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(replayFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                batch.add(line);
+                if (batch.size() >= batchSize) {
+                    sendOrKeep(sender, batch, reader);
+                    sent += batch.size();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                sendOrKeep(sender, batch, reader);
+                sent += batch.size();
+            }
+        }
+
+        Files.delete(replayFile.toPath());
+        return sent;
+    }
+
+    private void sendOrKeep(BatchSender sender, List<String> batch, BufferedReader rest) throws Exception {
+        try {
+            sender.send(batch);
+        } catch (Exception e) {
+            keep(batch, rest);
+            throw e;
+        }
+    }
+
+    private void keep(List<String> batch, BufferedReader rest) throws IOException {
+        final File tmp = new File(replayFile.getPath() + ".tmp");
+        Files.deleteIfExists(tmp.toPath());
+        createIfNeeded(tmp);
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (String message : batch) {
+                writer.write(message);
+                writer.newLine();
+            }
+            String line;
+            while ((line = rest.readLine()) != null) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        Files.move(tmp.toPath(), replayFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void createIfNeeded(File file) throws IOException {
+        final Path path = file.toPath();
+        if (Files.exists(path)) {
+            return;
+        }
+
+        final Path parent = path.toAbsolutePath().getParent();
+        if (parent != null && !Files.exists(parent)) {
+            if (POSIX) {
+                Files.createDirectories(parent, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(parent);
+            }
+        }
+        if (POSIX) {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(path);
+        }
+    }
+}
@@ -492,16 +492,14 @@ public class AuthorizeRestWebServiceImpl implements AuthorizeRestWebService {
                             codeChallenge, codeChallengeMethod, sessionId, claims, authReqId, customParameters, oAuth2AuditLog, httpRequest);
                 }
                 if (client.getTrustedClient()) {
-                    sessionUser.addPermission(clientId, true);
-                    sessionIdService.updateSessionId(sessionUser);
+                    sessionIdService.grantPermission(sessionUser, clientId);
                 } else {
                     clientAuthorization = clientAuthorizationsService.find(user.getAttribute("inum"), client.getClientId());
                     clientAuthorizationFetched = true;
                     if (clientAuthorization != null && clientAuthorization.getScopes() != null) {
                         log.trace("ClientAuthorization - scope: " + scope + ", dn: " + clientAuthorization.getDn() + ", requestedScope: " + scopes);
                         if (Arrays.asList(clientAuthorization.getScopes()).containsAll(scopes)) {
-                            sessionUser.addPermission(clientId, true);
-                            sessionIdService.updateSessionId(sessionUser);
+                            sessionIdService.grantPermission(sessionUser, clientId);
                         } else {
                             return redirectToAuthorizationPage(redirectUriResponse.getRedirectUri(), responseTypes, scope, clientId,
                                     redirectUri, state, responseMode, nonce, display, prompts, maxAge, uiLocales,
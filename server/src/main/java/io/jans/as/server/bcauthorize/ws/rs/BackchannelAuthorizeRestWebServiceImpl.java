@@ -6,7 +6,6 @@
 
 package io.jans.as.server.bcauthorize.ws.rs;
 
-import io.jans.as.client.JwkClient;
 import io.jans.as.common.model.common.User;
 import io.jans.as.common.model.registration.Client;
 import io.jans.as.common.service.common.UserService;
@@ -14,15 +13,11 @@ import io.jans.as.model.common.BackchannelTokenDeliveryMode;
 import io.jans.as.model.configuration.AppConfiguration;
 import io.jans.as.model.crypto.AbstractCryptoProvider;
 import io.jans.as.model.crypto.signature.AlgorithmFamily;
-import io.jans.as.model.crypto.signature.ECDSAPublicKey;
-import io.jans.as.model.crypto.signature.RSAPublicKey;
 import io.jans.as.model.crypto.signature.SignatureAlgorithm;
 import io.jans.as.model.error.DefaultErrorResponse;
 import io.jans.as.model.error.ErrorResponseFactory;
 import io.jans.as.model.exception.InvalidClaimException;
 import io.jans.as.model.exception.InvalidJwtException;
-import io.jans.as.model.jws.ECDSASigner;
-import io.jans.as.model.jws.RSASigner;
 import io.jans.as.model.jwt.Jwt;
 import io.jans.as.server.audit.ApplicationAuditLogger;
 import io.jans.as.server.authorize.ws.rs.AuthorizeRestWebServiceValidator;
@@ -37,6 +32,7 @@ import io.jans.as.server.model.common.AuthorizationGrantList;
 import io.jans.as.server.model.common.CibaRequestCacheControl;
 import io.jans.as.server.model.session.SessionClient;
 import io.jans.as.server.security.Identity;
+import io.jans.as.server.service.JwksResolverService;
 import io.jans.as.server.service.ciba.CibaRequestService;
 import io.jans.as.server.util.ServerUtil;
 import io.jans.util.StringHelper;
@@ -107,6 +103,9 @@ public class BackchannelAuthorizeRestWebServiceImpl implements BackchannelAuthor
     @Inject
     private AbstractCryptoProvider cryptoProvider;
 
+    @Inject
+    private JwksResolverService jwksResolverService;
+
     @Inject
     private AuthorizeRestWebServiceValidator authorizeRestWebServiceValidator;
 
@@ -239,14 +238,14 @@ public class BackchannelAuthorizeRestWebServiceImpl implements BackchannelAuthor
                 }
 
                 boolean validSignature = false;
-                if (algorithm.getFamily() == AlgorithmFamily.RSA) {
-                    RSAPublicKey publicKey = JwkClient.getRSAPublicKey(client.getJwksUri(), keyId);
-                    RSASigner rsaSigner = new RSASigner(algorithm, publicKey);
-                    validSignature = rsaSigner.validate(jwt);
-                } else if (algorithm.getFamily() == AlgorithmFamily.EC) {
-                    ECDSAPublicKey publicKey = JwkClient.getECDSAPublicKey(client.getJwksUri(), keyId);
-                    ECDSASigner ecdsaSigner = new ECDSASigner(algorithm, publicKey);
-                    validSignature = ecdsaSigner.validate(jwt);
+                if (algorithm.getFamily() == AlgorithmFamily.RSA || algorithm.getFamily() == AlgorithmFamily.EC) {
+                    JSONObject jwks = jwksResolverService.getJwks(client.getJwksUri(), keyId);
+                    try {
+                        validSignature = jwks != null && cryptoProvider.verifySignature(jwt.getSigningInput(), jwt.getEncodedSignature(),
+                                keyId, jwks, null, algorithm);
+                    } catch (Exception e) {
+                        log.error("Failed to validate login_hint_token signature, keyId: " + keyId, e);
+                    }
                 }
                 if (!validSignature) {
                     builder = Response.status(Response.Status.BAD_REQUEST.getStatusCode()); // 400
@@ -14,6 +14,7 @@ import io.jans.as.model.configuration.AppConfiguration;
 import io.jans.as.server.service.ciba.CibaEncryptionService;
 import io.jans.as.server.service.external.ExternalCibaEndUserNotificationService;
 import io.jans.as.server.service.external.context.ExternalCibaEndUserNotificationContext;
+import io.jans.as.server.service.net.HttpService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +44,9 @@ public class CIBAEndUserNotificationService {
     @Inject
     private ExternalCibaEndUserNotificationService externalCibaEndUserNotificationService;
 
+    @Inject
+    private HttpService httpService;
+
     public void notifyEndUser(String scope, String acrValues, String authReqId, String deviceRegistrationToken) {
         try {
             if (externalCibaEndUserNotificationService.isEnabled()) {
@@ -91,6 +95,7 @@ public class CIBAEndUserNotificationService {
 
         FirebaseCloudMessagingRequest firebaseCloudMessagingRequest = new FirebaseCloudMessagingRequest(key, to, title, body, clickAction);
         FirebaseCloudMessagingClient firebaseCloudMessagingClient = new FirebaseCloudMessagingClient(url);
+        firebaseCloudMessagingClient.setExecutor(httpService.newOutboundExecutor(false));
         firebaseCloudMessagingClient.setRequest(firebaseCloudMessagingRequest);
         FirebaseCloudMessagingResponse firebaseCloudMessagingResponse = firebaseCloudMessagingClient.exec();
 
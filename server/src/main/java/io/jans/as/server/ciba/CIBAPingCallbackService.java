@@ -10,6 +10,7 @@ import io.jans.as.client.ciba.ping.PingCallbackClient;
 import io.jans.as.client.ciba.ping.PingCallbackRequest;
 import io.jans.as.client.ciba.ping.PingCallbackResponse;
 import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.as.server.service.net.HttpService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +31,9 @@ public class CIBAPingCallbackService {
     @Inject
     private AppConfiguration appConfiguration;
 
+    @Inject
+    private HttpService httpService;
+
     public void pingCallback(String authReqId, String clientNotificationEndpoint, String clientNotificationToken) {
         PingCallbackRequest pingCallbackRequest = new PingCallbackRequest();
 
@@ -37,6 +41,7 @@ public class CIBAPingCallbackService {
         pingCallbackRequest.setAuthReqId(authReqId);
 
         PingCallbackClient pingCallbackClient = new PingCallbackClient(clientNotificationEndpoint, appConfiguration.getFapiCompatibility());
+        pingCallbackClient.setExecutor(httpService.newOutboundExecutor(appConfiguration.getFapiCompatibility()));
         pingCallbackClient.setRequest(pingCallbackRequest);
         PingCallbackResponse pingCallbackResponse = pingCallbackClient.exec();
 
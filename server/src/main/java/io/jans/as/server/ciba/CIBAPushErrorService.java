@@ -10,10 +10,12 @@ import io.jans.as.client.ciba.push.PushErrorClient;
 import io.jans.as.client.ciba.push.PushErrorRequest;
 import io.jans.as.client.ciba.push.PushErrorResponse;
 import io.jans.as.model.ciba.PushErrorResponseType;
+import io.jans.as.server.service.net.HttpService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ejb.Stateless;
+import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
@@ -26,6 +28,9 @@ public class CIBAPushErrorService {
 
     private final static Logger log = LoggerFactory.getLogger(CIBAPushErrorService.class);
 
+    @Inject
+    private HttpService httpService;
+
     public void pushError(String authReqId, String clientNotificationEndpoint, String clientNotificationToken,
                           PushErrorResponseType error, String errorDescription) {
         PushErrorRequest pushErrorRequest = new PushErrorRequest();
@@ -36,6 +41,7 @@ public class CIBAPushErrorService {
         pushErrorRequest.setErrorDescription(errorDescription);
 
         PushErrorClient pushErrorClient = new PushErrorClient(clientNotificationEndpoint);
+        pushErrorClient.setExecutor(httpService.newOutboundExecutor(false));
         pushErrorClient.setRequest(pushErrorRequest);
         PushErrorResponse pushErrorResponse = pushErrorClient.exec();
 
@@ -10,10 +10,12 @@ import io.jans.as.client.ciba.push.PushTokenDeliveryClient;
 import io.jans.as.client.ciba.push.PushTokenDeliveryRequest;
 import io.jans.as.client.ciba.push.PushTokenDeliveryResponse;
 import io.jans.as.model.common.TokenType;
+import io.jans.as.server.service.net.HttpService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ejb.Stateless;
+import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
@@ -26,6 +28,9 @@ public class CIBAPushTokenDeliveryService {
 
     private final static Logger log = LoggerFactory.getLogger(CIBAPushTokenDeliveryService.class);
 
+    @Inject
+    private HttpService httpService;
+
     public void pushTokenDelivery(String authReqId, String clientNotificationEndpoint, String clientNotificationToken,
                                   String accessToken, String refreshToken, String idToken, Integer expiresIn) {
         PushTokenDeliveryRequest pushTokenDeliveryRequest = new PushTokenDeliveryRequest();
@@ -39,6 +44,7 @@ public class CIBAPushTokenDeliveryService {
         pushTokenDeliveryRequest.setIdToken(idToken);
 
         PushTokenDeliveryClient pushTokenDeliveryClient = new PushTokenDeliveryClient(clientNotificationEndpoint);
+        pushTokenDeliveryClient.setExecutor(httpService.newOutboundExecutor(false));
         pushTokenDeliveryClient.setRequest(pushTokenDeliveryRequest);
         PushTokenDeliveryResponse pushTokenDeliveryResponse = pushTokenDeliveryClient.exec();
 
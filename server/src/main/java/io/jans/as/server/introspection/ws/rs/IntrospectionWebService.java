@@ -16,6 +16,7 @@ import io.jans.as.model.configuration.AppConfiguration;
 import io.jans.as.model.error.ErrorResponseFactory;
 import io.jans.as.model.jwt.Jwt;
 import io.jans.as.model.uma.UmaScopeType;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.model.util.Util;
 import io.jans.as.server.model.common.AbstractToken;
 import io.jans.as.server.model.common.AccessToken;
@@ -23,6 +24,7 @@ import io.jans.as.server.model.common.AuthorizationGrant;
 import io.jans.as.server.model.common.AuthorizationGrantList;
 import io.jans.as.server.model.token.JwtSigner;
 import io.jans.as.server.service.ClientService;
+import io.jans.as.server.service.LocalJwtIntrospectionService;
 import io.jans.as.server.service.external.ExternalIntrospectionService;
 import io.jans.as.server.service.external.context.ExternalIntrospectionContext;
 import io.jans.as.server.service.token.TokenService;
@@ -41,7 +43,6 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.Iterator;
@@ -73,6 +74,8 @@ public class IntrospectionWebService {
     private AttributeService attributeService;
     @Inject
     private WebKeysConfiguration webKeysConfiguration;
+    @Inject
+    private LocalJwtIntrospectionService localJwtIntrospectionService;
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
@@ -128,9 +131,9 @@ public class IntrospectionWebService {
 
             final io.jans.as.model.common.IntrospectionResponse response = new io.jans.as.model.common.IntrospectionResponse(false);
 
-            final AuthorizationGrant grantOfIntrospectionToken = authorizationGrantList.getAuthorizationGrantByAccessToken(p_token);
+            AbstractToken tokenToIntrospect = localJwtIntrospectionService.introspect(p_token, response);
+            final AuthorizationGrant grantOfIntrospectionToken = tokenToIntrospect == null ? authorizationGrantList.getAuthorizationGrantByAccessToken(p_token) : null;
 
-            AbstractToken tokenToIntrospect = null;
             if (grantOfIntrospectionToken != null) {
                 tokenToIntrospect = grantOfIntrospectionToken.getAccessToken(p_token);
 
@@ -149,7 +152,7 @@ public class IntrospectionWebService {
                     AccessToken accessToken = (AccessToken) tokenToIntrospect;
                     response.setTokenType(accessToken.getTokenType() != null ? accessToken.getTokenType().getName() : io.jans.as.model.common.TokenType.BEARER.getName());
                 }
-            } else {
+            } else if (tokenToIntrospect == null) {
                 log.debug("Failed to find grant for access_token: " + p_token + ". Return 200 with active=false.");
             }
             JSONObject responseAsJsonObject = createResponseAsJsonObject(response, tokenToIntrospect);
@@ -172,7 +175,7 @@ public class IntrospectionWebService {
                 return Response.status(Response.Status.OK).entity(createResponseAsJwt(responseAsJsonObject, authorizationGrant)).build();
             }
 
-            return Response.status(Response.Status.OK).entity(responseAsJsonObject.toString()).type(MediaType.APPLICATION_JSON_TYPE).build();
+            return Response.status(Response.Status.OK).entity(JsonMappers.streamingOutput(responseAsJsonObject)).type(MediaType.APPLICATION_JSON_TYPE).build();
 
         } catch (Exception e) {
             log.error(e.getMessage(), e);
@@ -201,8 +204,8 @@ public class IntrospectionWebService {
         return jwtSigner.sign().toString();
     }
 
-    private static JSONObject createResponseAsJsonObject(IntrospectionResponse response, AbstractToken tokenToIntrospect) throws JSONException, IOException {
-        final JSONObject result = new JSONObject(ServerUtil.asJson(response));
+    private static JSONObject createResponseAsJsonObject(IntrospectionResponse response, AbstractToken tokenToIntrospect) throws JSONException {
+        final JSONObject result = JsonMappers.toJSONObject(response);
         if (tokenToIntrospect != null && StringUtils.isNotBlank(tokenToIntrospect.getX5ts256())) {
             final JSONObject cnf = new JSONObject();
             cnf.put("x5t#S256", tokenToIntrospect.getX5ts256());
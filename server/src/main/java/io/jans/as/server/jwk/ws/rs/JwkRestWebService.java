@@ -10,6 +10,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
@@ -39,11 +40,12 @@ public interface JwkRestWebService {
      *
      * @param securityContext An injectable interface that provides access to security
      *                        related information.
+     * @param httpHeaders     Request headers (If-None-Match, Accept-Encoding).
      * @return The JSON Web Key data structure JWK. A JWK consists of a JWK Container Object, which is a JSON object
      *         that contains an array of JWK Key Objects as a member.
      */
     @GET
     @Path("/jwks")
     @Produces({MediaType.APPLICATION_JSON})
-    Response requestJwk(@Context SecurityContext securityContext);
+    Response requestJwk(@Context SecurityContext securityContext, @Context HttpHeaders httpHeaders);
 }
\ No newline at end of file
@@ -9,10 +9,14 @@ package io.jans.as.server.jwk.ws.rs;
 import io.jans.as.model.config.WebKeysConfiguration;
 import io.jans.as.model.configuration.AppConfiguration;
 import io.jans.as.model.jwk.JSONWebKey;
+import io.jans.as.server.service.LocalResponseCache;
+import io.jans.as.server.service.ResponseSnapshot;
 import org.slf4j.Logger;
 
 import javax.inject.Inject;
 import javax.ws.rs.Path;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 import java.util.List;
@@ -36,21 +40,28 @@ public class JwkRestWebServiceImpl implements JwkRestWebService {
     @Inject
     private WebKeysConfiguration webKeysConfiguration;
 
+    @Inject
+    private LocalResponseCache localResponseCache;
+
     @Override
-    public Response requestJwk(SecurityContext sec) {
+    public Response requestJwk(SecurityContext sec, HttpHeaders httpHeaders) {
         log.debug("Attempting to request JWK, Is Secure = {}", sec.isSecure());
-        Response.ResponseBuilder builder = Response.ok();
 
         try {
-            WebKeysConfiguration webKeysConfiguration = new WebKeysConfiguration();
-            webKeysConfiguration.setKeys(this.filterKeys(this.webKeysConfiguration.getKeys()));
-            builder.entity(webKeysConfiguration.toString());
+            // keys list is replaced when keys are reloaded, so response is rebuilt only after rotation
+            final List<JSONWebKey> keys = this.webKeysConfiguration.getKeys();
+            ResponseSnapshot response = localResponseCache.getJwksResponse(keys);
+            if (response == null) {
+                WebKeysConfiguration webKeysConfiguration = new WebKeysConfiguration();
+                webKeysConfiguration.setKeys(this.filterKeys(keys));
+                response = new ResponseSnapshot(webKeysConfiguration.toString(), MediaType.APPLICATION_JSON);
+                localResponseCache.putJwksResponse(keys, response);
+            }
+            return response.toResponse(httpHeaders, appConfiguration.getJwksCacheControlMaxAgeInSeconds());
         } catch (Exception e) {
             log.error(e.getMessage(), e);
-            builder = Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()); // 500
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()).build(); // 500
         }
-
-        return builder.build();
     }
 
     /**
@@ -6,7 +6,6 @@
 
 package io.jans.as.server.model.authorize;
 
-import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import io.jans.as.common.model.registration.Client;
 import io.jans.as.model.authorize.AuthorizeErrorResponseType;
@@ -28,6 +27,7 @@ import io.jans.as.model.util.Base64Util;
 import io.jans.as.model.util.JwtUtil;
 import io.jans.as.model.util.Util;
 import io.jans.as.server.service.ClientService;
+import io.jans.as.server.service.JwksResolverService;
 import io.jans.as.server.service.RedirectUriResponse;
 import io.jans.service.cdi.util.CdiUtil;
 import org.apache.commons.lang.StringUtils;
@@ -128,7 +128,7 @@ public class JwtAuthorizationRequest {
                     jweDecrypter = new JweDecrypterImpl(privateKey);
                 } else {
                     ClientService clientService = CdiUtil.bean(ClientService.class);
-                    jweDecrypter = new JweDecrypterImpl(clientService.decryptSecret(client.getClientSecret()).getBytes(StandardCharsets.UTF_8));
+                    jweDecrypter = new JweDecrypterImpl(clientService.decryptSecret(client).getBytes(StandardCharsets.UTF_8));
                 }
                 jweDecrypter.setKeyEncryptionAlgorithm(keyEncryptionAlgorithm);
                 jweDecrypter.setBlockEncryptionAlgorithm(blockEncryptionAlgorithm);
@@ -299,10 +299,8 @@ public class JwtAuthorizationRequest {
 
     private boolean validateSignature(AbstractCryptoProvider cryptoProvider, SignatureAlgorithm signatureAlgorithm, Client client, String signingInput, String signature) throws Exception {
         ClientService clientService = CdiUtil.bean(ClientService.class);
-        String sharedSecret = clientService.decryptSecret(client.getClientSecret());
-        JSONObject jwks = Strings.isNullOrEmpty(client.getJwks()) ?
-                JwtUtil.getJSONWebKeys(client.getJwksUri()) :
-                new JSONObject(client.getJwks());
+        String sharedSecret = clientService.decryptSecret(client);
+        JSONObject jwks = CdiUtil.bean(JwksResolverService.class).getJwks(client, keyId);
         return cryptoProvider.verifySignature(signingInput, signature, keyId, jwks, sharedSecret, signatureAlgorithm);
     }
 
@@ -22,6 +22,8 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * @author Yuriy Zabrovarnyy
@@ -45,6 +47,13 @@ public abstract class AbstractAuthorizationGrant implements IAuthorizationGrant
     private Client client;
     private Set<String> scopes;
 
+    // lazy references, set when grant is rebuilt from persisted token (user and client are loaded on first access)
+    private Function<String[], User> userLoader;
+    private Supplier<Client> clientLoader;
+    private String lazyUserId;
+    private String lazyUserDn;
+    private String lazyClientId;
+
     private String grantId;
     private JwtAuthorizationRequest jwtAuthorizationRequest;
     private Date authenticationTime;
@@ -79,6 +88,8 @@ public abstract class AbstractAuthorizationGrant implements IAuthorizationGrant
         this.user = user;
         this.authorizationGrantType = authorizationGrantType;
         this.client = client;
+        this.userLoader = null;
+        this.clientLoader = null;
         this.scopes = new CopyOnWriteArraySet<String>();
         this.grantId = UUID.randomUUID().toString();
     }
@@ -235,10 +246,58 @@ public abstract class AbstractAuthorizationGrant implements IAuthorizationGrant
      * @return The resource owner's.
      */
     @Override
-    public User getUser() {
+    public synchronized User getUser() {
+        if (userLoader != null) {
+            user = userLoader.apply(new String[0]);
+            userLoader = null;
+        }
         return user;
     }
 
+    /**
+     * Returns user with given attributes only. If user is already loaded it is returned as is, otherwise projected
+     * user is loaded and it is not remembered by grant.
+     *
+     * @param returnAttributes attributes to load
+     * @return user
+     */
+    public User getUser(String[] returnAttributes) {
+        final Function<String[], User> loader;
+        synchronized (this) {
+            loader = userLoader;
+            if (loader == null) {
+                return user;
+            }
+        }
+        return loader.apply(returnAttributes);
+    }
+
+    /**
+     * Sets user which is loaded on first access. User id and dn are returned without loading user.
+     *
+     * @param userId user id
+     * @param userDn user dn, may be null (then user is loaded on {@link #getUserDn()})
+     * @param loader loads user with given return attributes (all attributes if empty)
+     */
+    public synchronized void setLazyUser(String userId, String userDn, Function<String[], User> loader) {
+        this.user = null;
+        this.lazyUserId = userId;
+        this.lazyUserDn = userDn;
+        this.userLoader = loader;
+    }
+
+    /**
+     * Sets client which is loaded on first access. Client id is returned without loading client.
+     *
+     * @param clientId client id
+     * @param loader   loads client
+     */
+    public synchronized void setLazyClient(String clientId, Supplier<Client> loader) {
+        this.client = null;
+        this.lazyClientId = clientId;
+        this.clientLoader = loader;
+    }
+
     public String getAcrValues() {
         return acrValues;
     }
@@ -267,7 +326,7 @@ public abstract class AbstractAuthorizationGrant implements IAuthorizationGrant
     public String checkScopesPolicy(String requestedScopes) {
         this.scopes.clear();
 
-        Set<String> grantedScopes = scopeChecker.checkScopesPolicy(client, requestedScopes);
+        Set<String> grantedScopes = scopeChecker.checkScopesPolicy(getClient(), requestedScopes);
         this.scopes.addAll(grantedScopes);
 
         final StringBuilder grantedScopesSb = new StringBuilder();
@@ -283,6 +342,7 @@ public abstract class AbstractAuthorizationGrant implements IAuthorizationGrant
     @Override
     public AccessToken createAccessToken(String certAsPem, ExecutionContext executionContext) {
         int lifetime = appConfiguration.getAccessTokenLifetime();
+        final Client client = getClient();
         // Jans Auth #830 Client-specific access token expiration
         if (client != null && client.getAccessTokenLifetime() != null && client.getAccessTokenLifetime() > 0) {
             lifetime = client.getAccessTokenLifetime();
@@ -299,6 +359,7 @@ public abstract class AbstractAuthorizationGrant implements IAuthorizationGrant
     @Override
     public RefreshToken createRefreshToken() {
         int lifetime = appConfiguration.getRefreshTokenLifetime();
+        final Client client = getClient();
         if (client.getRefreshTokenLifetime() != null && client.getRefreshTokenLifetime() > 0) {
             lifetime = client.getRefreshTokenLifetime();
         }
@@ -312,7 +373,10 @@ public abstract class AbstractAuthorizationGrant implements IAuthorizationGrant
     }
 
     @Override
-    public String getUserId() {
+    public synchronized String getUserId() {
+        if (userLoader != null) {
+            return lazyUserId;
+        }
         if (user == null) {
             return null;
         }
@@ -322,6 +386,13 @@ public abstract class AbstractAuthorizationGrant implements IAuthorizationGrant
 
     @Override
     public String getUserDn() {
+        synchronized (this) {
+            if (userLoader != null && lazyUserDn != null) {
+                return lazyUserDn;
+            }
+        }
+
+        final User user = getUser();
         if (user == null) {
             return null;
         }
@@ -347,12 +418,19 @@ public abstract class AbstractAuthorizationGrant implements IAuthorizationGrant
      * @return The client.
      */
     @Override
-    public Client getClient() {
+    public synchronized Client getClient() {
+        if (clientLoader != null) {
+            client = clientLoader.get();
+            clientLoader = null;
+        }
         return client;
     }
 
     @Override
-    public String getClientId() {
+    public synchronized String getClientId() {
+        if (clientLoader != null) {
+            return lazyClientId;
+        }
         if (client == null) {
             return null;
         }
@@ -362,6 +440,7 @@ public abstract class AbstractAuthorizationGrant implements IAuthorizationGrant
 
     @Override
     public String getClientDn() {
+        final Client client = getClient();
         if (client == null) {
             return null;
         }
@@ -7,7 +7,6 @@
 package io.jans.as.server.model.common;
 
 import java.util.Date;
-import java.util.List;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -148,14 +147,9 @@ public abstract class AuthorizationGrant extends AbstractAuthorizationGrant {
     private void saveImpl() {
         String grantId = getGrantId();
         if (grantId != null && StringUtils.isNotBlank(grantId)) {
-            final List<TokenLdap> grants = grantService.getGrantsByGrantId(grantId);
-            if (grants != null && !grants.isEmpty()) {
-                for (TokenLdap t : grants) {
-                    initTokenFromGrant(t);
-                    log.debug("Saving grant: " + grantId + ", code_challenge: " + getCodeChallenge());
-                    grantService.mergeSilently(t);
-                }
-            }
+            final TokenLdap state = new TokenLdap();
+            initTokenFromGrant(state);
+            grantService.saveGrantState(grantId, state);
         }
     }
 
@@ -211,7 +205,7 @@ public abstract class AuthorizationGrant extends AbstractAuthorizationGrant {
         }
 
         final JwtSigner jwtSigner = new JwtSigner(appConfiguration, webKeysConfiguration, signatureAlgorithm,
-                client.getClientId(), clientService.decryptSecret(client.getClientSecret()));
+                client.getClientId(), clientService.decryptSecret(client));
         final Jwt jwt = jwtSigner.newJwt();
         jwt.getClaims().setClaim("scope", Lists.newArrayList(getScopes()));
         jwt.getClaims().setClaim("client_id", getClientId());
@@ -371,6 +365,7 @@ public abstract class AuthorizationGrant extends AbstractAuthorizationGrant {
         result.setClientId(getClientId());
 
         result.getAttributes().setX5cs256(p_token.getX5ts256());
+        result.getAttributes().setUserDn(getUserDn());
 
         final AuthorizationGrantType grantType = getAuthorizationGrantType();
         if (grantType != null) {
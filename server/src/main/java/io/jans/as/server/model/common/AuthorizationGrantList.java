@@ -21,6 +21,7 @@ import io.jans.as.server.service.MetricService;
 import io.jans.as.server.util.ServerUtil;
 import io.jans.as.server.util.TokenHashUtil;
 import io.jans.model.metric.MetricType;
+import io.jans.orm.exception.EntryPersistenceException;
 import io.jans.service.CacheService;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -241,46 +242,45 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
         if (tokenLdap != null) {
             final AuthorizationGrantType grantType = AuthorizationGrantType.fromString(tokenLdap.getGrantType());
             if (grantType != null) {
-                final User user = userService.getUser(tokenLdap.getUserId());
-                final Client client = clientService.getClient(tokenLdap.getClientId());
                 final Date authenticationTime = tokenLdap.getAuthenticationTime();
                 final String nonce = tokenLdap.getNonce();
 
+                // user and client are loaded lazily, on first access
                 AuthorizationGrant result;
                 switch (grantType) {
                     case AUTHORIZATION_CODE:
                         AuthorizationCodeGrant authorizationCodeGrant = grantInstance.select(AuthorizationCodeGrant.class).get();
-                        authorizationCodeGrant.init(user, client, authenticationTime);
+                        authorizationCodeGrant.init(null, null, authenticationTime);
 
                         result = authorizationCodeGrant;
                         break;
                     case CLIENT_CREDENTIALS:
                         ClientCredentialsGrant clientCredentialsGrant = grantInstance.select(ClientCredentialsGrant.class).get();
-                        clientCredentialsGrant.init(user, client);
+                        clientCredentialsGrant.init(null, null);
 
                         result = clientCredentialsGrant;
                         break;
                     case IMPLICIT:
                         ImplicitGrant implicitGrant = grantInstance.select(ImplicitGrant.class).get();
-                        implicitGrant.init(user, client, authenticationTime);
+                        implicitGrant.init(null, null, authenticationTime);
 
                         result = implicitGrant;
                         break;
                     case RESOURCE_OWNER_PASSWORD_CREDENTIALS:
                         ResourceOwnerPasswordCredentialsGrant resourceOwnerPasswordCredentialsGrant = grantInstance.select(ResourceOwnerPasswordCredentialsGrant.class).get();
-                        resourceOwnerPasswordCredentialsGrant.init(user, client);
+                        resourceOwnerPasswordCredentialsGrant.init(null, null);
 
                         result = resourceOwnerPasswordCredentialsGrant;
                         break;
                     case CIBA:
                         CIBAGrant cibaGrant = grantInstance.select(CIBAGrant.class).get();
-                        cibaGrant.init(user, AuthorizationGrantType.CIBA, client, tokenLdap.getCreationDate());
+                        cibaGrant.init(null, AuthorizationGrantType.CIBA, null, tokenLdap.getCreationDate());
 
                         result = cibaGrant;
                         break;
                     case DEVICE_CODE:
                         DeviceCodeGrant deviceCodeGrant = grantInstance.select(DeviceCodeGrant.class).get();
-                        deviceCodeGrant.init(user, AuthorizationGrantType.DEVICE_CODE, client, tokenLdap.getCreationDate());
+                        deviceCodeGrant.init(null, AuthorizationGrantType.DEVICE_CODE, null, tokenLdap.getCreationDate());
 
                         result = deviceCodeGrant;
                         break;
@@ -288,6 +288,12 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
                         return null;
                 }
 
+                final String userId = tokenLdap.getUserId();
+                final String userDn = tokenLdap.getAttributes().getUserDn();
+                final String clientId = tokenLdap.getClientId();
+                result.setLazyUser(userId, userDn, returnAttributes -> loadUser(userId, userDn, returnAttributes));
+                result.setLazyClient(clientId, () -> clientService.getClient(clientId));
+
                 final String grantId = tokenLdap.getGrantId();
                 final String jwtRequest = tokenLdap.getJwtRequest();
                 final String authMode = tokenLdap.getAuthMode();
@@ -308,7 +314,7 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
 
                 if (StringUtils.isNotBlank(jwtRequest)) {
                     try {
-                        result.setJwtAuthorizationRequest(new JwtAuthorizationRequest(appConfiguration, cryptoProvider, jwtRequest, client));
+                        result.setJwtAuthorizationRequest(new JwtAuthorizationRequest(appConfiguration, cryptoProvider, jwtRequest, result.getClient()));
                     } catch (Exception e) {
                         log.trace(e.getMessage(), e);
                     }
@@ -351,4 +357,16 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
         return null;
     }
 
+    private User loadUser(String userId, String userDn, String[] returnAttributes) {
+        if (StringUtils.isNotBlank(userDn)) {
+            try {
+                return userService.getUserByDn(userDn, returnAttributes);
+            } catch (EntryPersistenceException e) {
+                log.trace("Failed to load user by dn: " + userDn, e);
+                return null;
+            }
+        }
+        return userService.getUser(userId, returnAttributes); // token persisted before user dn was stored
+    }
+
 }
@@ -19,7 +19,7 @@ import io.jans.as.model.crypto.CryptoProviderFactory;
 import io.jans.as.model.error.ErrorMessages;
 import io.jans.as.model.error.ErrorResponseFactory;
 import io.jans.as.model.jwk.JSONWebKey;
-import io.jans.as.server.util.ServerUtil;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.exception.ConfigurationException;
 import io.jans.orm.PersistenceEntryManager;
 import io.jans.orm.exception.BasePersistenceException;
@@ -166,6 +166,13 @@ public class ConfigurationFactory {
 		}
 	}
 
+	/**
+	 * @return base directory of server (jans.base, catalina.base, catalina.home or jboss.home.dir) or null
+	 */
+	public static String getBaseDir() {
+		return BASE_DIR;
+	}
+
 	public void onServletContextActivation(@Observes ServletContext context) {
         this.contextPath = context.getContextPath();
 
@@ -483,7 +490,7 @@ public class ConfigurationFactory {
 			newWebKeys = jsonObject.toString();
 
 			// Attempt to load new JWKS
-			jwks = ServerUtil.createJsonMapper().readValue(newWebKeys, io.jans.as.model.config.WebKeysConfiguration.class);
+			jwks = JsonMappers.readerFor(io.jans.as.model.config.WebKeysConfiguration.class).readValue(newWebKeys);
 
 			// Store new JWKS in LDAP
 			Conf conf = loadConfigurationFromLdap();
@@ -506,7 +513,7 @@ public class ConfigurationFactory {
 
 	private AppConfiguration loadConfFromFile() {
 		try {
-			return ServerUtil.createJsonMapper().readValue(new File(configFilePath), AppConfiguration.class);
+			return JsonMappers.readerFor(AppConfiguration.class).readValue(new File(configFilePath));
 		} catch (Exception e) {
 			log.warn(e.getMessage(), e);
 		}
@@ -515,7 +522,7 @@ public class ConfigurationFactory {
 
 	private ErrorMessages loadErrorsFromFile() {
 		try {
-			return ServerUtil.createJsonMapper().readValue(new File(errorsFilePath), ErrorMessages.class);
+			return JsonMappers.readerFor(ErrorMessages.class).readValue(new File(errorsFilePath));
 		} catch (Exception e) {
 			log.warn(e.getMessage(), e);
 		}
@@ -524,7 +531,7 @@ public class ConfigurationFactory {
 
 	private StaticConfiguration loadStaticConfFromFile() {
 		try {
-			return ServerUtil.createJsonMapper().readValue(new File(staticConfFilePath), StaticConfiguration.class);
+			return JsonMappers.readerFor(StaticConfiguration.class).readValue(new File(staticConfFilePath));
 		} catch (Exception e) {
 			log.warn(e.getMessage(), e);
 		}
@@ -533,7 +540,7 @@ public class ConfigurationFactory {
 
 	private WebKeysConfiguration loadWebKeysFromFile() {
 		try {
-			return ServerUtil.createJsonMapper().readValue(new File(webKeysFilePath), WebKeysConfiguration.class);
+			return JsonMappers.readerFor(WebKeysConfiguration.class).readValue(new File(webKeysFilePath));
 		} catch (Exception e) {
 			log.warn(e.getMessage(), e);
 		}
@@ -21,6 +21,8 @@ public class TokenAttributes implements Serializable {
 
     @JsonProperty("x5cs256")
     private String x5cs256;
+    @JsonProperty("userDn")
+    private String userDn;
 
     public String getX5cs256() {
         return x5cs256;
@@ -30,10 +32,19 @@ public class TokenAttributes implements Serializable {
         this.x5cs256 = x5cs256;
     }
 
+    public String getUserDn() {
+        return userDn;
+    }
+
+    public void setUserDn(String userDn) {
+        this.userDn = userDn;
+    }
+
     @Override
     public String toString() {
         return "TokenAttributes{" +
                 "x5cs256='" + x5cs256 + '\'' +
+                ", userDn='" + userDn + '\'' +
                 '}';
     }
 }
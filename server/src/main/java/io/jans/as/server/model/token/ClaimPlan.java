@@ -0,0 +1,86 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.model.token;
+
+import io.jans.as.persistence.model.Scope;
+import io.jans.model.GluuAttribute;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scopes and claim attributes resolved for particular (client claims, scopes) combination, so id_token and userinfo
+ * do not resolve scopes and attributes on every request.
+ */
+public class ClaimPlan {
+
+    private final List<ScopeClaims> scopes;
+    private final Set<String> clientClaimDns;
+    private final Set<String> scopeClaimDisplayNames;
+    private final long attributesVersion;
+    private final boolean complete;
+
+    public ClaimPlan(List<ScopeClaims> scopes, Set<String> clientClaimDns, Set<String> scopeClaimDisplayNames,
+                     long attributesVersion, boolean complete) {
+        this.scopes = Collections.unmodifiableList(scopes);
+        this.clientClaimDns = Collections.unmodifiableSet(clientClaimDns);
+        this.scopeClaimDisplayNames = Collections.unmodifiableSet(scopeClaimDisplayNames);
+        this.attributesVersion = attributesVersion;
+        this.complete = complete;
+    }
+
+    /**
+     * @return found scopes in requested order
+     */
+    public List<ScopeClaims> getScopes() {
+        return scopes;
+    }
+
+    public long getAttributesVersion() {
+        return attributesVersion;
+    }
+
+    /**
+     * @return false if some scopes or claim attributes were not found (such plan is not cached)
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Requested claim is allowed if it is allowed for client or if any of scopes contains claim with the same display name.
+     */
+    public boolean isClaimAllowed(GluuAttribute attribute) {
+        if (attribute == null) {
+            return false;
+        }
+        return clientClaimDns.contains(attribute.getDn()) || scopeClaimDisplayNames.contains(attribute.getDisplayName());
+    }
+
+    public static class ScopeClaims {
+
+        private final Scope scope;
+        private final List<GluuAttribute> attributes;
+
+        public ScopeClaims(Scope scope, List<GluuAttribute> attributes) {
+            this.scope = scope;
+            this.attributes = Collections.unmodifiableList(attributes);
+        }
+
+        public Scope getScope() {
+            return scope;
+        }
+
+        /**
+         * @return claim attributes of the scope which have both claim name and ldap name
+         */
+        public List<GluuAttribute> getAttributes() {
+            return attributes;
+        }
+    }
+}
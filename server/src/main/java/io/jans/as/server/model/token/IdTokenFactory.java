@@ -55,7 +55,7 @@ import io.jans.as.server.model.common.IAuthorizationGrant;
 import io.jans.as.server.model.common.RefreshToken;
 import io.jans.as.server.model.common.SessionId;
 import io.jans.as.server.model.common.UnmodifiableAuthorizationGrant;
-import io.jans.as.server.service.ScopeService;
+import io.jans.as.server.service.ClaimPlanService;
 import io.jans.as.server.service.SessionIdService;
 import io.jans.as.server.service.external.ExternalAuthenticationService;
 import io.jans.as.server.service.external.ExternalDynamicScopeService;
@@ -90,7 +90,7 @@ public class IdTokenFactory {
     private ExternalAuthenticationService externalAuthenticationService;
 
     @Inject
-    private ScopeService scopeService;
+    private ClaimPlanService claimPlanService;
 
     @Inject
     private AttributeService attributeService;
@@ -184,18 +184,16 @@ public class IdTokenFactory {
         User user = authorizationGrant.getUser();
         List<Scope> dynamicScopes = new ArrayList<>();
         if (includeIdTokenClaims && authorizationGrant.getClient().isIncludeClaimsInIdToken()) {
-            for (String scopeName : scopes) {
-                Scope scope = scopeService.getScopeById(scopeName);
-                if (scope == null) {
-                    continue;
-                }
+            final ClaimPlan claimPlan = claimPlanService.getPlan(authorizationGrant.getClient().getClaims(), scopes);
+            for (ClaimPlan.ScopeClaims scopeClaims : claimPlan.getScopes()) {
+                Scope scope = scopeClaims.getScope();
 
                 if (DYNAMIC == scope.getScopeType()) {
                     dynamicScopes.add(scope);
                     continue;
                 }
 
-                Map<String, Object> claims = getClaims(user, scope);
+                Map<String, Object> claims = getClaims(user, scopeClaims.getAttributes());
 
                 if (Boolean.TRUE.equals(scope.isGroupClaims())) {
                     JwtSubClaimObject groupClaim = new JwtSubClaimObject();
@@ -355,42 +353,16 @@ public class IdTokenFactory {
     }
 
     private boolean validateRequesteClaim(GluuAttribute gluuAttribute, String[] clientAllowedClaims, Collection<String> scopes) {
-        if (gluuAttribute == null) {
-            return false;
-        }
-
-        if (clientAllowedClaims != null) {
-            for (String clientAllowedClaim : clientAllowedClaims) {
-                if (gluuAttribute.getDn().equals(clientAllowedClaim)) {
-                    return true;
-                }
-            }
-        }
-
-        for (String scopeName : scopes) {
-            Scope scope = scopeService.getScopeById(scopeName);
-
-            if (scope != null && scope.getClaims() != null) {
-                for (String claimDn : scope.getClaims()) {
-                    if (gluuAttribute.getDisplayName().equals(attributeService.getAttributeByDn(claimDn).getDisplayName())) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        return claimPlanService.getPlan(clientAllowedClaims, scopes).isClaimAllowed(gluuAttribute);
     }
 
-    public Map<String, Object> getClaims(User user, Scope scope) throws InvalidClaimException, ParseException {
+    /**
+     * @param attributes claim attributes of the scope, see {@link ClaimPlan.ScopeClaims#getAttributes()}
+     */
+    public Map<String, Object> getClaims(User user, List<GluuAttribute> attributes) throws InvalidClaimException, ParseException {
         Map<String, Object> claims = new HashMap<>();
 
-        if (scope == null || scope.getClaims() == null) {
-            return claims;
-        }
-
-        for (String claimDn : scope.getClaims()) {
-            GluuAttribute gluuAttribute = attributeService.getAttributeByDn(claimDn);
-
+        for (GluuAttribute gluuAttribute : attributes) {
             String claimName = gluuAttribute.getClaimName();
             String ldapName = gluuAttribute.getName();
             Object attribute = null;
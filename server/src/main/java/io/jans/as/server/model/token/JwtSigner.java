@@ -65,7 +65,7 @@ public class JwtSigner {
         }
 
         ClientService clientService = CdiUtil.bean(ClientService.class);
-        return new JwtSigner(appConfiguration, webKeys, signatureAlgorithm, client.getClientId(), clientService.decryptSecret(client.getClientSecret()));
+        return new JwtSigner(appConfiguration, webKeys, signatureAlgorithm, client.getClientId(), clientService.decryptSecret(client));
     }
 
     public Jwt newJwt() throws Exception {
@@ -87,7 +87,7 @@ public class JwtSigner {
 
     public Jwt sign() throws Exception {
         // Signature
-        String signature = cryptoProvider.sign(jwt.getSigningInput(), jwt.getHeader().getKeyId(), hmacSharedSecret, signatureAlgorithm);
+        String signature = cryptoProvider.sign(jwt.getSigningInputBytes(), jwt.getHeader().getKeyId(), hmacSharedSecret, signatureAlgorithm);
         jwt.setEncodedSignature(signature);
 
         return jwt;
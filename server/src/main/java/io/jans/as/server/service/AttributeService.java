@@ -7,9 +7,11 @@
 package io.jans.as.server.service;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 
 import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.service.cdi.event.ConfigurationUpdate;
 
 /**
  * @author Javier Rojas Blum
@@ -25,4 +27,8 @@ public class AttributeService extends io.jans.as.common.service.AttributeService
     	return appConfiguration.getUseLocalCache();
     }
 
+    public void updateConfiguration(@Observes @ConfigurationUpdate AppConfiguration appConfiguration) {
+        clearAttributeIndex();
+    }
+
 }
\ No newline at end of file
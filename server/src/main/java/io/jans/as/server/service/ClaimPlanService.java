@@ -0,0 +1,138 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.jans.as.common.service.AttributeService;
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.as.persistence.model.Scope;
+import io.jans.as.server.model.token.ClaimPlan;
+import io.jans.model.GluuAttribute;
+import io.jans.service.cdi.event.ConfigurationUpdate;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds and caches {@link ClaimPlan} per (client claims, scopes).
+ * <p>
+ * Plan is rebuilt when attributes are changed (attributes version is changed), scopes are re-read at least once per
+ * PLAN_LIFETIME_IN_SECONDS. Client is part of the key via its allowed claims, so changed client gets new plan.
+ */
+@ApplicationScoped
+@Named
+public class ClaimPlanService {
+
+    private static final int PLAN_LIFETIME_IN_SECONDS = 60;
+    private static final int MAX_PLANS = 10000;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private ScopeService scopeService;
+
+    @Inject
+    private AttributeService attributeService;
+
+    private final Cache<String, ClaimPlan> plans = CacheBuilder.newBuilder()
+            .maximumSize(MAX_PLANS)
+            .expireAfterWrite(PLAN_LIFETIME_IN_SECONDS, TimeUnit.SECONDS).build();
+
+    public ClaimPlan getPlan(String[] clientClaims, Collection<String> scopes) {
+        final long attributesVersion = attributeService.getAttributesVersion();
+        final String key = key(clientClaims, scopes);
+
+        final ClaimPlan cached = plans.getIfPresent(key);
+        if (cached != null && cached.getAttributesVersion() == attributesVersion) {
+            return cached;
+        }
+
+        final ClaimPlan plan = build(clientClaims, scopes, attributesVersion);
+        if (plan.isComplete()) {
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    public void clear() {
+        plans.invalidateAll();
+    }
+
+    public void updateConfiguration(@Observes @ConfigurationUpdate AppConfiguration appConfiguration) {
+        clear();
+    }
+
+    private ClaimPlan build(String[] clientClaims, Collection<String> scopeNames, long attributesVersion) {
+        boolean complete = true;
+        final List<ClaimPlan.ScopeClaims> scopes = new ArrayList<>();
+        final Set<String> displayNames = new HashSet<>();
+
+        for (String scopeName : scopeNames) {
+            final Scope scope = scopeService.getScopeById(scopeName);
+            if (scope == null) {
+                log.trace("Unable to find scope in persistence. Is it removed? Scope name: " + scopeName);
+                complete = false;
+                continue;
+            }
+
+            final List<GluuAttribute> attributes = new ArrayList<>();
+            if (scope.getClaims() != null) {
+                for (String claimDn : scope.getClaims()) {
+                    final GluuAttribute attribute = attributeService.getAttributeByDn(claimDn);
+                    if (attribute == null) {
+                        log.error("Failed to find claim attribute, dn: " + claimDn);
+                        complete = false;
+                        continue;
+                    }
+                    if (attribute.getDisplayName() != null) {
+                        displayNames.add(attribute.getDisplayName());
+                    }
+                    if (StringUtils.isBlank(attribute.getClaimName())) {
+                        log.error("Failed to get claim because claim name is not set for attribute, id: " + attribute.getDn());
+                        continue;
+                    }
+                    if (StringUtils.isBlank(attribute.getName())) {
+                        log.error("Failed to get claim because name is not set for attribute, id: " + attribute.getDn());
+                        continue;
+                    }
+                    attributes.add(attribute);
+                }
+            }
+            scopes.add(new ClaimPlan.ScopeClaims(scope, attributes));
+        }
+
+        final Set<String> clientClaimDns = clientClaims != null ? new HashSet<>(Arrays.asList(clientClaims)) : new HashSet<>();
+        return new ClaimPlan(scopes, clientClaimDns, displayNames, attributesVersion, complete);
+    }
+
+    private static String key(String[] clientClaims, Collection<String> scopes) {
+        final StringBuilder key = new StringBuilder();
+        for (String scope : scopes) {
+            key.append(scope).append(' ');
+        }
+        key.append('|');
+        if (clientClaims != null) {
+            for (String claim : clientClaims) {
+                key.append(' ').append(claim);
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.orm.PersistenceEntryManager;
+import io.jans.orm.model.base.CustomAttribute;
+import io.jans.orm.model.base.CustomEntry;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Date;
+
+/**
+ * Keeps access (and logon) time of clients in memory and flushes it every clientAccessTimeFlushIntervalInSeconds (see
+ * {@link CoalescingWriter}), so client used by many requests is written at most once per flush interval.
+ * <p>
+ * Cached client is not modified (it is shared by requests). Not flushed values are available on this node by
+ * {@link #getLastAccessTime(String)} and {@link #getLastLogonTime(String)} (see {@link ClientService#getLastAccessTime}),
+ * other nodes see them at most flush interval behind.
+ */
+@ApplicationScoped
+@Named
+public class ClientAccessTimeTracker {
+
+    public static final String FLUSH_COUNTER = "client_access_time_flush";
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private PersistenceEntryManager persistenceEntryManager;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private MetricService metricService;
+
+    private final CoalescingWriter<AccessTime> writer = new CoalescingWriter<>(
+            AccessTime::latest,
+            this::write,
+            () -> appConfiguration.getClientAccessTimeFlushIntervalInSeconds(),
+            count -> metricService.incCounter(FLUSH_COUNTER, count));
+
+    @PostConstruct
+    public void init() {
+        writer.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        writer.stop();
+    }
+
+    public boolean isEnabled() {
+        return appConfiguration.getClientAccessTimeFlushIntervalInSeconds() > 0;
+    }
+
+    /**
+     * Records access time of client, it is written to persistence on next flush.
+     */
+    public void touch(String clientDn, Date accessTime, boolean updateLogonTime) {
+        if (accessTime != null) {
+            writer.put(clientDn, new AccessTime(accessTime, updateLogonTime ? accessTime : null));
+        }
+    }
+
+    /**
+     * @return not flushed access time of client or null
+     */
+    public Date getLastAccessTime(String clientDn) {
+        final AccessTime accessTime = writer.get(clientDn);
+        return accessTime != null ? accessTime.lastAccessTime : null;
+    }
+
+    /**
+     * @return not flushed logon time of client or null
+     */
+    public Date getLastLogonTime(String clientDn) {
+        final AccessTime accessTime = writer.get(clientDn);
+        return accessTime != null ? accessTime.lastLogonTime : null;
+    }
+
+    public void remove(String clientDn) {
+        writer.remove(clientDn);
+    }
+
+    public void flush() {
+        writer.flush();
+    }
+
+    private void write(String clientDn, AccessTime accessTime) {
+        try {
+            writeAccessTime(clientDn, accessTime);
+        } catch (Exception e) {
+            log.error("Failed to update jansLastAccessTime and jansLastLogonTime of client '{}'", clientDn);
+            log.trace("Failed to update client:", e);
+        }
+    }
+
+    private void writeAccessTime(String clientDn, AccessTime accessTime) {
+        final CustomEntry customEntry = new CustomEntry();
+        customEntry.setDn(clientDn);
+        customEntry.setCustomObjectClasses(ClientService.CLIENT_OBJECT_CLASSES);
+        customEntry.getCustomAttributes().add(new CustomAttribute("jansLastAccessTime", persistenceEntryManager.encodeTime(clientDn, accessTime.lastAccessTime)));
+        if (accessTime.lastLogonTime != null) {
+            customEntry.getCustomAttributes().add(new CustomAttribute("jansLastLogonTime", persistenceEntryManager.encodeTime(clientDn, accessTime.lastLogonTime)));
+        }
+        persistenceEntryManager.merge(customEntry);
+    }
+
+    private static class AccessTime {
+
+        private final Date lastAccessTime;
+        private final Date lastLogonTime;
+
+        private AccessTime(Date lastAccessTime, Date lastLogonTime) {
+            this.lastAccessTime = lastAccessTime;
+            this.lastLogonTime = lastLogonTime;
+        }
+
+        private static AccessTime latest(AccessTime existing, AccessTime value) {
+            return new AccessTime(max(existing.lastAccessTime, value.lastAccessTime), max(existing.lastLogonTime, value.lastLogonTime));
+        }
+
+        private static Date max(Date date1, Date date2) {
+            if (date1 == null) {
+                return date2;
+            }
+            if (date2 == null) {
+                return date1;
+            }
+            return date2.after(date1) ? date2 : date1;
+        }
+    }
+}
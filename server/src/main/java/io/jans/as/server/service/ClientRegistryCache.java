@@ -0,0 +1,242 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.jans.as.common.model.registration.Client;
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.as.server.util.ServerUtil;
+import io.jans.orm.PersistenceEntryManager;
+import io.jans.orm.exception.EntryPersistenceException;
+import io.jans.service.BaseCacheService;
+import io.jans.service.CacheService;
+import io.jans.service.LocalCacheService;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads clients by dn through cache.
+ * <p>
+ * Concurrent loads of the same client are coalesced into single persistence call (single-flight), dns which are
+ * confirmed as not existing are remembered locally for NEGATIVE_LIFETIME_IN_SECONDS (failed load is not remembered), and client which is accessed close to expiration of the entry
+ * loaded by this node is re-loaded in background (refresh-ahead), so hot clients never expire under load.
+ */
+@ApplicationScoped
+@Named
+public class ClientRegistryCache {
+
+    public static final String HIT_COUNTER = "client_cache_hit";
+    public static final String MISS_COUNTER = "client_cache_miss";
+    public static final String NEGATIVE_HIT_COUNTER = "client_cache_negative_hit";
+    public static final String COALESCED_LOAD_COUNTER = "client_cache_coalesced_load";
+    public static final String REFRESH_AHEAD_COUNTER = "client_cache_refresh_ahead";
+    public static final String LOAD_TIMER = "client_cache_load";
+
+    private static final int CLIENT_LIFETIME_IN_SECONDS = 60;
+    private static final int NEGATIVE_LIFETIME_IN_SECONDS = 10;
+    private static final long REFRESH_AHEAD_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(CLIENT_LIFETIME_IN_SECONDS) * 4 / 5;
+    private static final int MAX_ENTRIES = 10000;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private PersistenceEntryManager ldapEntryManager;
+
+    @Inject
+    private CacheService cacheService;
+
+    @Inject
+    private LocalCacheService localCacheService;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private MetricService metricService;
+
+    private final Cache<String, Boolean> missing = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(NEGATIVE_LIFETIME_IN_SECONDS, TimeUnit.SECONDS).build();
+
+    // time when client was loaded by this node, used to decide about refresh-ahead
+    private final Cache<String, Long> loadedAt = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(CLIENT_LIFETIME_IN_SECONDS, TimeUnit.SECONDS).build();
+
+    private final ConcurrentMap<String, CompletableFuture<Client>> loading = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = ServerUtil.createExecutor();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public Client getClientByDn(String dn) {
+        if (StringUtils.isBlank(dn)) {
+            return null;
+        }
+
+        if (missing.getIfPresent(dn) != null) {
+            metricService.incCounter(NEGATIVE_HIT_COUNTER, 1);
+            return null;
+        }
+
+        final Object cached = getFromCache(dn);
+        if (cached instanceof Client) {
+            metricService.incCounter(HIT_COUNTER, 1);
+            refreshAheadIfNeeded(dn);
+            return (Client) cached;
+        }
+
+        metricService.incCounter(MISS_COUNTER, 1);
+        return load(dn);
+    }
+
+    public void remove(String dn) {
+        if (dn == null) {
+            return;
+        }
+
+        missing.invalidate(dn);
+        loadedAt.invalidate(dn);
+        loading.remove(dn);
+        try {
+            getCacheService().remove(dn);
+        } catch (Exception e) {
+            log.error("Failed to remove client from cache." + dn, e);
+        }
+    }
+
+    private Client load(String dn) {
+        final CompletableFuture<Client> future = new CompletableFuture<>();
+        final CompletableFuture<Client> inFlight = loading.putIfAbsent(dn, future);
+        if (inFlight != null) {
+            metricService.incCounter(COALESCED_LOAD_COUNTER, 1);
+            try {
+                return inFlight.join();
+            } catch (Exception e) {
+                log.trace(e.getMessage(), e);
+                return null;
+            }
+        }
+
+        Client client = null;
+        try {
+            client = loadFromPersistence(dn, future);
+        } finally {
+            loading.remove(dn, future);
+            future.complete(client);
+        }
+        return client;
+    }
+
+    private Client loadFromPersistence(String dn, CompletableFuture<Client> future) {
+        final long start = System.nanoTime();
+        try {
+            final Client client = ldapEntryManager.find(Client.class, dn);
+
+            // do not cache result if client was removed/updated while loading
+            if (loading.get(dn) == future) {
+                if (client != null) {
+                    getCacheService().put(CLIENT_LIFETIME_IN_SECONDS, dn, client);
+                    loadedAt.put(dn, System.currentTimeMillis());
+                } else {
+                    missing.put(dn, Boolean.TRUE);
+                }
+            }
+            return client;
+        } catch (EntryPersistenceException e) {
+            log.trace("Failed to find client by dn: " + dn, e);
+            if (loading.get(dn) == future && isConfirmedMissing(dn)) {
+                missing.put(dn, Boolean.TRUE);
+            }
+            return null;
+        } catch (Exception e) {
+            log.trace(e.getMessage(), e);
+            return null;
+        } finally {
+            metricService.updateTimer(LOAD_TIMER, System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Find fails with the same exception for missing entry and for transient persistence error, so only client which
+     * persistence confirms as not existing is remembered as missing.
+     */
+    private boolean isConfirmedMissing(String dn) {
+        try {
+            return !ldapEntryManager.contains(dn, Client.class);
+        } catch (Exception e) {
+            log.trace("Failed to check whether client exists, dn: " + dn, e);
+            return false;
+        }
+    }
+
+    private void refreshAheadIfNeeded(String dn) {
+        final Long loadedTime = loadedAt.getIfPresent(dn);
+        if (loadedTime == null || System.currentTimeMillis() - loadedTime < REFRESH_AHEAD_AFTER_MILLIS) {
+            return;
+        }
+        if (!refreshing.add(dn)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    metricService.incCounter(REFRESH_AHEAD_COUNTER, 1);
+                    load(dn);
+                } finally {
+                    refreshing.remove(dn);
+                }
+            });
+        } catch (Exception e) { // rejected, e.g. on shutdown
+            refreshing.remove(dn);
+            log.trace("Failed to schedule refresh of client " + dn, e);
+        }
+    }
+
+    private Object getFromCache(String dn) {
+        try {
+            return getCacheService().get(dn);
+        } catch (Exception e) {
+            log.trace(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private BaseCacheService getCacheService() {
+        if (appConfiguration.getUseLocalCache()) {
+            return localCacheService;
+        }
+
+        return cacheService;
+    }
+}
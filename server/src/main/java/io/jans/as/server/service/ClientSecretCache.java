@@ -0,0 +1,127 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.jans.as.common.model.registration.Client;
+import io.jans.as.common.service.common.EncryptionService;
+import io.jans.util.security.StringEncrypter.EncryptionException;
+import org.apache.commons.lang.StringUtils;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps decrypted client secrets (used as HMAC keys) and salted digests of them (used to verify client
+ * authentication) in memory, so secret is decrypted once per client per SECRET_LIFETIME_IN_MINUTES instead of
+ * several times per request.
+ * <p>
+ * Entries are keyed by client dn and are valid only for the encrypted secret they were created from, so rotated
+ * secret is never served from cache. Entries never leave this bean (they are not put into distributed cache).
+ */
+@ApplicationScoped
+@Named
+public class ClientSecretCache {
+
+    private static final int SECRET_LIFETIME_IN_MINUTES = 5;
+    private static final int MAX_CLIENTS = 10000;
+
+    @Inject
+    private EncryptionService encryptionService;
+
+    private final byte[] salt = new byte[32];
+
+    private final Cache<String, SecretEntry> secrets = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CLIENTS)
+            .expireAfterWrite(SECRET_LIFETIME_IN_MINUTES, TimeUnit.MINUTES).build();
+
+    public ClientSecretCache() {
+        new SecureRandom().nextBytes(salt);
+    }
+
+    public String getDecryptedSecret(Client client) throws EncryptionException {
+        final SecretEntry entry = getEntry(client);
+        return entry != null ? entry.decryptedSecret : null;
+    }
+
+    /**
+     * Compares password with client secret in constant time.
+     */
+    public boolean verify(Client client, String password) throws EncryptionException {
+        if (password == null) {
+            return false;
+        }
+
+        final SecretEntry entry = getEntry(client);
+        if (entry == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(entry.digest, digest(password));
+    }
+
+    public void remove(String clientDn) {
+        if (clientDn != null) {
+            secrets.invalidate(clientDn);
+        }
+    }
+
+    private SecretEntry getEntry(Client client) throws EncryptionException {
+        final String encryptedSecret = client.getClientSecret();
+        if (StringUtils.isBlank(client.getDn())) {
+            return createEntry(encryptedSecret);
+        }
+
+        final SecretEntry cached = secrets.getIfPresent(client.getDn());
+        if (cached != null && StringUtils.equals(cached.encryptedSecret, encryptedSecret)) {
+            return cached;
+        }
+
+        final SecretEntry entry = createEntry(encryptedSecret);
+        if (entry != null) {
+            secrets.put(client.getDn(), entry);
+        }
+        return entry;
+    }
+
+    private SecretEntry createEntry(String encryptedSecret) throws EncryptionException {
+        final String decryptedSecret = encryptionService.decrypt(encryptedSecret);
+        if (decryptedSecret == null) {
+            return null;
+        }
+        return new SecretEntry(encryptedSecret, decryptedSecret, digest(decryptedSecret));
+    }
+
+    private byte[] digest(String secret) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(salt);
+            return messageDigest.digest(secret.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class SecretEntry {
+
+        private final String encryptedSecret;
+        private final String decryptedSecret;
+        private final byte[] digest;
+
+        private SecretEntry(String encryptedSecret, String decryptedSecret, byte[] digest) {
+            this.encryptedSecret = encryptedSecret;
+            this.decryptedSecret = decryptedSecret;
+            this.digest = digest;
+        }
+    }
+}
@@ -18,9 +18,6 @@ import io.jans.orm.PersistenceEntryManager;
 import io.jans.orm.exception.EntryPersistenceException;
 import io.jans.orm.model.base.CustomAttribute;
 import io.jans.orm.model.base.CustomEntry;
-import io.jans.service.BaseCacheService;
-import io.jans.service.CacheService;
-import io.jans.service.LocalCacheService;
 import io.jans.util.StringHelper;
 import io.jans.util.security.StringEncrypter;
 import io.jans.util.security.StringEncrypter.EncryptionException;
@@ -53,10 +50,7 @@ public class ClientService {
 	private PersistenceEntryManager ldapEntryManager;
 
 	@Inject
-	private CacheService cacheService;
-
-    @Inject
-    private LocalCacheService localCacheService;
+	private ClientRegistryCache clientRegistryCache;
 
 	@Inject
 	private ScopeService scopeService;
@@ -64,14 +58,21 @@ public class ClientService {
 	@Inject
 	private EncryptionService encryptionService;
 
+	@Inject
+	private ClientSecretCache clientSecretCache;
+
 	@Inject
 	private AppConfiguration appConfiguration;
 
 	@Inject
 	private StaticConfiguration staticConfiguration;
 
+	@Inject
+	private ClientAccessTimeTracker clientAccessTimeTracker;
+
 	public void persist(Client client) {
 		ldapEntryManager.persist(client);
+		clientRegistryCache.remove(client.getDn()); // drop negative entry if dn was looked up before registration
 	}
 
 	public void merge(Client client) {
@@ -98,8 +99,7 @@ public class ClientService {
 				log.debug("Failed to find client = {}", clientId);
 				return authenticated;
 			}
-			String decryptedClientSecret = decryptSecret(client.getClientSecret());
-			authenticated = client != null && decryptedClientSecret != null && decryptedClientSecret.equals(password);
+			authenticated = clientSecretCache.verify(client, password);
 		} catch (StringEncrypter.EncryptionException e) {
 			log.error(e.getMessage(), e);
 		}
@@ -183,13 +183,7 @@ public class ClientService {
 	 * @return Client
 	 */
 	public Client getClientByDn(String dn) {
-		BaseCacheService usedCacheService = getCacheService();
-	    try {
-            return usedCacheService.getWithPut(dn, () -> ldapEntryManager.find(Client.class, dn), 60);
-        } catch (Exception e) {
-	        log.trace(e.getMessage(), e);
-	        return null;
-        }
+		return clientRegistryCache.getClientByDn(dn);
 	}
 
 	public io.jans.orm.model.base.CustomAttribute getCustomAttribute(Client client, String attributeName) {
@@ -241,17 +235,18 @@ public class ClientService {
 			removeFromCache(client);
 
 			String clientDn = client.getDn();
+			clientAccessTimeTracker.remove(clientDn);
 			ldapEntryManager.removeRecursively(clientDn);
 		}
 	}
 
 	private void removeFromCache(Client client) {
-		BaseCacheService usedCacheService = getCacheService();
-		try {
-			usedCacheService.remove(client.getDn());
-		} catch (Exception e) {
-			log.error("Failed to remove client from cache." + client.getDn(), e);
-		}
+		clientSecretCache.remove(client.getDn());
+		removeClientFromCache(client);
+	}
+
+	private void removeClientFromCache(Client client) {
+		clientRegistryCache.remove(client.getDn());
 	}
 
 	public void updateAccessTime(Client client, boolean isUpdateLogonTime) {
@@ -260,12 +255,17 @@ public class ClientService {
 		}
 
 		String clientDn = client.getDn();
+		Date now = new GregorianCalendar(TimeZone.getTimeZone("UTC")).getTime();
+
+		if (clientAccessTimeTracker.isEnabled()) {
+			clientAccessTimeTracker.touch(clientDn, now, isUpdateLogonTime); // cached client is kept as is
+			return;
+		}
 
 		CustomEntry customEntry = new CustomEntry();
 		customEntry.setDn(clientDn);
 		customEntry.setCustomObjectClasses(CLIENT_OBJECT_CLASSES);
 
-		Date now = new GregorianCalendar(TimeZone.getTimeZone("UTC")).getTime();
 		String nowDateString = ldapEntryManager.encodeTime(customEntry.getDn(), now);
 
 		CustomAttribute customAttributeLastAccessTime = new CustomAttribute("jansLastAccessTime", nowDateString);
@@ -286,6 +286,29 @@ public class ClientService {
 		removeFromCache(client);
 	}
 
+	/**
+	 * Returns last access time of client including access time which is not flushed yet (see
+	 * {@link ClientAccessTimeTracker}). Client is not modified.
+	 */
+	public Date getLastAccessTime(Client client) {
+		return latest(client.getLastAccessTime(), clientAccessTimeTracker.getLastAccessTime(client.getDn()));
+	}
+
+	/**
+	 * Returns last logon time of client including logon time which is not flushed yet (see
+	 * {@link ClientAccessTimeTracker}). Client is not modified.
+	 */
+	public Date getLastLogonTime(Client client) {
+		return latest(client.getLastLogonTime(), clientAccessTimeTracker.getLastLogonTime(client.getDn()));
+	}
+
+	private static Date latest(Date persisted, Date pending) {
+		if (pending == null) {
+			return persisted;
+		}
+		return persisted == null || pending.after(persisted) ? pending : persisted;
+	}
+
 	public Object getAttribute(Client client, String clientAttribute) throws InvalidClaimException {
 		Object attribute = null;
 
@@ -343,16 +366,16 @@ public class ClientService {
 		return encryptionService.decrypt(encryptedClientSecret);
 	}
 
+	/**
+	 * Returns decrypted client secret. Secret is decrypted once and then served from {@link ClientSecretCache}
+	 * until client secret is changed or client is evicted from cache.
+	 */
+	public String decryptSecret(Client client) throws EncryptionException {
+		return clientSecretCache.getDecryptedSecret(client);
+	}
+
 	public String encryptSecret(String clientSecret) throws EncryptionException {
 		return encryptionService.encrypt(clientSecret);
 	}
 
-    private BaseCacheService getCacheService() {
-    	if (appConfiguration.getUseLocalCache()) {
-    		return localCacheService;
-    	}
-    	
-    	return cacheService;
-    }
-
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import io.jans.as.server.util.ServerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Keeps latest value per key in memory and writes it every flush interval, so key updated by many requests is
+ * written at most once per interval. Value updated during flush stays pending till next flush.
+ * <p>
+ * Value which failed to be written is logged and not retried. Failure of one value (or of flushed callback) does not
+ * stop scheduled flushes.
+ *
+ * @param <V> value type
+ */
+public class CoalescingWriter<V> {
+
+    private static final Logger log = LoggerFactory.getLogger(CoalescingWriter.class);
+
+    private final BinaryOperator<V> merger;
+    private final BiConsumer<String, V> writer;
+    private final IntSupplier flushIntervalInSeconds;
+    private final IntConsumer flushed;
+
+    private final ConcurrentMap<String, V> pending = new ConcurrentHashMap<>();
+
+    private volatile long lastFlushTime = System.currentTimeMillis();
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param merger                 merges pending value with new one
+     * @param writer                 writes value of the key
+     * @param flushIntervalInSeconds flush interval (read on each check, so configuration change is applied)
+     * @param flushed                receives number of written values after each flush
+     */
+    public CoalescingWriter(BinaryOperator<V> merger, BiConsumer<String, V> writer, IntSupplier flushIntervalInSeconds, IntConsumer flushed) {
+        this.merger = merger;
+        this.writer = writer;
+        this.flushIntervalInSeconds = flushIntervalInSeconds;
+        this.flushed = flushed;
+    }
+
+    public void start() {
+        executor = ServerUtil.createExecutor();
+        executor.scheduleWithFixedDelay(this::flushIfNeeded, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops scheduled flushes and writes pending values.
+     */
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        flush();
+    }
+
+    public void put(String key, V value) {
+        if (key != null && value != null) {
+            pending.merge(key, value, merger);
+        }
+    }
+
+    /**
+     * @return not written value or null
+     */
+    public V get(String key) {
+        return key != null ? pending.get(key) : null;
+    }
+
+    /**
+     * Replaces pending value of the key, value is dropped if function returns null.
+     */
+    public void computeIfPresent(String key, BiFunction<String, V, V> function) {
+        if (key != null) {
+            pending.computeIfPresent(key, function);
+        }
+    }
+
+    public void remove(String key) {
+        if (key != null) {
+            pending.remove(key);
+        }
+    }
+
+    // exception must not escape, it would cancel scheduled flushes and pending values would grow forever
+    private void flushIfNeeded() {
+        try {
+            final long interval = TimeUnit.SECONDS.toMillis(Math.max(0, flushIntervalInSeconds.getAsInt()));
+            if (System.currentTimeMillis() - lastFlushTime >= interval) {
+                flush();
+            }
+        } catch (Throwable e) {
+            log.error("Failed to flush pending values", e);
+        }
+    }
+
+    public void flush() {
+        lastFlushTime = System.currentTimeMillis();
+
+        final Map<String, V> batch = drain();
+        int written = 0;
+        for (Map.Entry<String, V> entry : batch.entrySet()) {
+            try {
+                writer.accept(entry.getKey(), entry.getValue());
+                written++;
+            } catch (Exception e) {
+                log.error("Failed to write pending value of " + entry.getKey(), e);
+            }
+        }
+
+        try {
+            flushed.accept(written);
+        } catch (Exception e) {
+            log.error("Failed to report flushed values", e);
+        }
+    }
+
+    private Map<String, V> drain() {
+        final Map<String, V> batch = new HashMap<>();
+        for (Map.Entry<String, V> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) { // newer value stays till next flush
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return batch;
+    }
+}
@@ -27,7 +27,12 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 import static io.jans.as.server.util.ServerUtil.isTrue;
@@ -41,6 +46,10 @@ import static io.jans.as.server.util.ServerUtil.isTrue;
 @Named
 public class GrantService {
 
+    public static final String BATCH_ROUND_TRIPS_SAVED_COUNTER = "token_batch_round_trips_saved";
+
+    private static final ThreadLocal<TokenBatch> BATCH = new ThreadLocal<>();
+
     @Inject
     private Logger log;
 
@@ -62,6 +71,15 @@ public class GrantService {
     @Inject
     private CacheConfiguration cacheConfiguration;
 
+    @Inject
+    private MetricService metricService;
+
+    @Inject
+    private TokenWriteBehindService tokenWriteBehindService;
+
+    @Inject
+    private TokenRevocationFilter tokenRevocationFilter;
+
     public static String generateGrantId() {
         return UUID.randomUUID().toString();
     }
@@ -80,7 +98,7 @@ public class GrantService {
 
     public void mergeSilently(TokenLdap p_token) {
         try {
-            persistenceEntryManager.merge(p_token);
+            merge(p_token);
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
@@ -105,11 +123,143 @@ public class GrantService {
     }
 
     public void persist(TokenLdap token) {
+        final TokenBatch batch = BATCH.get();
+        if (batch != null) {
+            batch.tokens.add(token);
+            return;
+        }
         persistenceEntryManager.persist(token);
     }
 
+    /**
+     * Starts unit of work bound to current thread. Tokens passed to {@link #persist(TokenLdap)} are collected and
+     * written by {@link #flushBatch()}, grant state is merged into previously persisted tokens by write-behind.
+     * Must be used in try-with-resources, so unit of work is ended on every path. Tokens which were not flushed
+     * (e.g. request failed) are discarded on close.
+     */
+    public TokenBatch beginBatch() {
+        final TokenBatch batch = new TokenBatch();
+        BATCH.set(batch);
+        return batch;
+    }
+
+    public boolean isBatchActive() {
+        return BATCH.get() != null;
+    }
+
+    /**
+     * Writes tokens collected by current unit of work and schedules merge of grant state into tokens persisted
+     * before it. Unit of work stays active, so tokens created after flush are collected again.
+     */
+    public void flushBatch() {
+        final TokenBatch batch = BATCH.get();
+        if (batch == null) {
+            return;
+        }
+
+        final Set<String> persistedDns = new HashSet<>();
+        for (TokenLdap token : batch.tokens) {
+            persistenceEntryManager.persist(token);
+            persistedDns.add(token.getDn());
+        }
+        for (Map.Entry<String, TokenLdap> entry : batch.grantStates.entrySet()) {
+            tokenWriteBehindService.merge(entry.getKey(), entry.getValue(), persistedDns);
+        }
+
+        // only I/O which is really eliminated: merges of not yet persisted tokens which were applied in memory and
+        // saves of grant state which were superseded by later save of the same grant (merged once by write-behind)
+        final int saved = batch.mergesInMemory + (batch.deferredSaves - batch.grantStates.size());
+        if (saved > 0) {
+            metricService.incCounter(BATCH_ROUND_TRIPS_SAVED_COUNTER, saved);
+        }
+        log.trace("Flushed token batch, persisted: {}, write-behind grants: {}", batch.tokens.size(), batch.grantStates.size());
+
+        batch.clear();
+    }
+
+    /**
+     * Saves grant state into tokens of the grant. In unit of work pending tokens are updated in memory and
+     * persisted tokens are updated by write-behind on flush, otherwise tokens are merged immediately.
+     *
+     * @param grantId grant id
+     * @param state   token holding grant state
+     */
+    public void saveGrantState(String grantId, TokenLdap state) {
+        final TokenBatch batch = BATCH.get();
+        if (batch == null) {
+            mergeGrantState(grantId, state, Collections.emptySet());
+            return;
+        }
+
+        for (TokenLdap token : batch.tokens) {
+            if (grantId.equals(token.getGrantId()) && applyGrantState(state, token)) {
+                batch.mergesInMemory++;
+            }
+        }
+
+        if (isTrue(appConfiguration.getTokenWriteBehindEnabled())) {
+            batch.grantStates.put(grantId, state);
+            batch.deferredSaves++;
+        } else {
+            mergeGrantState(grantId, state, Collections.emptySet());
+        }
+    }
+
+    /**
+     * Merges grant state into tokens of the grant found by grtId search. Tokens which already have given state are
+     * not merged, so repeated save of unchanged grant costs only the search.
+     *
+     * @return number of merged tokens
+     */
+    public int mergeGrantState(String grantId, TokenLdap state, Set<String> skipDns) {
+        int merged = 0;
+        for (TokenLdap token : getGrantsByGrantId(grantId)) {
+            if (skipDns.contains(token.getDn()) || !applyGrantState(state, token)) {
+                continue;
+            }
+            log.debug("Saving grant: " + grantId + ", code_challenge: " + token.getCodeChallenge());
+            mergeSilently(token);
+            merged++;
+        }
+        return merged;
+    }
+
+    /**
+     * @return true if token is changed
+     */
+    public static boolean applyGrantState(TokenLdap state, TokenLdap token) {
+        boolean changed = false;
+        if (state.getNonce() != null && !state.getNonce().equals(token.getNonce())) {
+            token.setNonce(state.getNonce());
+            changed = true;
+        }
+        if (StringUtils.isNotBlank(state.getJwtRequest()) && !state.getJwtRequest().equals(token.getJwtRequest())) {
+            token.setJwtRequest(state.getJwtRequest());
+            changed = true;
+        }
+        changed |= !Objects.equals(token.getScope(), state.getScope())
+                || !Objects.equals(token.getAuthMode(), state.getAuthMode())
+                || !Objects.equals(token.getSessionDn(), state.getSessionDn())
+                || !Objects.equals(token.getAuthenticationTime(), state.getAuthenticationTime())
+                || !Objects.equals(token.getCodeChallenge(), state.getCodeChallenge())
+                || !Objects.equals(token.getCodeChallengeMethod(), state.getCodeChallengeMethod())
+                || !Objects.equals(token.getClaims(), state.getClaims());
+
+        token.setScope(state.getScope());
+        token.setAuthMode(state.getAuthMode());
+        token.setSessionDn(state.getSessionDn());
+        token.setAuthenticationTime(state.getAuthenticationTime());
+        token.setCodeChallenge(state.getCodeChallenge());
+        token.setCodeChallengeMethod(state.getCodeChallengeMethod());
+        token.setClaims(state.getClaims());
+        return changed;
+    }
+
     public void remove(TokenLdap p_token) {
         persistenceEntryManager.remove(p_token);
+        if (tokenRevocationFilter.isEnabled()) {
+            tokenRevocationFilter.revoke(StringUtils.isNotBlank(p_token.getTokenCode()) ? p_token.getTokenCode() : hashedCodeFromDn(p_token.getDn()));
+        }
         log.trace("Removed token from LDAP, code: " + p_token.getTokenCode());
     }
 
@@ -174,6 +324,14 @@ public class GrantService {
         }
     }
 
+    // dn is built by buildDn(): tknCde=<hashed code>,<tokens base dn>
+    private static String hashedCodeFromDn(String dn) {
+        if (dn == null || !dn.startsWith("tknCde=") || dn.indexOf(',') < 0) {
+            return null;
+        }
+        return dn.substring("tknCde=".length(), dn.indexOf(','));
+    }
+
     private TokenLdap load(String p_tokenDn) {
         try {
             final TokenLdap entry = persistenceEntryManager.find(TokenLdap.class, p_tokenDn);
@@ -262,4 +420,32 @@ public class GrantService {
         removeSilently(getGrantsByGrantId(p_grantId));
     }
 
-}
\ No newline at end of file
+    /**
+     * Unit of work bound to current thread, see {@link #beginBatch()}.
+     */
+    public static final class TokenBatch implements AutoCloseable {
+
+        private final List<TokenLdap> tokens = new ArrayList<>();
+        private final Map<String, TokenLdap> grantStates = new LinkedHashMap<>();
+        private int deferredSaves;
+        private int mergesInMemory;
+
+        private TokenBatch() {
+        }
+
+        private void clear() {
+            tokens.clear();
+            grantStates.clear();
+            deferredSaves = 0;
+            mergesInMemory = 0;
+        }
+
+        @Override
+        public void close() {
+            if (BATCH.get() == this) {
+                BATCH.remove();
+            }
+            clear();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.jans.as.common.model.registration.Client;
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.as.model.util.JwtUtil;
+import io.jans.as.server.service.net.HttpService;
+import io.jans.as.server.util.ServerUtil;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.jans.as.model.jwk.JWKParameter.JSON_WEB_KEY_SET;
+import static io.jans.as.model.jwk.JWKParameter.KEY_ID;
+
+/**
+ * Resolves client JWKS (jwks_uri or inline jwks) with per-URI caching.
+ * <p>
+ * Lifetime of cached JWKS is taken from Cache-Control max-age of the response (falls back to
+ * jwksCacheLifetimeInMinutes), revalidation is done with If-None-Match when ETag is available.
+ * Entry is refreshed in background shortly before it expires, previous JWKS is served meanwhile. JWKS is fetched
+ * with shared outbound http client (with connect/read timeouts), no lock is held while fetching. Unknown kid
+ * triggers single (per URI) forced re-fetch which is rate limited, so random kids can't be used to hammer RP's jwks_uri.
+ * <p>
+ * The same JSONObject instance is returned while entry is not changed, so parsed public keys are
+ * re-used by {@link io.jans.as.model.crypto.AbstractCryptoProvider#getPublicKey(String, JSONObject, io.jans.as.model.jwk.Algorithm)}.
+ */
+@ApplicationScoped
+@Named
+public class JwksResolverService {
+
+    private static final long MIN_LIFETIME_IN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAX_LIFETIME_IN_MILLIS = TimeUnit.HOURS.toMillis(24);
+    private static final long ERROR_RETRY_IN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long FORCED_REFRESH_INTERVAL_IN_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final double REFRESH_AHEAD_FACTOR = 0.8;
+    private static final int MAX_CACHED_URIS = 10000;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private HttpService httpService;
+
+    private final Cache<String, JwksEntry> uriCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_URIS)
+            .expireAfterAccess(1, TimeUnit.DAYS).build();
+
+    private final Cache<String, JSONObject> inlineCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_URIS)
+            .expireAfterAccess(1, TimeUnit.HOURS).build();
+
+    private ScheduledExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        refreshExecutor = ServerUtil.createExecutor();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns client's JWKS, inline jwks has precedence over jwks_uri (same as in client validation).
+     */
+    public JSONObject getJwks(Client client, String kid) {
+        if (client == null) {
+            return null;
+        }
+        if (!Strings.isNullOrEmpty(client.getJwks())) {
+            return getInlineJwks(client.getJwks());
+        }
+        return getJwks(client.getJwksUri(), kid);
+    }
+
+    public JSONObject getJwks(String jwksUri) {
+        return getJwks(jwksUri, null);
+    }
+
+    /**
+     * Returns JWKS by jwks_uri. If kid is specified and it is not present in cached JWKS then JWKS is re-fetched
+     * (at most once per FORCED_REFRESH_INTERVAL_IN_MILLIS per URI).
+     */
+    public JSONObject getJwks(String jwksUri, String kid) {
+        if (StringUtils.isBlank(jwksUri)) {
+            return null;
+        }
+
+        final JwksEntry entry;
+        try {
+            entry = uriCache.get(jwksUri, () -> new JwksEntry(jwksUri));
+        } catch (ExecutionException e) {
+            log.error("Failed to get jwks entry for " + jwksUri, e);
+            return JwtUtil.getJSONWebKeys(jwksUri);
+        }
+
+        JSONObject jwks = getValid(entry);
+        if (StringUtils.isBlank(kid) || containsKid(jwks, kid)) {
+            return jwks;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (now - entry.forcedRefreshAt < FORCED_REFRESH_INTERVAL_IN_MILLIS) {
+            log.trace("Skipped forced jwks re-fetch (too frequent), kid: {}, jwks_uri: {}", kid, jwksUri);
+            return entry.jwks;
+        }
+        entry.forcedRefreshAt = now;
+        log.debug("Unknown kid {}, re-fetching jwks_uri: {}", kid, jwksUri);
+        return fetchOrJoin(entry);
+    }
+
+    public void invalidate(String jwksUri) {
+        if (StringUtils.isNotBlank(jwksUri)) {
+            uriCache.invalidate(jwksUri);
+        }
+    }
+
+    private JSONObject getInlineJwks(String jwks) {
+        try {
+            return inlineCache.get(jwks, () -> new JSONObject(jwks));
+        } catch (Exception e) {
+            log.error("Failed to parse jwks: " + jwks, e);
+            return null;
+        }
+    }
+
+    private JSONObject getValid(JwksEntry entry) {
+        final JSONObject jwks = entry.jwks;
+        if (jwks == null) {
+            return fetchOrJoin(entry); // nothing to serve yet, wait for (single) fetch
+        }
+
+        if (System.currentTimeMillis() >= entry.refreshAt) {
+            scheduleRefresh(entry); // previous jwks is served till refresh is done
+        }
+        return jwks;
+    }
+
+    private void scheduleRefresh(JwksEntry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    if (System.currentTimeMillis() >= entry.refreshAt) {
+                        fetchOrJoin(entry);
+                    }
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (Exception e) {
+            entry.refreshing.set(false);
+            log.trace("Failed to schedule jwks refresh for " + entry.jwksUri, e);
+        }
+    }
+
+    /**
+     * Fetches jwks or waits for fetch which is already in progress (at most one fetch per URI at a time). No lock is
+     * held while fetching, fetch is bounded by timeouts of outbound http client.
+     */
+    private JSONObject fetchOrJoin(JwksEntry entry) {
+        final CompletableFuture<JSONObject> future = new CompletableFuture<>();
+        if (!entry.inFlight.compareAndSet(null, future)) {
+            final CompletableFuture<JSONObject> inFlight = entry.inFlight.get();
+            if (inFlight == null) {
+                return entry.jwks; // fetch is just finished
+            }
+            try {
+                return inFlight.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return entry.jwks;
+            } catch (ExecutionException e) {
+                return entry.jwks;
+            }
+        }
+
+        try {
+            fetch(entry);
+        } finally {
+            entry.inFlight.set(null);
+            future.complete(entry.jwks);
+        }
+        return entry.jwks;
+    }
+
+    /**
+     * On failure previously fetched JWKS (if any) is kept and re-fetch is retried after ERROR_RETRY_IN_MILLIS. If
+     * there is no previously fetched JWKS then failure is not remembered, next request tries again.
+     */
+    private void fetch(JwksEntry entry) {
+        final long now = System.currentTimeMillis();
+        final HttpGet request = new HttpGet(entry.jwksUri);
+        if (entry.jwks != null && StringUtils.isNotBlank(entry.etag)) {
+            request.setHeader("If-None-Match", entry.etag);
+        }
+
+        try (CloseableHttpResponse response = httpService.getOutboundHttpClient().execute(request)) {
+            final int status = response.getStatusLine().getStatusCode();
+            log.trace("Fetched jwks_uri: {}, status: {}", entry.jwksUri, status);
+
+            if (status == 304 && entry.jwks != null) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                updateLifetime(entry, response, now);
+                return;
+            }
+
+            if (status == 200) {
+                entry.jwks = JwtUtil.fromJson(EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8));
+                entry.etag = getHeader(response, "ETag");
+                updateLifetime(entry, response, now);
+                log.debug("Cached jwks_uri: {}, etag: {}, refresh in {}ms", entry.jwksUri, entry.etag, entry.refreshAt - now);
+                return;
+            }
+
+            EntityUtils.consumeQuietly(response.getEntity());
+            log.error("Failed to fetch jwks_uri: {}, status: {}", entry.jwksUri, status);
+        } catch (Exception e) {
+            log.error("Failed to fetch jwks_uri: " + entry.jwksUri, e);
+        }
+
+        if (entry.jwks != null) {
+            entry.refreshAt = now + ERROR_RETRY_IN_MILLIS;
+        }
+    }
+
+    private void updateLifetime(JwksEntry entry, HttpResponse response, long now) {
+        long lifetime = parseMaxAge(getHeader(response, "Cache-Control"));
+        if (lifetime < 0) {
+            lifetime = TimeUnit.MINUTES.toMillis(appConfiguration.getJwksCacheLifetimeInMinutes());
+        }
+        lifetime = Math.max(MIN_LIFETIME_IN_MILLIS, Math.min(MAX_LIFETIME_IN_MILLIS, lifetime));
+
+        entry.refreshAt = now + (long) (lifetime * REFRESH_AHEAD_FACTOR);
+    }
+
+    private static String getHeader(HttpResponse response, String name) {
+        final Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    /**
+     * @return max-age in milliseconds, 0 for no-cache/no-store and -1 if not specified
+     */
+    static long parseMaxAge(String cacheControl) {
+        if (StringUtils.isBlank(cacheControl)) {
+            return -1;
+        }
+
+        for (String directive : cacheControl.split(",")) {
+            final String trimmed = directive.trim().toLowerCase();
+            if (trimmed.equals("no-cache") || trimmed.equals("no-store")) {
+                return 0;
+            }
+            if (trimmed.startsWith("max-age=")) {
+                try {
+                    return TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed.substring("max-age=".length()).trim()));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean containsKid(JSONObject jwks, String kid) {
+        if (jwks == null) {
+            return false;
+        }
+
+        final JSONArray keys = jwks.optJSONArray(JSON_WEB_KEY_SET);
+        if (keys == null) {
+            return false;
+        }
+        for (int i = 0; i < keys.length(); i++) {
+            final JSONObject key = keys.optJSONObject(i);
+            if (key != null && kid.equals(key.optString(KEY_ID))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class JwksEntry {
+
+        private final String jwksUri;
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+        private final AtomicReference<CompletableFuture<JSONObject>> inFlight = new AtomicReference<>();
+
+        private volatile JSONObject jwks;
+        private volatile String etag;
+        private volatile long refreshAt;
+        private volatile long forcedRefreshAt;
+
+        private JwksEntry(String jwksUri) {
+            this.jwksUri = jwksUri;
+        }
+    }
+}
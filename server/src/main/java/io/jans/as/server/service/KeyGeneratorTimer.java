@@ -12,9 +12,9 @@ import io.jans.as.model.config.WebKeysConfiguration;
 import io.jans.as.model.configuration.AppConfiguration;
 import io.jans.as.model.crypto.AbstractCryptoProvider;
 import io.jans.as.model.jwk.JSONWebKey;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.server.model.config.ConfigurationFactory;
 import io.jans.as.server.service.cdi.event.KeyGenerationEvent;
-import io.jans.as.server.util.ServerUtil;
 import io.jans.orm.PersistenceEntryManager;
 import io.jans.service.cdi.async.Asynchronous;
 import io.jans.service.cdi.event.Scheduled;
@@ -130,11 +130,12 @@ public class KeyGeneratorTimer {
         JSONObject jwks = conf.getWebKeys().toJSONObject();
         JSONObject updatedJwks =  updateKeys(jwks);
 
-        conf.setWebKeys(ServerUtil.createJsonMapper().readValue(updatedJwks.toString(), WebKeysConfiguration.class));
+        conf.setWebKeys(JsonMappers.readerFor(WebKeysConfiguration.class).readValue(updatedJwks.toString()));
 
         long nextRevision = conf.getRevision() + 1;
         conf.setRevision(nextRevision);
         ldapEntryManager.merge(conf);
+        cryptoProvider.clearKeyCache();
 
         log.info("Updated JWKS successfully");
         log.trace("JWKS keys: " + conf.getWebKeys().getKeys().stream().map(JSONWebKey::getKid).collect(Collectors.toList()));
@@ -6,8 +6,8 @@
 
 package io.jans.as.server.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jans.as.common.service.common.ConfigurationService;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.persistence.model.configuration.CustomProperty;
 import io.jans.as.persistence.model.configuration.GluuConfiguration;
 import io.jans.as.persistence.model.configuration.IDPAuthConf;
@@ -104,9 +104,7 @@ public class LdapCustomAuthenticationConfigurationService implements Serializabl
 	}
 
 	private Object jsonToObject(String json, Class<?> clazz) throws Exception {
-		ObjectMapper mapper = new ObjectMapper();
-		Object clazzObject = mapper.readValue(json, clazz);
-		return clazzObject;
+		return JsonMappers.readerFor(clazz).readValue(json);
 	}
 
 }
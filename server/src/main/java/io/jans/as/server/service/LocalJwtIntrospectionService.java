@@ -0,0 +1,174 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import io.jans.as.common.model.registration.Client;
+import io.jans.as.model.common.IntrospectionResponse;
+import io.jans.as.model.common.TokenType;
+import io.jans.as.model.config.WebKeysConfiguration;
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.as.model.crypto.AbstractCryptoProvider;
+import io.jans.as.model.crypto.signature.AlgorithmFamily;
+import io.jans.as.model.crypto.signature.SignatureAlgorithm;
+import io.jans.as.model.jwt.Jwt;
+import io.jans.as.model.jwt.JwtClaimName;
+import io.jans.as.server.model.common.AccessToken;
+import io.jans.as.server.service.external.ExternalIntrospectionService;
+import io.jans.as.server.util.ServerUtil;
+import io.jans.as.server.util.TokenHashUtil;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates access token issued as JWT (client with accessTokenAsJwt=true) locally: signature, issuer, exp/iat and
+ * {@link TokenRevocationFilter}, without persistence lookup. Only access tokens (not other JWTs issued by AS, e.g.
+ * id_token) signed with AS asymmetric key (RSA, EC) by algorithm configured for access tokens of the client are
+ * validated locally.
+ * <p>
+ * Enabled by introspectionLocalJwtValidationEnabled. Whenever token can't be validated locally with certainty (filter
+ * might contain token, filter is not synchronized, introspection scripts are configured, etc.) caller must fall back to
+ * regular grant lookup. Response is built from token claims, so it does not contain username and acr_values.
+ */
+@ApplicationScoped
+@Named
+public class LocalJwtIntrospectionService {
+
+    public static final String LOCAL_VALIDATION_COUNTER = "introspection_local_validation";
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private WebKeysConfiguration webKeysConfiguration;
+
+    @Inject
+    private AbstractCryptoProvider cryptoProvider;
+
+    @Inject
+    private ClientService clientService;
+
+    @Inject
+    private TokenRevocationFilter tokenRevocationFilter;
+
+    @Inject
+    private ExternalIntrospectionService externalIntrospectionService;
+
+    @Inject
+    private MetricService metricService;
+
+    /**
+     * Validates token locally and fills response.
+     *
+     * @param token    access token to introspect
+     * @param response response to fill (it is not touched if token is not validated locally)
+     * @return access token if token is validated locally, otherwise null (caller must fall back to grant lookup)
+     */
+    public AccessToken introspect(String token, IntrospectionResponse response) {
+        if (!appConfiguration.getIntrospectionLocalJwtValidationEnabled() || StringUtils.countMatches(token, ".") != 2) {
+            return null;
+        }
+        if (externalIntrospectionService.isEnabled() || !tokenRevocationFilter.isSynchronized()) {
+            return null;
+        }
+
+        try {
+            final Jwt jwt = Jwt.parse(token);
+            final SignatureAlgorithm signatureAlgorithm = jwt.getHeader().getSignatureAlgorithm();
+            if (!isAsymmetric(signatureAlgorithm)) {
+                return null;
+            }
+            if (!StringUtils.equals(appConfiguration.getIssuer(), jwt.getClaims().getClaimAsString(JwtClaimName.ISSUER))) {
+                return null;
+            }
+            if (!isAccessToken(jwt)) {
+                return null; // e.g. id_token signed by AS for the same client
+            }
+
+            final Date expirationTime = jwt.getClaims().getClaimAsDate(JwtClaimName.EXPIRATION_TIME);
+            final Date issuedAt = jwt.getClaims().getClaimAsDate(JwtClaimName.ISSUED_AT);
+            if (expirationTime == null || issuedAt == null || !expirationTime.after(new Date())) {
+                return null;
+            }
+            if (expirationTime.getTime() - issuedAt.getTime() > TimeUnit.SECONDS.toMillis(TokenRevocationFilter.WINDOW_IN_SECONDS)) {
+                return null; // token may outlive revocation filter
+            }
+            if (!tokenRevocationFilter.covers(issuedAt)) {
+                return null; // token issued before revocations were recorded
+            }
+
+            final String clientId = jwt.getClaims().getClaimAsString("client_id");
+            final Client client = clientService.getClient(clientId);
+            if (client == null || !client.isAccessTokenAsJwt()) {
+                return null;
+            }
+
+            if (signatureAlgorithm != getAccessTokenSigningAlgorithm(client)) {
+                return null; // token is not signed the way AS signs access tokens of the client
+            }
+            if (!cryptoProvider.verifySignature(jwt.getSigningInput(), jwt.getEncodedSignature(), jwt.getHeader().getKeyId(),
+                    webKeysConfiguration.toJSONObject(), null, signatureAlgorithm)) {
+                return null;
+            }
+
+            if (tokenRevocationFilter.mightBeRevoked(TokenHashUtil.hash(token))) {
+                return null;
+            }
+
+            response.setActive(true);
+            response.setExpiresAt(ServerUtil.dateToSeconds(expirationTime));
+            response.setIssuedAt(ServerUtil.dateToSeconds(issuedAt));
+            response.setScope(jwt.getClaims().getClaimAsStringList("scope"));
+            response.setClientId(clientId);
+            response.setSub(jwt.getClaims().getClaimAsString(JwtClaimName.SUBJECT_IDENTIFIER));
+            response.setIssuer(appConfiguration.getIssuer());
+            response.setAudience(clientId);
+            response.setTokenType(jwt.getClaims().getClaimAsString("token_type"));
+
+            final AccessToken accessToken = new AccessToken(token, issuedAt, expirationTime);
+            accessToken.setX5ts256(jwt.getClaims().getClaimAsString("x5t#S256"));
+
+            metricService.incCounter(LOCAL_VALIDATION_COUNTER, 1);
+            return accessToken;
+        } catch (Exception e) {
+            log.trace("Failed to validate token locally, falling back to grant lookup", e);
+            return null;
+        }
+    }
+
+    /**
+     * Access token JWT always carries token_type and code claims (see AuthorizationGrant#createAccessTokenAsJwt).
+     * id_token has code claim too, but never token_type, so both are required.
+     */
+    private static boolean isAccessToken(Jwt jwt) {
+        return TokenType.fromString(jwt.getClaims().getClaimAsString("token_type")) != null
+                && StringUtils.isNotBlank(jwt.getClaims().getClaimAsString("code"));
+    }
+
+    /**
+     * @return algorithm used by AS to sign access token of the client, same as in access token creation
+     */
+    private SignatureAlgorithm getAccessTokenSigningAlgorithm(Client client) {
+        final SignatureAlgorithm clientAlgorithm = client.getAccessTokenSigningAlg() != null ?
+                SignatureAlgorithm.fromString(client.getAccessTokenSigningAlg()) : null;
+        return clientAlgorithm != null ? clientAlgorithm : SignatureAlgorithm.fromString(appConfiguration.getDefaultSignatureAlgorithm());
+    }
+
+    // only AS keys are trusted, token signed with client secret (HS*) must go through grant lookup
+    private static boolean isAsymmetric(SignatureAlgorithm signatureAlgorithm) {
+        return signatureAlgorithm != null && (AlgorithmFamily.RSA.equals(signatureAlgorithm.getFamily())
+                || AlgorithmFamily.EC.equals(signatureAlgorithm.getFamily()));
+    }
+}
@@ -5,8 +5,8 @@ import com.google.common.cache.CacheBuilder;
 import io.jans.as.model.configuration.AppConfiguration;
 import io.jans.as.server.service.cdi.event.AuthConfigurationEvent;
 import io.jans.service.cdi.async.Asynchronous;
+import io.jans.service.cdi.event.ConfigurationUpdate;
 import io.jans.service.cdi.event.Scheduled;
-import org.json.JSONObject;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
@@ -32,7 +32,7 @@ public class LocalResponseCache {
     private AppConfiguration appConfiguration;
 
     private final AtomicBoolean rebuilding = new AtomicBoolean(false);
-    private Cache<String, JSONObject> discoveryCache = CacheBuilder.newBuilder()
+    private Cache<String, ResponseSnapshot> discoveryCache = CacheBuilder.newBuilder()
             .expireAfterWrite(DEFAULT_DISCOVERY_LIFETIME, TimeUnit.MINUTES).build();
     private Cache<String, List<String>> sectorIdentifierCache = CacheBuilder.newBuilder()
             .expireAfterWrite(DEFAULT_SECTOR_IDENTIFIER_LIFETIME, TimeUnit.MINUTES).build();
@@ -40,6 +40,14 @@ public class LocalResponseCache {
     private int currentDiscoveryLifetime = DEFAULT_DISCOVERY_LIFETIME;
     private int currentSectorIdentifierLifetime = DEFAULT_SECTOR_IDENTIFIER_LIFETIME;
 
+    // JWKS response and keys it was built from, keys object is replaced when keys are reloaded
+    private volatile JwksResponse jwksResponse;
+
+    public void updateConfiguration(@Observes @ConfigurationUpdate AppConfiguration appConfiguration) {
+        discoveryCache.invalidateAll();
+        jwksResponse = null;
+    }
+
     @Asynchronous
     public void reloadConfigurationTimerEvent(@Observes @Scheduled AuthConfigurationEvent authConfigurationEvent) {
         try {
@@ -76,16 +84,40 @@ public class LocalResponseCache {
         sectorIdentifierCache.put(sectorIdentifierUri, redirectUris);
     }
 
-    public JSONObject getDiscoveryResponse() {
+    public ResponseSnapshot getDiscoveryResponse() {
         if (discoveryCache == null || rebuilding.get())
             return null;
         return discoveryCache.getIfPresent(DISCOVERY_CACHE_KEY);
     }
 
-    public void putDiscoveryResponse(JSONObject response) {
+    public void putDiscoveryResponse(ResponseSnapshot response) {
         if (discoveryCache == null || rebuilding.get())
             return;
 
         discoveryCache.put(DISCOVERY_CACHE_KEY, response);
     }
+
+    /**
+     * @param keys keys which are currently published
+     * @return JWKS response or null if there is no response built from given keys
+     */
+    public ResponseSnapshot getJwksResponse(Object keys) {
+        final JwksResponse response = jwksResponse;
+        return response != null && response.keys == keys ? response.snapshot : null;
+    }
+
+    public void putJwksResponse(Object keys, ResponseSnapshot snapshot) {
+        jwksResponse = new JwksResponse(keys, snapshot);
+    }
+
+    private static class JwksResponse {
+
+        private final Object keys;
+        private final ResponseSnapshot snapshot;
+
+        private JwksResponse(Object keys, ResponseSnapshot snapshot) {
+            this.keys = keys;
+            this.snapshot = snapshot;
+        }
+    }
 }
\ No newline at end of file
@@ -6,6 +6,8 @@
 
 package io.jans.as.server.service;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import io.jans.as.common.service.common.ApplicationFactory;
 import io.jans.as.common.service.common.ConfigurationService;
 import io.jans.as.model.config.StaticConfiguration;
@@ -20,6 +22,7 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Store and retrieve metric
@@ -92,4 +95,58 @@ public class MetricService extends io.jans.service.metric.MetricService {
 		return networkService.getMacAdress();
 	}
 
+	/**
+	 * Increments server specific counter which is not covered by {@link io.jans.model.metric.MetricType}.
+	 */
+	public void incCounter(String name, long count) {
+		if (count <= 0 || !isMetricReporterEnabled()) {
+			return;
+		}
+
+		final MetricRegistry metricRegistry = getMetricRegistry();
+		if (metricRegistry != null) {
+			metricRegistry.counter(MetricRegistry.name(getApplicationType().getValue(), name)).inc(count);
+		}
+	}
+
+	/**
+	 * Registers server specific gauge (if it is not registered yet).
+	 *
+	 * @return true if gauge is registered, false if metric registry is not available (yet)
+	 */
+	public boolean registerGauge(String name, Gauge<?> gauge) {
+		if (!isMetricReporterEnabled()) {
+			return false;
+		}
+
+		final MetricRegistry metricRegistry = getMetricRegistry();
+		if (metricRegistry == null) {
+			return false;
+		}
+
+		final String metricName = MetricRegistry.name(getApplicationType().getValue(), name);
+		if (!metricRegistry.getGauges().containsKey(metricName)) {
+			try {
+				metricRegistry.register(metricName, gauge);
+			} catch (IllegalArgumentException e) {
+				// registered concurrently
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records duration into server specific timer which is not covered by {@link io.jans.model.metric.MetricType}.
+	 */
+	public void updateTimer(String name, long duration, TimeUnit unit) {
+		if (!isMetricReporterEnabled()) {
+			return;
+		}
+
+		final MetricRegistry metricRegistry = getMetricRegistry();
+		if (metricRegistry != null) {
+			metricRegistry.timer(MetricRegistry.name(getApplicationType().getValue(), name)).update(duration, unit);
+		}
+	}
+
 }
\ No newline at end of file
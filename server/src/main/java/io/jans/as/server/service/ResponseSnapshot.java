@@ -0,0 +1,115 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable pre-encoded response body (e.g. of discovery or JWKS endpoint) with strong ETag and gzipped variant, so
+ * response is written without serialization on each request. Supports conditional GET (If-None-Match -> 304).
+ */
+public class ResponseSnapshot {
+
+    private static final int GZIP_MIN_SIZE = 1024; // smaller body is not worth compressing
+
+    private final byte[] body;
+    private final byte[] gzippedBody;
+    private final String etag;
+    private final String gzippedEtag; // gzipped body is another representation, so it has own strong ETag
+    private final String contentType;
+
+    public ResponseSnapshot(String body, String contentType) {
+        this.body = body.getBytes(StandardCharsets.UTF_8);
+        this.gzippedBody = this.body.length >= GZIP_MIN_SIZE ? gzip(this.body) : null;
+        final String hash = DigestUtils.sha256Hex(this.body);
+        this.etag = "\"" + hash + "\"";
+        this.gzippedEtag = "\"" + hash + "-gzip\"";
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return true if If-None-Match header value matches ETag of snapshot (weak comparison as required by RFC 7232)
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            final String trimmed = StringUtils.removeStart(tag.trim(), "W/");
+            if ("*".equals(trimmed) || etag.equals(trimmed) || gzippedEtag.equals(trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean useGzip(String acceptEncoding) {
+        return gzippedBody != null && StringUtils.containsIgnoreCase(acceptEncoding, "gzip");
+    }
+
+    public void write(HttpServletRequest request, HttpServletResponse response, int maxAgeInSeconds) throws IOException {
+        final boolean gzip = useGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        response.setHeader(HttpHeaders.ETAG, gzip ? gzippedEtag : etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(maxAgeInSeconds));
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        final byte[] bytes = gzip ? gzippedBody : body;
+        response.setContentType(contentType);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    public Response toResponse(HttpHeaders requestHeaders, int maxAgeInSeconds) {
+        final boolean gzip = useGzip(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        final Response.ResponseBuilder builder;
+        if (matches(requestHeaders.getHeaderString(HttpHeaders.IF_NONE_MATCH))) {
+            builder = Response.notModified();
+        } else if (gzip) {
+            builder = Response.ok(gzippedBody, contentType).header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        } else {
+            builder = Response.ok(body, contentType);
+        }
+        return builder
+                .header(HttpHeaders.ETAG, gzip ? gzippedEtag : etag)
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl(maxAgeInSeconds))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .build();
+    }
+
+    private static String cacheControl(int maxAgeInSeconds) {
+        return maxAgeInSeconds > 0 ? "public, max-age=" + maxAgeInSeconds : "no-cache";
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not expected for in-memory stream
+        }
+        return out.toByteArray();
+    }
+}
@@ -72,6 +72,14 @@ public class ServerCryptoProvider extends AbstractCryptoProvider {
         return cryptoProvider.sign(signingInput, keyId, sharedSecret, signatureAlgorithm);
     }
 
+    @Override
+    public String sign(byte[] signingInput, String keyId, String sharedSecret, SignatureAlgorithm signatureAlgorithm) throws Exception {
+        if (configurationFactory.getAppConfiguration().getRejectJwtWithNoneAlg() && signatureAlgorithm == SignatureAlgorithm.NONE) {
+            throw new UnsupportedOperationException("None algorithm is forbidden by `rejectJwtWithNoneAlg` configuration property.");
+        }
+        return cryptoProvider.sign(signingInput, keyId, sharedSecret, signatureAlgorithm);
+    }
+
     @Override
     public boolean verifySignature(String signingInput, String encodedSignature, String keyId, JSONObject jwks, String sharedSecret, SignatureAlgorithm signatureAlgorithm) throws Exception {
         if (configurationFactory.getAppConfiguration().getRejectJwtWithNoneAlg() && signatureAlgorithm == SignatureAlgorithm.NONE) {
@@ -95,4 +103,9 @@ public class ServerCryptoProvider extends AbstractCryptoProvider {
     public PrivateKey getPrivateKey(String keyId) throws Exception {
         return cryptoProvider.getPrivateKey(keyId);
     }
+
+    @Override
+    public void clearKeyCache() {
+        cryptoProvider.clearKeyCache();
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.orm.PersistenceEntryManager;
+import io.jans.orm.model.base.CustomAttribute;
+import io.jans.orm.model.base.CustomEntry;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Date;
+
+/**
+ * Keeps lastUsedAt of sessions in memory and flushes it every sessionIdLastUsedAtFlushIntervalInSeconds (see
+ * {@link CoalescingWriter}), merging only jansLastAccessTime attribute instead of whole session on each request.
+ * <p>
+ * Not flushed value is applied to session loaded on this node (see {@link #getLastUsedAt(String)}), so unused
+ * lifetime check is correct on this node. Other nodes see lastUsedAt at most flush interval behind.
+ * <p>
+ * Tracker is not used if sessions are persisted in cache (sessionIdPersistInCache): cache entry can be written only
+ * as whole session, so deferred write could overwrite changes of the session made meanwhile on other nodes.
+ */
+@ApplicationScoped
+@Named
+public class SessionActivityTracker {
+
+    public static final String FLUSH_COUNTER = "session_last_used_at_flush";
+
+    private static final String[] SESSION_OBJECT_CLASSES = new String[]{"jansSessId"};
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private PersistenceEntryManager persistenceEntryManager;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private MetricService metricService;
+
+    private final CoalescingWriter<Date> writer = new CoalescingWriter<>(
+            (existing, value) -> value.after(existing) ? value : existing,
+            this::write,
+            () -> appConfiguration.getSessionIdLastUsedAtFlushIntervalInSeconds(),
+            count -> metricService.incCounter(FLUSH_COUNTER, count));
+
+    @PostConstruct
+    public void init() {
+        writer.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        writer.stop();
+    }
+
+    public boolean isEnabled() {
+        return !appConfiguration.getSessionIdPersistInCache() && appConfiguration.getSessionIdLastUsedAtFlushIntervalInSeconds() > 0;
+    }
+
+    /**
+     * Records lastUsedAt of session, it is written to persistence (or cache) on next flush.
+     */
+    public void touch(String sessionDn, Date lastUsedAt) {
+        writer.put(sessionDn, lastUsedAt);
+    }
+
+    /**
+     * @return not flushed lastUsedAt of session or null
+     */
+    public Date getLastUsedAt(String sessionDn) {
+        return writer.get(sessionDn);
+    }
+
+    /**
+     * Must be called when whole session is written (with given lastUsedAt), so value is not written again.
+     */
+    public void written(String sessionDn, Date lastUsedAt) {
+        if (lastUsedAt != null) {
+            writer.computeIfPresent(sessionDn, (dn, value) -> value.after(lastUsedAt) ? value : null);
+        }
+    }
+
+    public void remove(String sessionDn) {
+        writer.remove(sessionDn);
+    }
+
+    public void flush() {
+        writer.flush();
+    }
+
+    // only jansLastAccessTime is merged, other attributes of session are not touched
+    private void write(String sessionDn, Date lastUsedAt) {
+        try {
+            writeLastUsedAt(sessionDn, lastUsedAt);
+        } catch (Exception e) {
+            log.trace("Failed to update lastUsedAt of session " + sessionDn, e); // expected if session is removed
+        }
+    }
+
+    private void writeLastUsedAt(String sessionDn, Date lastUsedAt) {
+        final CustomEntry customEntry = new CustomEntry();
+        customEntry.setDn(sessionDn);
+        customEntry.setCustomObjectClasses(SESSION_OBJECT_CLASSES);
+        customEntry.getCustomAttributes().add(new CustomAttribute("jansLastAccessTime", persistenceEntryManager.encodeTime(sessionDn, lastUsedAt)));
+        persistenceEntryManager.merge(customEntry);
+    }
+}
@@ -66,6 +66,7 @@ import java.security.NoSuchProviderException;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * @author Yuriy Zabrovarnyy
@@ -133,6 +134,12 @@ public class SessionIdService {
     @Inject
     private StatService statService;
 
+    @Inject
+    private SessionActivityTracker sessionActivityTracker;
+
+    @Inject
+    private SessionIndexService sessionIndexService;
+
     private String buildDn(String sessionId) {
         return String.format("jansId=%s,%s", sessionId, staticConfiguration.getBaseDn().getSessions());
     }
@@ -140,24 +147,29 @@ public class SessionIdService {
     public Set<SessionId> getCurrentSessions() {
         final Set<String> ids = cookieService.getCurrentSessions();
         final Set<SessionId> sessions = Sets.newHashSet();
+        if (ids == null) {
+            return sessions;
+        }
+
+        final Set<String> validIds = Sets.newHashSet();
         for (String sessionId : ids) {
             if (StringUtils.isBlank(sessionId)) {
                 log.error("Invalid sessionId in current_sessions: " + sessionId);
                 continue;
             }
+            validIds.add(sessionId);
+        }
 
-            final SessionId sessionIdObj = getSessionId(sessionId);
-            if (sessionIdObj == null) {
-                log.trace("Unable to find session object by id: " + sessionId + " {expired?}");
-                continue;
-            }
-
+        for (SessionId sessionIdObj : getSessionsById(validIds)) {
             if (sessionIdObj.getState() != SessionIdState.AUTHENTICATED) {
-                log.error("Session is not authenticated, id: " + sessionId);
+                log.error("Session is not authenticated, id: " + sessionIdObj.getId());
                 continue;
             }
             sessions.add(sessionIdObj);
         }
+        if (sessions.size() < validIds.size()) {
+            log.trace("Unable to find some of current sessions {expired?}, ids: " + validIds);
+        }
         return sessions;
     }
 
@@ -588,6 +600,7 @@ public class SessionIdService {
                     persistenceEntryManager.persist(sessionId);
                 }
                 localCacheService.put(DEFAULT_LOCAL_CACHE_EXPIRATION, sessionId.getDn(), sessionId);
+                sessionIndexService.index(sessionId, expiration.getSecond(), getServerSessionIdLifetimeInSeconds());
                 return true;
             }
         } catch (Exception e) {
@@ -613,10 +626,12 @@ public class SessionIdService {
             if ((unusedLifetime > 0 && isPersisted(prompts)) || forceUpdate) {
                 boolean update = modified;
 
+                boolean touch = false;
                 if (updateLastUsedAt) {
                     Date lastUsedAt = new Date();
-                    if (sessionId.getLastUsedAt() != null) {
-                        long diff = lastUsedAt.getTime() - sessionId.getLastUsedAt().getTime();
+                    final Date previousLastUsedAt = getLastUsedAt(sessionId);
+                    if (previousLastUsedAt != null) {
+                        long diff = lastUsedAt.getTime() - previousLastUsedAt.getTime();
                         int unusedDiffInSeconds = (int) (diff/1000);
                         if (unusedDiffInSeconds > unusedLifetime) {
                             log.debug("Session id expired: {} by sessionIdUnusedLifetime, remove it.", sessionId.getId());
@@ -625,8 +640,12 @@ public class SessionIdService {
                         }
 
                         if (diff > 500) { // update only if diff is more than 500ms
-                            update = true;
                             sessionId.setLastUsedAt(lastUsedAt);
+                            if (sessionId.isPersisted() && sessionActivityTracker.isEnabled()) {
+                                touch = true; // only lastUsedAt is changed, it is flushed in batch
+                            } else {
+                                update = true;
+                            }
                         }
                     } else {
                         update = true;
@@ -647,6 +666,9 @@ public class SessionIdService {
 
                 if (update) {
                     mergeWithRetry(sessionId);
+                    sessionActivityTracker.written(sessionId.getDn(), sessionId.getLastUsedAt());
+                } else if (touch) {
+                    sessionActivityTracker.touch(sessionId.getDn(), sessionId.getLastUsedAt());
                 }
             }
         } catch (Exception e) {
@@ -707,6 +729,7 @@ public class SessionIdService {
                     persistenceEntryManager.merge(sessionId);
                 }
                 localCacheService.put(DEFAULT_LOCAL_CACHE_EXPIRATION, sessionId.getDn(), sessionId);
+                sessionIndexService.index(sessionId, expiration.getSecond(), getServerSessionIdLifetimeInSeconds());
                 externalEvent(new SessionEvent(SessionEventType.UPDATED, sessionId));
                 return;
             } catch (EntryPersistenceException ex) {
@@ -733,6 +756,28 @@ public class SessionIdService {
         updateSessionId(sessionId, true, false, modified);
     }
 
+    /**
+     * Grants permission to client and updates session, whole session is merged only if permission is not granted yet.
+     */
+    public void grantPermission(SessionId sessionId, String clientId) {
+        final boolean modified = !Boolean.TRUE.equals(sessionId.isPermissionGrantedForClient(clientId));
+
+        sessionId.addPermission(clientId, true);
+        updateSessionIdIfNeeded(sessionId, modified);
+    }
+
+    /**
+     * @return lastUsedAt of session taking into account not yet flushed value
+     */
+    private Date getLastUsedAt(SessionId sessionId) {
+        final Date tracked = sessionActivityTracker.getLastUsedAt(sessionId.getDn());
+        final Date lastUsedAt = sessionId.getLastUsedAt();
+        if (tracked != null && (lastUsedAt == null || tracked.after(lastUsedAt))) {
+            return tracked;
+        }
+        return lastUsedAt;
+    }
+
     private boolean isPersisted(List<Prompt> prompts) {
         if (prompts != null && prompts.contains(Prompt.NONE)) {
             final Boolean persistOnPromptNone = appConfiguration.getSessionIdPersistOnPromptNone();
@@ -757,11 +802,96 @@ public class SessionIdService {
             return null;
         }
 
+        final String indexedDn = sessionIndexService.getSessionDnBySid(sid);
+        if (indexedDn != null) {
+            final SessionId sessionId = getSessionByDn(indexedDn, true);
+            if (sessionId != null && sid.equals(sessionId.getOutsideSid())) {
+                return sessionId;
+            }
+        }
         final List<SessionId> entries = persistenceEntryManager.findEntries(staticConfiguration.getBaseDn().getSessions(), SessionId.class, Filter.createEqualityFilter("sid", sid));
         if (entries == null || entries.size() != 1) {
             return null;
         }
-        return entries.get(0);
+        final SessionId sessionId = entries.get(0);
+        if (sessionId.getExpirationDate() != null) { // repair index, e.g. for session created before index was introduced
+            final long lifetime = (sessionId.getExpirationDate().getTime() - System.currentTimeMillis()) / 1000;
+            if (lifetime > 0) {
+                sessionIndexService.index(sessionId, (int) Math.min(lifetime, Integer.MAX_VALUE), getServerSessionIdLifetimeInSeconds());
+            }
+        }
+        return sessionId;
+    }
+
+    /**
+     * Loads sessions in one batch: sessions which are not in local cache are loaded by single persistence search
+     * (or by cache provider if sessionIdPersistInCache=true). Not valid (expired) sessions are skipped.
+     */
+    public List<SessionId> getSessionsById(Collection<String> sessionIds) {
+        final Map<String, String> dnToId = new LinkedHashMap<>();
+        for (String sessionId : sessionIds) {
+            if (StringUtils.isNotBlank(sessionId)) {
+                dnToId.put(buildDn(sessionId), sessionId);
+            }
+        }
+        return getSessionsByDn(dnToId, true);
+    }
+
+    private List<SessionId> getSessionsByDn(Map<String, String> dnToId, boolean silently) {
+        final List<SessionId> result = new ArrayList<>();
+        final List<String> notCachedDns = new ArrayList<>();
+        for (String dn : dnToId.keySet()) {
+            final Object localCopy = localCacheService.get(dn);
+            if (localCopy instanceof SessionId) {
+                result.add((SessionId) localCopy);
+            } else {
+                notCachedDns.add(dn);
+            }
+        }
+
+        if (!notCachedDns.isEmpty()) {
+            try {
+                for (SessionId sessionId : loadSessions(notCachedDns, dnToId)) {
+                    applyTrackedLastUsedAt(sessionId);
+                    localCacheService.put(DEFAULT_LOCAL_CACHE_EXPIRATION, sessionId.getDn(), sessionId);
+                    result.add(sessionId);
+                }
+            } catch (Exception e) {
+                if (!silently) {
+                    throw e;
+                }
+                log.error("Failed to load sessions: " + notCachedDns, e);
+            }
+        }
+
+        result.removeIf(sessionId -> !isSessionValid(sessionId));
+        return result;
+    }
+
+    private List<SessionId> loadSessions(List<String> dns, Map<String, String> dnToId) {
+        if (appConfiguration.getSessionIdPersistInCache()) {
+            final List<SessionId> sessions = new ArrayList<>();
+            for (String dn : dns) {
+                final Object sessionId = cacheService.get(dn);
+                if (sessionId instanceof SessionId) {
+                    sessions.add((SessionId) sessionId);
+                }
+            }
+            return sessions;
+        }
+
+        final Filter[] filters = new Filter[dns.size()];
+        for (int i = 0; i < dns.size(); i++) {
+            filters[i] = Filter.createEqualityFilter("jansId", dnToId.get(dns.get(i)));
+        }
+        return persistenceEntryManager.findEntries(staticConfiguration.getBaseDn().getSessions(), SessionId.class, Filter.createORFilter(filters));
+    }
+
+    private void applyTrackedLastUsedAt(SessionId sessionId) {
+        final Date trackedLastUsedAt = sessionActivityTracker.getLastUsedAt(sessionId.getDn());
+        if (trackedLastUsedAt != null && (sessionId.getLastUsedAt() == null || trackedLastUsedAt.after(sessionId.getLastUsedAt()))) {
+            sessionId.setLastUsedAt(trackedLastUsedAt); // not flushed yet
+        }
     }
 
     @Nullable
@@ -786,6 +916,7 @@ public class SessionIdService {
             } else {
                 sessionId = persistenceEntryManager.find(SessionId.class, dn);
             }
+            applyTrackedLastUsedAt(sessionId);
             localCacheService.put(DEFAULT_LOCAL_CACHE_EXPIRATION, sessionId.getDn(), sessionId);
             return sessionId;
         } catch (Exception e) {
@@ -844,6 +975,8 @@ public class SessionIdService {
                 persistenceEntryManager.remove(sessionId.getDn());
             }
             localCacheService.remove(sessionId.getDn());
+            sessionActivityTracker.remove(sessionId.getDn());
+            sessionIndexService.remove(sessionId, getServerSessionIdLifetimeInSeconds());
             externalEvent(new SessionEvent(SessionEventType.GONE, sessionId));
             return true;
         } catch (Exception e) {
@@ -870,7 +1003,7 @@ public class SessionIdService {
         final long sessionInterval = TimeUnit.SECONDS.toMillis(appConfiguration.getSessionIdUnusedLifetime());
         final long sessionUnauthenticatedInterval = TimeUnit.SECONDS.toMillis(appConfiguration.getSessionIdUnauthenticatedUnusedLifetime());
 
-        final long timeSinceLastAccess = System.currentTimeMillis() - sessionId.getLastUsedAt().getTime();
+        final long timeSinceLastAccess = System.currentTimeMillis() - getLastUsedAt(sessionId).getTime();
         if (timeSinceLastAccess > sessionInterval && appConfiguration.getSessionIdUnusedLifetime() != -1) {
             return false;
         }
@@ -957,12 +1090,35 @@ public class SessionIdService {
         return null;
     }
 
+    /**
+     * Finds sessions of user by user index. Sessions found by index are checked to still belong to user. If user is
+     * not indexed, sessions are searched (not possible with sessionIdPersistInCache=true) and index is rebuilt.
+     */
     public List<SessionId> findByUser(String userDn) {
-        if (appConfiguration.getSessionIdPersistInCache()) {
-            throw new UnsupportedOperationException("Operation is not supported with sessionIdPersistInCache=true. Set it to false to avoid this exception.");
+        final Set<String> ids = sessionIndexService.getUserSessionIds(userDn);
+        if (ids == null) {
+            if (appConfiguration.getSessionIdPersistInCache()) {
+                return new ArrayList<>(); // sessions are not searchable in cache, user has no indexed sessions
+            }
+            Filter filter = Filter.createEqualityFilter("jansUsrDN", userDn);
+            final List<SessionId> sessions = persistenceEntryManager.findEntries(staticConfiguration.getBaseDn().getSessions(), SessionId.class, filter);
+            sessionIndexService.indexUser(userDn, sessions.stream().map(SessionId::getId).collect(Collectors.toList()), getServerSessionIdLifetimeInSeconds());
+            return sessions;
+        }
+
+        final Map<String, String> dnToId = new LinkedHashMap<>();
+        for (String id : ids) {
+            dnToId.put(buildDn(id), id);
+        }
+        final List<SessionId> sessions = getSessionsByDn(dnToId, false); // on failure missing sessions are not stale
+        sessions.removeIf(sessionId -> !userDn.equals(sessionId.getUserDn()));
+
+        final Set<String> staleIds = new HashSet<>(ids);
+        for (SessionId sessionId : sessions) {
+            staleIds.remove(sessionId.getId());
         }
-        Filter filter = Filter.createEqualityFilter("jansUsrDN", userDn);
-        return persistenceEntryManager.findEntries(staticConfiguration.getBaseDn().getSessions(), SessionId.class, filter);
+        sessionIndexService.removeUserSessionIds(userDn, staleIds, getServerSessionIdLifetimeInSeconds());
+        return sessions;
     }
 
     public void externalEvent(SessionEvent event) {
@@ -0,0 +1,260 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
+import io.jans.as.server.model.common.SessionId;
+import io.jans.service.CacheService;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Secondary indexes of sessions kept in cache provider: sid -> session dn and user dn -> set of session ids.
+ * <p>
+ * Indexes are hints: caller must check that session found by index still has given sid/user (same as outsideSid is
+ * checked for sid index). Entries are written only when indexed values of session are changed (indexed values are
+ * remembered locally for a short time), so regular session update does not touch indexes.
+ * <p>
+ * User entry is updated by read-modify-write. Updates on this node are serialized per user and every write is read
+ * back, so update lost to concurrent write of other node is retried. Session which is still missing is added again
+ * on its next update after indexed values are forgotten locally.
+ */
+@ApplicationScoped
+@Named
+public class SessionIndexService {
+
+    private static final String SID_KEY_PREFIX = "session_sid_";
+    private static final String USER_KEY_PREFIX = "session_user_";
+    private static final int USER_WRITE_ATTEMPTS = 3;
+    private static final int INDEXED_LIFETIME_IN_SECONDS = 60;
+    private static final int MAX_ENTRIES = 10000;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private CacheService cacheService;
+
+    // session dn -> indexed values, to skip index writes which would not change anything
+    private final Cache<String, Indexed> indexed = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(INDEXED_LIFETIME_IN_SECONDS, TimeUnit.SECONDS).build();
+
+    private final Striped<Lock> userLocks = Striped.lock(64);
+
+    /**
+     * Adds session to indexes.
+     *
+     * @param sessionId                  session
+     * @param lifetimeInSeconds          lifetime of session
+     * @param userIndexLifetimeInSeconds lifetime of user entry (must not be shorter than lifetime of any session of user)
+     */
+    public void index(SessionId sessionId, int lifetimeInSeconds, int userIndexLifetimeInSeconds) {
+        if (sessionId == null || StringUtils.isBlank(sessionId.getDn())) {
+            return;
+        }
+
+        final Indexed current = new Indexed(sessionId.getOutsideSid(), sessionId.getUserDn());
+        if (current.equals(indexed.getIfPresent(sessionId.getDn()))) {
+            return;
+        }
+
+        try {
+            if (StringUtils.isNotBlank(current.sid)) {
+                cacheService.put(lifetimeInSeconds, sidKey(current.sid), sessionId.getDn());
+            }
+            if (StringUtils.isNotBlank(current.userDn) && StringUtils.isNotBlank(sessionId.getId())
+                    && !updateUserSessionIds(current.userDn, Collections.singleton(sessionId.getId()), true, userIndexLifetimeInSeconds)) {
+                return; // not remembered, so it is retried on next update
+            }
+            indexed.put(sessionId.getDn(), current);
+        } catch (Exception e) {
+            log.error("Failed to index session " + sessionId.getDn(), e);
+        }
+    }
+
+    /**
+     * Removes session from indexes.
+     */
+    public void remove(SessionId sessionId, int userIndexLifetimeInSeconds) {
+        if (sessionId == null || StringUtils.isBlank(sessionId.getDn())) {
+            return;
+        }
+
+        indexed.invalidate(sessionId.getDn());
+        try {
+            if (StringUtils.isNotBlank(sessionId.getOutsideSid())) {
+                cacheService.remove(sidKey(sessionId.getOutsideSid()));
+            }
+            if (StringUtils.isNotBlank(sessionId.getUserDn())) {
+                removeUserSessionIds(sessionId.getUserDn(), Collections.singleton(sessionId.getId()), userIndexLifetimeInSeconds);
+            }
+        } catch (Exception e) {
+            log.error("Failed to remove session from index " + sessionId.getDn(), e);
+        }
+    }
+
+    /**
+     * @return session dn or null if sid is not indexed
+     */
+    public String getSessionDnBySid(String sid) {
+        if (StringUtils.isBlank(sid)) {
+            return null;
+        }
+
+        try {
+            final Object dn = cacheService.get(sidKey(sid));
+            return dn instanceof String ? (String) dn : null;
+        } catch (Exception e) {
+            log.trace("Failed to read session sid index", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return session ids of user or null if user is not indexed (or index can't be read)
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public Set<String> getUserSessionIds(String userDn) {
+        if (StringUtils.isBlank(userDn)) {
+            return null;
+        }
+
+        try {
+            final Object ids = cacheService.get(userKey(userDn));
+            return ids instanceof Set ? new HashSet<>((Set<String>) ids) : null;
+        } catch (Exception e) {
+            log.trace("Failed to read session user index", e);
+            return null;
+        }
+    }
+
+    /**
+     * Adds session ids of user, e.g. result of search when user is not indexed.
+     */
+    public void indexUser(String userDn, Collection<String> sessionIds, int userIndexLifetimeInSeconds) {
+        if (StringUtils.isBlank(userDn) || sessionIds == null) {
+            return;
+        }
+
+        try {
+            updateUserSessionIds(userDn, new HashSet<>(sessionIds), true, userIndexLifetimeInSeconds);
+        } catch (Exception e) {
+            log.error("Failed to index sessions of user " + userDn, e);
+        }
+    }
+
+    /**
+     * Removes stale ids (e.g. of expired sessions or sessions of other user) from user entry.
+     */
+    public void removeUserSessionIds(String userDn, Set<String> staleIds, int userIndexLifetimeInSeconds) {
+        if (StringUtils.isBlank(userDn) || staleIds == null || staleIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            updateUserSessionIds(userDn, staleIds, false, userIndexLifetimeInSeconds);
+        } catch (Exception e) {
+            log.error("Failed to remove sessions from user index " + userDn, e);
+        }
+    }
+
+    /**
+     * Adds/removes ids to/from user entry and reads it back to detect update lost to concurrent write of other node.
+     *
+     * @return whether user entry contains (add=true) or does not contain (add=false) given ids
+     */
+    private boolean updateUserSessionIds(String userDn, Set<String> ids, boolean add, int userIndexLifetimeInSeconds) {
+        final Lock lock = userLocks.get(userDn);
+        lock.lock();
+        try {
+            for (int attempt = 0; attempt < USER_WRITE_ATTEMPTS; attempt++) {
+                Set<String> current = getUserSessionIds(userDn);
+                if (current == null) {
+                    if (!add) {
+                        return true;
+                    }
+                    current = new HashSet<>();
+                }
+                if (isApplied(current, ids, add)) {
+                    return true;
+                }
+
+                if (add) {
+                    current.addAll(ids);
+                } else {
+                    current.removeAll(ids);
+                }
+                cacheService.put(userIndexLifetimeInSeconds, userKey(userDn), current);
+
+                final Set<String> written = getUserSessionIds(userDn);
+                if (written != null && isApplied(written, ids, add)) {
+                    return true;
+                }
+            }
+            log.debug("Failed to update session user index {}, concurrent updates", userDn);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isApplied(Set<String> current, Set<String> ids, boolean add) {
+        if (add) {
+            return current.containsAll(ids);
+        }
+        return Collections.disjoint(current, ids);
+    }
+
+    private static String sidKey(String sid) {
+        return SID_KEY_PREFIX + sid;
+    }
+
+    private static String userKey(String userDn) {
+        return USER_KEY_PREFIX + DigestUtils.sha256Hex(userDn); // dn may contain characters not allowed in cache keys
+    }
+
+    private static class Indexed {
+
+        private final String sid;
+        private final String userDn;
+
+        private Indexed(String sid, String userDn) {
+            this.sid = sid;
+            this.userDn = userDn;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Indexed that = (Indexed) o;
+            return Objects.equals(sid, that.sid) && Objects.equals(userDn, that.userDn);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sid, userDn);
+        }
+    }
+}
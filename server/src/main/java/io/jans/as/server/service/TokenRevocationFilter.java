@@ -0,0 +1,325 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.as.server.util.ServerUtil;
+import io.jans.service.CacheService;
+import io.jans.service.cdi.event.ConfigurationUpdate;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static io.jans.as.server.util.ServerUtil.isTrue;
+
+/**
+ * Compact in-memory filter of revoked (removed) token hashes, used to validate self-contained tokens without
+ * persistence lookup.
+ * <p>
+ * Filter answers "definitely not revoked" or "might be revoked" (then caller must fall back to persistence). Hashes
+ * are kept in two generations of WINDOW_IN_SECONDS each, so revoked token is remembered at least WINDOW_IN_SECONDS:
+ * only tokens with lifetime not longer than window can be validated by filter.
+ * <p>
+ * Each node publishes its own filter into cache provider (only owner writes it) and reads filters of other nodes
+ * every SYNC_INTERVAL_IN_MILLIS, so revocation becomes visible on other nodes within a few seconds. If node is not
+ * able to sync, it reports itself as not synchronized and filter must not be trusted.
+ * <p>
+ * Filter works only while introspectionLocalJwtValidationEnabled is true (nothing is recorded or synced otherwise).
+ * Revocations are recorded since filter is enabled, so only tokens issued after that can be checked, see
+ * {@link #covers(Date)}.
+ */
+@ApplicationScoped
+@Named
+public class TokenRevocationFilter {
+
+    public static final int WINDOW_IN_SECONDS = 60 * 60;
+
+    private static final String NODES_KEY = "token_revocation_nodes";
+    private static final String FILTER_KEY_PREFIX = "token_revocation_filter_";
+    private static final String VERSION_KEY_PREFIX = "token_revocation_version_";
+    private static final int KEY_LIFETIME_IN_SECONDS = 2 * WINDOW_IN_SECONDS;
+    private static final long REPUBLISH_INTERVAL_IN_MILLIS = TimeUnit.SECONDS.toMillis(WINDOW_IN_SECONDS) / 2;
+    private static final long SYNC_INTERVAL_IN_MILLIS = 1000;
+    private static final long MAX_SYNC_DELAY_IN_MILLIS = 5000;
+    private static final int EXPECTED_INSERTIONS = 100000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private CacheService cacheService;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Object lock = new Object();
+
+    private Generations local = new Generations(currentIndex(), null, 0); // guarded by lock
+    private volatile boolean dirty;
+    private volatile long localVersion;
+    private volatile long lastPublishTime;
+
+    private volatile Map<String, RemoteFilter> remote = Collections.emptyMap();
+    private volatile long lastSyncTime;
+
+    private ScheduledExecutorService executor; // guarded by lock
+
+    @PostConstruct
+    public void init() {
+        updateConfiguration(appConfiguration);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        synchronized (lock) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * Starts sync when filter is enabled and stops it (dropping recorded revocations) when filter is disabled.
+     */
+    public void updateConfiguration(@Observes @ConfigurationUpdate AppConfiguration appConfiguration) {
+        synchronized (lock) {
+            if (isTrue(appConfiguration.getIntrospectionLocalJwtValidationEnabled())) {
+                if (executor == null) {
+                    local = new Generations(currentIndex(), null, System.currentTimeMillis());
+                    executor = ServerUtil.createExecutor();
+                    executor.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_IN_MILLIS, SYNC_INTERVAL_IN_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } else if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+                local = new Generations(currentIndex(), null, 0);
+                remote = Collections.emptyMap();
+                lastSyncTime = 0; // must be re-synced before use
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return isTrue(appConfiguration.getIntrospectionLocalJwtValidationEnabled());
+    }
+
+    /**
+     * @param hashedTokenCode hashed token code (see {@link io.jans.as.server.util.TokenHashUtil})
+     */
+    public void revoke(String hashedTokenCode) {
+        if (StringUtils.isBlank(hashedTokenCode) || !isEnabled()) {
+            return;
+        }
+
+        synchronized (lock) {
+            local = local.rotate(currentIndex());
+            local.current.put(hashedTokenCode);
+        }
+        dirty = true;
+    }
+
+    public void revoke(Collection<String> hashedTokenCodes) {
+        for (String hashedTokenCode : hashedTokenCodes) {
+            revoke(hashedTokenCode);
+        }
+    }
+
+    /**
+     * @return false if token is definitely not revoked, true if it might be revoked
+     */
+    public boolean mightBeRevoked(String hashedTokenCode) {
+        final long index = currentIndex();
+        synchronized (lock) {
+            if (local.mightContain(hashedTokenCode, index)) {
+                return true;
+            }
+        }
+        for (RemoteFilter filter : remote.values()) {
+            if (filter.generations.mightContain(hashedTokenCode, index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if revocations of tokens issued at given time are recorded by this node and all known nodes
+     */
+    public boolean covers(Date issuedAt) {
+        final long since;
+        synchronized (lock) {
+            since = local.since;
+        }
+        if (since <= 0 || issuedAt.getTime() < since) {
+            return false;
+        }
+        for (RemoteFilter filter : remote.values()) {
+            if (filter.generations.since <= 0 || issuedAt.getTime() < filter.generations.since) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if filters of other nodes are recently synchronized, otherwise filter must not be trusted
+     */
+    public boolean isSynchronized() {
+        return System.currentTimeMillis() - lastSyncTime < MAX_SYNC_DELAY_IN_MILLIS;
+    }
+
+    private void sync() {
+        try {
+            publish();
+
+            final Set<String> nodes = registerNode();
+            final Map<String, RemoteFilter> current = remote;
+            final Map<String, RemoteFilter> updated = new HashMap<>();
+            for (String node : nodes) {
+                if (nodeId.equals(node)) {
+                    continue;
+                }
+                final Object version = cacheService.get(VERSION_KEY_PREFIX + node);
+                if (!(version instanceof Long)) {
+                    continue; // node is gone
+                }
+
+                final RemoteFilter known = current.get(node);
+                if (known != null && known.version == (Long) version) {
+                    updated.put(node, known);
+                    continue;
+                }
+
+                final Object filter = cacheService.get(FILTER_KEY_PREFIX + node);
+                if (filter instanceof Generations) {
+                    updated.put(node, new RemoteFilter((Long) version, (Generations) filter));
+                } else if (known != null) {
+                    updated.put(node, known);
+                }
+            }
+            remote = updated;
+            lastSyncTime = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.trace("Failed to sync token revocation filter", e);
+        }
+    }
+
+    private void publish() {
+        final long now = System.currentTimeMillis();
+        if (!dirty && now - lastPublishTime < REPUBLISH_INTERVAL_IN_MILLIS) {
+            return;
+        }
+
+        dirty = false;
+        final Generations snapshot;
+        synchronized (lock) {
+            local = local.rotate(currentIndex());
+            snapshot = local.copy();
+        }
+
+        final long version = ++localVersion;
+        cacheService.put(KEY_LIFETIME_IN_SECONDS, FILTER_KEY_PREFIX + nodeId, snapshot);
+        cacheService.put(KEY_LIFETIME_IN_SECONDS, VERSION_KEY_PREFIX + nodeId, version);
+        lastPublishTime = now;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> registerNode() {
+        final Object cached = cacheService.get(NODES_KEY);
+        final Set<String> nodes = cached instanceof Set ? new HashSet<>((Set<String>) cached) : new HashSet<>();
+        nodes.addAll(remote.keySet()); // node set is not updated atomically, don't forget nodes we already know
+        if (!nodes.contains(nodeId)) {
+            nodes.add(nodeId);
+            cacheService.put(KEY_LIFETIME_IN_SECONDS, NODES_KEY, nodes);
+        }
+        return nodes;
+    }
+
+    private static long currentIndex() {
+        return System.currentTimeMillis() / TimeUnit.SECONDS.toMillis(WINDOW_IN_SECONDS);
+    }
+
+    private static BloomFilter<CharSequence> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+    }
+
+    private static class RemoteFilter {
+
+        private final long version;
+        private final Generations generations;
+
+        private RemoteFilter(long version, Generations generations) {
+            this.version = version;
+            this.generations = generations;
+        }
+    }
+
+    private static class Generations implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long index;
+        private final BloomFilter<CharSequence> current;
+        private final BloomFilter<CharSequence> previous;
+        private final long since; // revocations are recorded since, 0 if not recorded
+
+        private Generations(long index, BloomFilter<CharSequence> previous, long since) {
+            this(index, newFilter(), previous, since);
+        }
+
+        private Generations(long index, BloomFilter<CharSequence> current, BloomFilter<CharSequence> previous, long since) {
+            this.index = index;
+            this.current = current;
+            this.previous = previous;
+            this.since = since;
+        }
+
+        private Generations rotate(long newIndex) {
+            if (newIndex == index) {
+                return this;
+            }
+            return new Generations(newIndex, newIndex == index + 1 ? current : null, since);
+        }
+
+        private Generations copy() {
+            return new Generations(index, current.copy(), previous != null ? previous.copy() : null, since);
+        }
+
+        private boolean mightContain(String hash, long currentIndex) {
+            if (index == currentIndex) {
+                return current.mightContain(hash) || (previous != null && previous.mightContain(hash));
+            }
+            if (index == currentIndex - 1) { // not rotated yet, its current is our previous
+                return current.mightContain(hash);
+            }
+            return false;
+        }
+    }
+}
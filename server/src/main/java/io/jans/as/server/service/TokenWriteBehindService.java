@@ -0,0 +1,105 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import io.jans.as.server.model.ldap.TokenLdap;
+import io.jans.as.server.util.ServerUtil;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies grant state (scope, nonce, session, etc.) to already persisted tokens of the grant off the request thread.
+ * <p>
+ * Merges are executed by single thread, so updates of the same grant are applied in submission order. If queue
+ * is too long (persistence is slow) merge is executed by caller thread.
+ */
+@ApplicationScoped
+@Named
+public class TokenWriteBehindService {
+
+    public static final String WRITE_BEHIND_MERGE_COUNTER = "token_write_behind_merge";
+
+    private static final int MAX_QUEUE_SIZE = 10000;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private GrantService grantService;
+
+    @Inject
+    private MetricService metricService;
+
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = ServerUtil.createExecutor();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Token write-behind queue is not drained, pending merges: {}", queueSize.get());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Schedules merge of grant state into persisted tokens of the grant.
+     *
+     * @param grantId  grant id
+     * @param state    token holding grant state, see {@link GrantService#applyGrantState(TokenLdap, TokenLdap)}
+     * @param skipDns  dns of tokens which already have actual state (e.g. persisted by the same request)
+     */
+    public void merge(String grantId, TokenLdap state, Set<String> skipDns) {
+        if (queueSize.incrementAndGet() > MAX_QUEUE_SIZE) {
+            queueSize.decrementAndGet();
+            log.trace("Token write-behind queue is full, merging grant {} synchronously", grantId);
+            grantService.mergeGrantState(grantId, state, skipDns);
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    final int merged = grantService.mergeGrantState(grantId, state, skipDns);
+                    metricService.incCounter(WRITE_BEHIND_MERGE_COUNTER, merged);
+                } catch (Exception e) {
+                    log.error("Failed to merge state of grant " + grantId, e);
+                } finally {
+                    queueSize.decrementAndGet();
+                }
+            });
+        } catch (Exception e) { // rejected, e.g. on shutdown
+            queueSize.decrementAndGet();
+            log.trace("Failed to schedule merge of grant " + grantId + ", merging synchronously", e);
+            grantService.mergeGrantState(grantId, state, skipDns);
+        }
+    }
+}
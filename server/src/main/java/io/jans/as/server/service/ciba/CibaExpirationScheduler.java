@@ -0,0 +1,68 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service.ciba;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps pending CIBA requests in memory, ordered by expiration in {@link TimingWheel}, so expired requests are found
+ * without polling persistence.
+ */
+@ApplicationScoped
+@Named
+public class CibaExpirationScheduler {
+
+    private static final long TICK_IN_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 64;
+    private static final int LEVELS = 3; // 64^3 seconds (~3 days), longer expirations are re-scheduled
+
+    private final TimingWheel<String> wheel = new TimingWheel<>(TICK_IN_MILLIS, WHEEL_SIZE, LEVELS, System.currentTimeMillis());
+
+    // authReqId -> expiration, cancelled requests are removed here and skipped when wheel fires them
+    private final ConcurrentMap<String, Long> pending = new ConcurrentHashMap<>();
+
+    public void schedule(String authReqId, Date expirationDate) {
+        if (authReqId == null || expirationDate == null) {
+            return;
+        }
+
+        final long expiresAt = expirationDate.getTime();
+        pending.put(authReqId, expiresAt); // if re-scheduled, old wheel entry is skipped since it fires too early
+        wheel.add(authReqId, expiresAt);
+    }
+
+    public void cancel(String authReqId) {
+        if (authReqId != null) {
+            pending.remove(authReqId);
+        }
+    }
+
+    /**
+     * @return ids of requests expired till now
+     */
+    public List<String> pollExpired() {
+        final long now = System.currentTimeMillis();
+        final List<String> expired = new ArrayList<>();
+        for (String authReqId : wheel.advance(now)) {
+            final Long expiresAt = pending.get(authReqId);
+            if (expiresAt != null && expiresAt <= now && pending.remove(authReqId, expiresAt)) {
+                expired.add(authReqId);
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return pending.size();
+    }
+}
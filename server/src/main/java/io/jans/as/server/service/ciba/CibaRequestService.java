@@ -14,6 +14,7 @@ import io.jans.as.server.model.common.CibaRequestCacheControl;
 import io.jans.as.server.model.common.CibaRequestStatus;
 import io.jans.as.server.model.ldap.CIBARequest;
 import io.jans.orm.PersistenceEntryManager;
+import io.jans.orm.exception.EntryPersistenceException;
 import io.jans.orm.search.filter.Filter;
 import io.jans.service.CacheService;
 import org.apache.commons.lang.time.DateUtils;
@@ -50,6 +51,9 @@ public class CibaRequestService {
     @Inject
     private CacheService cacheService;
 
+    @Inject
+    private CibaExpirationScheduler cibaExpirationScheduler;
+
     private String cibaBaseDn() {
         return staticConfiguration.getBaseDn().getCiba();  // ou=ciba,o=jans
     }
@@ -72,6 +76,7 @@ public class CibaRequestService {
         cibaRequest.setStatus(CibaRequestStatus.PENDING.getValue());
         cibaRequest.setUserId(request.getUser().getUserId());
         entryManager.persist(cibaRequest);
+        cibaExpirationScheduler.schedule(authReqId, expirationDate);
     }
 
     /**
@@ -94,11 +99,21 @@ public class CibaRequestService {
      */
     public List<CIBARequest> loadExpiredByStatus(CibaRequestStatus authorizationStatus,
                                                  int maxRequestsToGet) {
+        return loadExpiredByStatus(authorizationStatus, new Date(), maxRequestsToGet);
+    }
+
+    /**
+     * Generates a list of requests that are expired till given date and also filter them using a Status.
+     * @param authorizationStatus Status used to filter entries.
+     * @param expiredBefore Requests expired till this date are returned.
+     * @param maxRequestsToGet Limit of requests that would be returned.
+     */
+    public List<CIBARequest> loadExpiredByStatus(CibaRequestStatus authorizationStatus, Date expiredBefore,
+                                                 int maxRequestsToGet) {
         try {
-            Date now = new Date();
             Filter filter = Filter.createANDFilter(
                     Filter.createEqualityFilter("jansStatus", authorizationStatus.getValue()),
-                    Filter.createLessOrEqualFilter("exp", entryManager.encodeTime(this.cibaBaseDn(), now)));
+                    Filter.createLessOrEqualFilter("exp", entryManager.encodeTime(this.cibaBaseDn(), expiredBefore)));
             return entryManager.findEntries(this.cibaBaseDn(), CIBARequest.class, filter, maxRequestsToGet);
         } catch (Exception e) {
             log.error(e.getMessage(), e);
@@ -106,6 +121,39 @@ public class CibaRequestService {
         }
     }
 
+    /**
+     * Loads all requests with given status.
+     * @param authorizationStatus Status used to filter entries.
+     */
+    public List<CIBARequest> loadByStatus(CibaRequestStatus authorizationStatus) {
+        try {
+            Filter filter = Filter.createEqualityFilter("jansStatus", authorizationStatus.getValue());
+            return entryManager.findEntries(this.cibaBaseDn(), CIBARequest.class, filter);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Claims expired request by removing it from the database, so only one node processes it.
+     * @param authReqId Identifier of the CibaRequest.
+     * @return True if request is claimed, false if it is already removed (processed or answered).
+     */
+    public boolean claimExpiredRequest(String authReqId) {
+        cibaExpirationScheduler.cancel(authReqId);
+        try {
+            entryManager.remove(String.format("authReqId=%s,%s", authReqId, this.cibaBaseDn()));
+            return true;
+        } catch (EntryPersistenceException e) {
+            log.trace("CIBA request is already removed, authReqId: " + authReqId, e);
+            return false;
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return false;
+        }
+    }
+
     /**
      * Change the status field in database for a specific request.
      * @param cibaRequest Entry containing information of the CIBA request.
@@ -125,6 +173,7 @@ public class CibaRequestService {
      * @param cibaRequest Object to be removed.
      */
     public void removeCibaRequest(CIBARequest cibaRequest) {
+        cibaExpirationScheduler.cancel(cibaRequest.getAuthReqId());
         try {
             entryManager.remove(cibaRequest);
         } catch (Exception e) {
@@ -137,6 +186,7 @@ public class CibaRequestService {
      * @param authReqId Identifier of the CibaRequest.
      */
     public void removeCibaRequest(String authReqId) {
+        cibaExpirationScheduler.cancel(authReqId);
         try {
             String requestDn = String.format("authReqId=%s,%s", authReqId, this.cibaBaseDn());
             entryManager.remove(requestDn);
@@ -15,6 +15,7 @@ import io.jans.as.server.model.common.CibaRequestCacheControl;
 import io.jans.as.server.model.common.CibaRequestStatus;
 import io.jans.as.server.model.ldap.CIBARequest;
 import io.jans.as.server.util.ServerUtil;
+import io.jans.service.CacheService;
 import io.jans.service.cdi.async.Asynchronous;
 import io.jans.service.cdi.event.CibaRequestsProcessorEvent;
 import io.jans.service.cdi.event.Scheduled;
@@ -22,19 +23,28 @@ import io.jans.service.timer.event.TimerEvent;
 import io.jans.service.timer.schedule.TimerSchedule;
 import org.slf4j.Logger;
 
+import javax.annotation.PreDestroy;
 import javax.ejb.DependsOn;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.Date;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Job responsible to process all expired CIBA requests and update their status.
+ * <p>
+ * Requests are expired by {@link CibaExpirationScheduler} (in-memory timing wheel, filled on save and rebuilt from
+ * persistence on start) every second. Timer event only sweeps persistence for requests which were not expired by
+ * their node (e.g. node is down), it is done by single node which holds lease in cache.
  *
  * @author Milton BO
  * @version May 20, 2020
@@ -46,6 +56,13 @@ public class CibaRequestsProcessorJob {
 
     public static final int CHUNK_SIZE = 500; // Default value whether there isn't backchannelRequestsProcessorJobChunkSize json property value
 
+    private static final String LEASE_KEY = "ciba_requests_processor_lease";
+    private static final int MIN_LEASE_LIFETIME_IN_SECONDS = 30;
+    private static final long SWEEP_GRACE_PERIOD_IN_MILLIS = 30000; // give node which saved request time to expire it
+    private static final long TICK_IN_MILLIS = 1000;
+    private static final int CALLBACK_WORKERS = 8;
+    private static final int CALLBACK_QUEUE_CAPACITY = 10000;
+
     @Inject
     private Logger log;
 
@@ -64,11 +81,21 @@ public class CibaRequestsProcessorJob {
     @Inject
     private CibaRequestService cibaRequestService;
 
+    @Inject
+    private CibaExpirationScheduler cibaExpirationScheduler;
+
+    @Inject
+    private CacheService cacheService;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
     private long lastFinishedTime;
 
     private AtomicBoolean isActive;
 
-    private ExecutorService executorService;
+    private ThreadPoolExecutor callbackExecutor;
+
+    private ScheduledExecutorService tickExecutor;
 
     /**
      * Method invoked from the appInitializer to start processing every some time.
@@ -83,7 +110,64 @@ public class CibaRequestsProcessorJob {
                 new CibaRequestsProcessorEvent(), Scheduled.Literal.INSTANCE));
 
         this.lastFinishedTime = System.currentTimeMillis();
-        this.executorService = Executors.newCachedThreadPool(ServerUtil.daemonThreadFactory());
+
+        // caller (tick thread) sends callback itself if queue is full, so callbacks are never dropped
+        this.callbackExecutor = new ThreadPoolExecutor(CALLBACK_WORKERS, CALLBACK_WORKERS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(CALLBACK_QUEUE_CAPACITY), ServerUtil.daemonThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.callbackExecutor.allowCoreThreadTimeOut(true);
+
+        this.tickExecutor = ServerUtil.createExecutor();
+        this.tickExecutor.execute(this::rebuildSchedule);
+        this.tickExecutor.scheduleWithFixedDelay(this::processExpired, TICK_IN_MILLIS, TICK_IN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (tickExecutor != null) {
+            tickExecutor.shutdownNow();
+        }
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules expiration of pending requests which are in persistence (e.g. saved before restart).
+     */
+    private void rebuildSchedule() {
+        try {
+            final List<CIBARequest> pendingRequests = cibaRequestService.loadByStatus(CibaRequestStatus.PENDING);
+            if (pendingRequests != null) {
+                pendingRequests.forEach(request -> cibaExpirationScheduler.schedule(request.getAuthReqId(), request.getExpirationDate()));
+                log.debug("Scheduled expiration of {} pending CIBA requests", pendingRequests.size());
+            }
+        } catch (Exception e) {
+            log.error("Failed to load pending CIBA requests.", e);
+        }
+    }
+
+    /**
+     * Processes requests expired by scheduler, invoked every TICK_IN_MILLIS.
+     */
+    private void processExpired() {
+        try {
+            for (String authReqId : cibaExpirationScheduler.pollExpired()) {
+                processRequest(authReqId);
+            }
+        } catch (Exception e) {
+            log.error("Failed to process expired CIBA requests.", e);
+        }
+    }
+
+    private void processRequest(String authReqId) {
+        if (!cibaRequestService.claimExpiredRequest(authReqId)) {
+            return; // answered or processed by other node
+        }
+
+        CibaRequestCacheControl cibaRequest = cibaRequestService.getCibaRequest(authReqId);
+        if (cibaRequest != null) {
+            callbackExecutor.execute(() -> processExpiredRequest(cibaRequest, authReqId));
+        }
     }
 
     @Asynchronous
@@ -124,32 +208,47 @@ public class CibaRequestsProcessorJob {
     }
 
     /**
-     * Main process that process CIBA requests in cache.
+     * Sweeps persistence for expired requests which were not processed by their node. Runs only on node which holds lease.
      */
     public void processImpl() {
         try {
+            if (!acquireLease()) {
+                log.trace("CIBA requests sweep is done by other node.");
+                return;
+            }
+
             int chunkSize = appConfiguration.getBackchannelRequestsProcessorJobChunkSize() <= 0 ?
                     CHUNK_SIZE : appConfiguration.getBackchannelRequestsProcessorJobChunkSize();
 
-            List<CIBARequest> expiredRequests = cibaRequestService.loadExpiredByStatus(
-                    CibaRequestStatus.PENDING, chunkSize);
-            expiredRequests.forEach(cibaRequest -> cibaRequestService.updateStatus(cibaRequest,
-                    CibaRequestStatus.IN_PROCESS));
+            List<CIBARequest> expiredRequests = cibaRequestService.loadExpiredByStatus(CibaRequestStatus.PENDING,
+                    new Date(System.currentTimeMillis() - SWEEP_GRACE_PERIOD_IN_MILLIS), chunkSize);
+            if (expiredRequests == null) {
+                return;
+            }
 
             for (CIBARequest expiredRequest : expiredRequests) {
-                CibaRequestCacheControl cibaRequest = cibaRequestService.getCibaRequest(expiredRequest.getAuthReqId());
-                if (cibaRequest != null) {
-                    executorService.execute(() ->
-                        processExpiredRequest(cibaRequest, expiredRequest.getAuthReqId())
-                    );
-                }
-                cibaRequestService.removeCibaRequest(expiredRequest);
+                processRequest(expiredRequest.getAuthReqId());
             }
         } catch (Exception e) {
             log.error("Failed to process CIBA request from cache.", e);
         }
     }
 
+    /**
+     * Lease is not acquired atomically (cache provider does not offer compare-and-set), two nodes may sweep at the same
+     * time for a short while, request is still processed once since it is claimed by removal.
+     */
+    private boolean acquireLease() {
+        final int lifetime = Math.max(MIN_LEASE_LIFETIME_IN_SECONDS, appConfiguration.getBackchannelRequestsProcessorJobIntervalSec() * 3);
+        final Object holder = cacheService.get(LEASE_KEY);
+        if (holder != null && !nodeId.equals(holder)) {
+            return false;
+        }
+
+        cacheService.put(lifetime, LEASE_KEY, nodeId);
+        return nodeId.equals(cacheService.get(LEASE_KEY));
+    }
+
     /**
      * Method responsible to process expired CIBA requests, set them as expired in cache
      * and send callbacks to the client
@@ -0,0 +1,125 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service.ciba;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: each level has wheelSize buckets, bucket of level N covers wheelSize^N ticks. Items of
+ * higher level bucket are moved (cascaded) to lower levels when wheel reaches the bucket, so add and advance cost
+ * does not depend on number of scheduled items. Items which are further than range of the top level are kept in the
+ * last bucket of the top level and re-scheduled when it is reached.
+ * <p>
+ * Item never fires before its expiration time, at most one tick later.
+ */
+public class TimingWheel<T> {
+
+    private final long tickInMillis;
+    private final int wheelSize;
+    private final long[] ticksPerBucket;
+    private final List<Entry<T>>[][] buckets;
+    private final List<T> overdue = new ArrayList<>();
+
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickInMillis, int wheelSize, int levels, long startTimeInMillis) {
+        this.tickInMillis = tickInMillis;
+        this.wheelSize = wheelSize;
+        this.ticksPerBucket = new long[levels];
+        this.buckets = new List[levels][wheelSize];
+        this.currentTick = startTimeInMillis / tickInMillis;
+
+        long ticks = 1;
+        for (int level = 0; level < levels; level++) {
+            ticksPerBucket[level] = ticks;
+            ticks *= wheelSize;
+        }
+    }
+
+    public synchronized void add(T item, long expiresAtInMillis) {
+        add(new Entry<>(item, (expiresAtInMillis + tickInMillis - 1) / tickInMillis));
+        size++;
+    }
+
+    /**
+     * Moves wheel to given time.
+     *
+     * @return items expired till given time
+     */
+    public synchronized List<T> advance(long nowInMillis) {
+        final long nowTick = nowInMillis / tickInMillis;
+        while (currentTick < nowTick) {
+            currentTick++;
+            for (int level = ticksPerBucket.length - 1; level >= 0; level--) {
+                if (currentTick % ticksPerBucket[level] == 0) {
+                    cascade(level, (int) ((currentTick / ticksPerBucket[level]) % wheelSize));
+                }
+            }
+        }
+
+        final List<T> expired = new ArrayList<>(overdue);
+        overdue.clear();
+        size -= expired.size();
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(int level, int index) {
+        final List<Entry<T>> bucket = buckets[level][index];
+        if (bucket == null || bucket.isEmpty()) {
+            return;
+        }
+        buckets[level][index] = null;
+        for (Entry<T> entry : bucket) {
+            add(entry);
+        }
+    }
+
+    private void add(Entry<T> entry) {
+        if (entry.dueTick <= currentTick) {
+            overdue.add(entry.item);
+            return;
+        }
+
+        final int topLevel = ticksPerBucket.length - 1;
+        for (int level = 0; level <= topLevel; level++) {
+            final long dueBucket = entry.dueTick / ticksPerBucket[level];
+            if (dueBucket - currentTick / ticksPerBucket[level] < wheelSize) {
+                bucket(level, (int) (dueBucket % wheelSize)).add(entry);
+                return;
+            }
+        }
+
+        // out of range, park in the last bucket of top level, it is re-scheduled when reached
+        final long lastBucket = currentTick / ticksPerBucket[topLevel] + wheelSize - 1;
+        bucket(topLevel, (int) (lastBucket % wheelSize)).add(entry);
+    }
+
+    private List<Entry<T>> bucket(int level, int index) {
+        if (buckets[level][index] == null) {
+            buckets[level][index] = new ArrayList<>();
+        }
+        return buckets[level][index];
+    }
+
+    private static class Entry<T> {
+
+        private final T item;
+        private final long dueTick;
+
+        private Entry(T item, long dueTick) {
+            this.item = item;
+            this.dueTick = dueTick;
+        }
+    }
+}
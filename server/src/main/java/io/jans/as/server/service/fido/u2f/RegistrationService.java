@@ -13,13 +13,13 @@ import io.jans.as.model.fido.u2f.exception.BadInputException;
 import io.jans.as.model.fido.u2f.message.RawRegisterResponse;
 import io.jans.as.model.fido.u2f.protocol.ClientData;
 import io.jans.as.model.util.Base64Util;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.server.crypto.random.ChallengeGenerator;
 import io.jans.as.server.exception.fido.u2f.DeviceCompromisedException;
 import io.jans.as.server.model.fido.u2f.DeviceRegistration;
 import io.jans.as.server.model.fido.u2f.DeviceRegistrationResult;
 import io.jans.as.server.model.fido.u2f.RegisterRequestMessageLdap;
 import io.jans.as.server.model.fido.u2f.RequestMessageLdap;
-import io.jans.as.server.util.ServerUtil;
 import io.jans.orm.PersistenceEntryManager;
 import io.jans.orm.search.filter.Filter;
 import io.jans.util.StringHelper;
@@ -140,7 +140,7 @@ public class RegistrationService extends RequestService {
         if (StringHelper.isNotEmpty(responseDeviceData)) {
             try {
                 String responseDeviceDataDecoded = new String(Base64Util.base64urldecode(responseDeviceData));
-                io.jans.as.model.fido.u2f.protocol.DeviceData deviceData = ServerUtil.jsonMapperWithWrapRoot().readValue(responseDeviceDataDecoded, io.jans.as.model.fido.u2f.protocol.DeviceData.class);
+                io.jans.as.model.fido.u2f.protocol.DeviceData deviceData = JsonMappers.readerFor(io.jans.as.model.fido.u2f.protocol.DeviceData.class).readValue(responseDeviceDataDecoded);
                 deviceRegistration.setDeviceData(deviceData);
             } catch (Exception ex) {
                 throw new BadInputException(String.format("Device data is invalid: %s", responseDeviceData), ex);
@@ -6,7 +6,10 @@
 
 package io.jans.as.server.service.net;
 
+import com.codahale.metrics.Gauge;
+import io.jans.as.model.configuration.AppConfiguration;
 import io.jans.as.server.model.net.HttpServiceResponse;
+import io.jans.as.server.service.MetricService;
 import io.jans.net.SslDefaultHttpClient;
 import io.jans.util.StringHelper;
 import io.jans.util.Util;
@@ -17,24 +20,39 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.AllowAllHostnameVerifier;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.EntityUtils;
+import org.jboss.resteasy.client.ClientExecutor;
+import org.jboss.resteasy.client.core.executors.ApacheHttpClient4Executor;
 import org.jboss.resteasy.util.HttpResponseCodes;
 import org.slf4j.Logger;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -48,6 +66,9 @@ import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
 /**
  * Provides operations with http requests
  *
@@ -59,16 +80,137 @@ public class HttpService implements Serializable {
 
 	private static final long serialVersionUID = -2398422090669045605L;
 
+	public static final String OUTBOUND_LEASED_GAUGE = "outbound_http_leased";
+	public static final String OUTBOUND_AVAILABLE_GAUGE = "outbound_http_available";
+	public static final String OUTBOUND_PENDING_GAUGE = "outbound_http_pending";
+
+	// Ciphers accepted by FAPI-CIBA specs and OpenJDK.
+	private static final String[] FAPI_CIPHERS = new String[] { "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256", "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384" };
+	private static final String[] FAPI_PROTOCOLS = new String[] { "TLSv1.2" };
+	private static final int IDLE_CONNECTION_TIMEOUT_IN_SECONDS = 30;
+
 	@Inject
 	private Logger log;
 
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	@Inject
+	private MetricService metricService;
+
 	private Base64 base64;
+
+	private transient PoolingHttpClientConnectionManager outboundConnectionManager;
+	private transient CloseableHttpClient outboundHttpClient;
+	private transient PoolingHttpClientConnectionManager outboundFapiConnectionManager;
+	private transient CloseableHttpClient outboundFapiHttpClient;
+	private transient volatile boolean outboundGaugesRegistered;
 	
 	@PostConstruct
 	public void init() {
 		this.base64 = new Base64();
 	}
 
+	@PreDestroy
+	public void destroy() {
+		closeQuietly(outboundHttpClient);
+		closeQuietly(outboundFapiHttpClient);
+	}
+
+	/**
+	 * Shared client of server initiated calls (CIBA callbacks, backchannel logout, etc.) with pool of keep-alive
+	 * connections per route. TLS sessions are reused since all connections share SSL context. Must not be closed by caller.
+	 */
+	public synchronized CloseableHttpClient getOutboundHttpClient() {
+		if (outboundHttpClient == null) {
+			outboundConnectionManager = createOutboundConnectionManager(new SSLConnectionSocketFactory(SSLContexts.createSystemDefault()));
+			outboundHttpClient = createOutboundHttpClient(outboundConnectionManager);
+		}
+		registerOutboundGauges();
+		return outboundHttpClient;
+	}
+
+	/**
+	 * Same as {@link #getOutboundHttpClient()} but restricted to TLS version and ciphers defined in FAPI-CIBA specs.
+	 */
+	public synchronized CloseableHttpClient getOutboundFapiHttpClient() {
+		if (outboundFapiHttpClient == null) {
+			outboundFapiConnectionManager = createOutboundConnectionManager(new SSLConnectionSocketFactory(SSLContexts.createDefault(),
+					FAPI_PROTOCOLS, FAPI_CIPHERS, NoopHostnameVerifier.INSTANCE));
+			outboundFapiHttpClient = createOutboundHttpClient(outboundFapiConnectionManager);
+		}
+		registerOutboundGauges();
+		return outboundFapiHttpClient;
+	}
+
+	/**
+	 * Executor for RESTEasy based clients (e.g. {@link io.jans.as.client.BaseClient}) backed by shared client. It is
+	 * cheap to create, clients close executor after call but it does not close shared client.
+	 */
+	public ClientExecutor newOutboundExecutor(boolean fapiCompatibility) {
+		return new ApacheHttpClient4Executor(fapiCompatibility ? getOutboundFapiHttpClient() : getOutboundHttpClient());
+	}
+
+	private PoolingHttpClientConnectionManager createOutboundConnectionManager(SSLConnectionSocketFactory sslSocketFactory) {
+		Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory> create()
+				.register("https", sslSocketFactory)
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.build();
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
+		connectionManager.setMaxTotal(appConfiguration.getOutboundHttpMaxConnections());
+		connectionManager.setDefaultMaxPerRoute(appConfiguration.getOutboundHttpMaxConnectionsPerRoute());
+		return connectionManager;
+	}
+
+	private CloseableHttpClient createOutboundHttpClient(PoolingHttpClientConnectionManager connectionManager) {
+		final int timeout = (int) TimeUnit.SECONDS.toMillis(appConfiguration.getOutboundHttpTimeoutInSeconds());
+		return HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectTimeout(timeout)
+						.setConnectionRequestTimeout(timeout)
+						.setSocketTimeout(timeout).build())
+				.evictExpiredConnections()
+				.evictIdleConnections(IDLE_CONNECTION_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
+				.disableCookieManagement() // shared by all requests, state of one remote party must not leak to another
+				.disableAuthCaching()
+				.build();
+	}
+
+	private void registerOutboundGauges() {
+		if (outboundGaugesRegistered) {
+			return;
+		}
+		outboundGaugesRegistered = metricService.registerGauge(OUTBOUND_LEASED_GAUGE, outboundGauge(PoolStats::getLeased))
+				& metricService.registerGauge(OUTBOUND_AVAILABLE_GAUGE, outboundGauge(PoolStats::getAvailable))
+				& metricService.registerGauge(OUTBOUND_PENDING_GAUGE, outboundGauge(PoolStats::getPending));
+	}
+
+	private Gauge<Integer> outboundGauge(Function<PoolStats, Integer> stat) {
+		return () -> {
+			int result = 0;
+			if (outboundConnectionManager != null) {
+				result += stat.apply(outboundConnectionManager.getTotalStats());
+			}
+			if (outboundFapiConnectionManager != null) {
+				result += stat.apply(outboundFapiConnectionManager.getTotalStats());
+			}
+			return result;
+		};
+	}
+
+	private void closeQuietly(CloseableHttpClient httpClient) {
+		if (httpClient == null) {
+			return;
+		}
+		try {
+			httpClient.close();
+		} catch (IOException ex) {
+			log.trace("Failed to close http client", ex);
+		}
+	}
+
 	public HttpClient getHttpsClientTrustAll() {
 	    try {
 	        SSLSocketFactory sf = new SSLSocketFactory(new TrustStrategy(){
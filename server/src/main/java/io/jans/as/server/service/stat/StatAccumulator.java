@@ -0,0 +1,132 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service.stat;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import net.agkn.hll.HLL;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates stat of one month in memory.
+ * <p>
+ * Token counters are striped (LongAdder) so concurrent reports do not contend and are never lost. Active users
+ * are hashed with 64 bit murmur3 (HLL expects well distributed 64 bit values) into striped HLLs which are merged
+ * on snapshot.
+ */
+public class StatAccumulator {
+
+    public static final int REGWIDTH = 5;
+    public static final int LOG2M = 15;
+
+    private static final int HLL_STRIPES = 16; // power of 2
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final String month;
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> tokenCounters = new ConcurrentHashMap<>();
+    private final HLL baseHll;
+    private final HLL[] hllStripes = new HLL[HLL_STRIPES];
+
+    public StatAccumulator(String month) {
+        this(month, null, null);
+    }
+
+    /**
+     * @param month       month (yyyyMM)
+     * @param tokenCounts token counts loaded from persistence (may be null)
+     * @param hll         active users loaded from persistence (may be null)
+     */
+    public StatAccumulator(String month, Map<String, Map<String, Long>> tokenCounts, HLL hll) {
+        this.month = month;
+        this.baseHll = hll != null ? hll : newHll();
+        for (int i = 0; i < hllStripes.length; i++) {
+            hllStripes[i] = newHll();
+        }
+
+        if (tokenCounts != null) {
+            for (Map.Entry<String, Map<String, Long>> grantEntry : tokenCounts.entrySet()) {
+                for (Map.Entry<String, Long> tokenEntry : grantEntry.getValue().entrySet()) {
+                    if (tokenEntry.getValue() != null) {
+                        counter(grantEntry.getKey(), tokenEntry.getKey()).add(tokenEntry.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    public static HLL newHll() {
+        return new HLL(LOG2M, REGWIDTH);
+    }
+
+    public static long hash(String id) {
+        return HASH_FUNCTION.hashString(id, StandardCharsets.UTF_8).asLong();
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public void reportToken(String grantType, String tokenKey) {
+        counter(grantType, tokenKey).increment();
+    }
+
+    public void reportActiveUser(String id) {
+        final long hash = hash(id);
+        final HLL stripe = hllStripes[(int) (hash >>> 32) & (HLL_STRIPES - 1)];
+        synchronized (stripe) {
+            stripe.addRaw(hash);
+        }
+    }
+
+    /**
+     * @return snapshot of token counters (grant type -> token type -> count)
+     */
+    public Map<String, Map<String, Long>> getTokenCounts() {
+        final Map<String, Map<String, Long>> result = new HashMap<>();
+        for (Map.Entry<String, ConcurrentMap<String, LongAdder>> grantEntry : tokenCounters.entrySet()) {
+            final Map<String, Long> tokenMap = new HashMap<>();
+            for (Map.Entry<String, LongAdder> tokenEntry : grantEntry.getValue().entrySet()) {
+                tokenMap.put(tokenEntry.getKey(), tokenEntry.getValue().sum());
+            }
+            result.put(grantEntry.getKey(), tokenMap);
+        }
+        return result;
+    }
+
+    /**
+     * @return new HLL which is union of loaded HLL and all stripes
+     */
+    public HLL getUserHll() {
+        final HLL result = newHll();
+        result.union(baseHll);
+        for (HLL stripe : hllStripes) {
+            synchronized (stripe) {
+                result.union(stripe);
+            }
+        }
+        return result;
+    }
+
+    private LongAdder counter(String grantType, String tokenKey) {
+        ConcurrentMap<String, LongAdder> tokenMap = tokenCounters.get(grantType);
+        if (tokenMap == null) {
+            tokenMap = tokenCounters.computeIfAbsent(grantType, k -> new ConcurrentHashMap<>());
+        }
+
+        LongAdder counter = tokenMap.get(tokenKey);
+        if (counter == null) {
+            counter = tokenMap.computeIfAbsent(tokenKey, k -> new LongAdder());
+        }
+        return counter;
+    }
+}
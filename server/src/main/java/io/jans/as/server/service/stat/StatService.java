@@ -19,12 +19,12 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Yuriy Zabrovarnyy
@@ -35,9 +35,7 @@ import java.util.concurrent.ConcurrentMap;
 public class StatService {
 
     // January - 202001, December - 202012
-    private static final SimpleDateFormat PERIOD_DATE_FORMAT = new SimpleDateFormat("yyyyMM");
-    private static final int regwidth = 5;
-    private static final int log2m = 15;
+    private static final DateTimeFormatter PERIOD_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
 
     @Inject
     private Logger log;
@@ -53,9 +51,9 @@ public class StatService {
 
     private String nodeId;
     private String monthlyDn;
-    private StatEntry currentEntry;
-    private HLL hll;
-    private ConcurrentMap<String, Map<String, Long>> tokenCounters;
+    private volatile StatEntry currentEntry;
+    private volatile StatAccumulator accumulator;
+    private volatile long currentPeriodEnd;
 
     public boolean init() {
         try {
@@ -87,7 +85,7 @@ public class StatService {
         }
     }
 
-    public void updateStat() {
+    public synchronized void updateStat() {
         Date now = new Date();
         prepareMonthlyBranch(now);
         if (StringUtils.isBlank(monthlyDn)) {
@@ -96,53 +94,99 @@ public class StatService {
         }
 
         setupCurrentEntry(now);
+        writeEntry(currentEntry, accumulator, now);
+    }
 
-        final Stat stat = currentEntry.getStat();
-        stat.setTokenCountPerGrantType(tokenCounters);
+    private void writeEntry(StatEntry entry, StatAccumulator statAccumulator, Date now) {
+        final Stat stat = entry.getStat();
+        stat.setTokenCountPerGrantType(statAccumulator.getTokenCounts());
         stat.setLastUpdatedAt(now.getTime());
 
-        currentEntry.setUserHllData(new String(hll.toBytes(), StandardCharsets.UTF_8));
-        entryManager.merge(currentEntry);
+        entry.setUserHllData(new String(statAccumulator.getUserHll().toBytes(), StandardCharsets.UTF_8));
+        entryManager.merge(entry);
     }
 
-    private void setupCurrentEntry() {
-        setupCurrentEntry(new Date());
+    private StatAccumulator currentAccumulator() {
+        if (accumulator != null && System.currentTimeMillis() >= currentPeriodEnd) {
+            try {
+                rollOver();
+            } catch (Exception e) {
+                log.error("Failed to switch stat entry to new month.", e);
+            }
+        }
+        return accumulator;
+    }
+
+    private synchronized void rollOver() {
+        if (System.currentTimeMillis() < currentPeriodEnd) {
+            return; // switched by concurrent thread
+        }
+
+        final Date now = new Date();
+        prepareMonthlyBranch(now);
+        setupCurrentEntry(now);
     }
 
-    private void setupCurrentEntry(Date now) {
-        final String month = PERIOD_DATE_FORMAT.format(now);
+    private synchronized void setupCurrentEntry(Date now) {
+        final String month = PERIOD_DATE_FORMAT.format(toZoned(now));
         String dn = String.format("jansId=%s,%s", nodeId, monthlyDn); // jansId=<id>,ou=yyyyMM,ou=stat,o=gluu
 
-        if (currentEntry != null && month.equals(currentEntry.getStat().getMonth())) {
+        final StatEntry previousEntry = currentEntry;
+        final StatAccumulator previousAccumulator = accumulator;
+        if (previousEntry != null && month.equals(previousEntry.getStat().getMonth())) {
             return;
         }
 
         try {
             StatEntry entryFromPersistence = entryManager.find(StatEntry.class, dn);
             if (entryFromPersistence != null && month.equals(entryFromPersistence.getStat().getMonth())) {
-                hll = HLL.fromBytes(entryFromPersistence.getUserHllData().getBytes(StandardCharsets.UTF_8));
-                tokenCounters = new ConcurrentHashMap<>(entryFromPersistence.getStat().getTokenCountPerGrantType());
+                final HLL hll = HLL.fromBytes(entryFromPersistence.getUserHllData().getBytes(StandardCharsets.UTF_8));
+                accumulator = new StatAccumulator(month, entryFromPersistence.getStat().getTokenCountPerGrantType(), hll);
                 currentEntry = entryFromPersistence;
+                currentPeriodEnd = periodEnd(now);
                 log.trace("Stat entry loaded.");
+                flushPrevious(previousEntry, previousAccumulator, now);
                 return;
             }
         } catch (EntryPersistenceException e) {
             log.trace("Stat entry is not found in persistence.");
         }
 
-        if (currentEntry == null) {
-            log.trace("Creating stat entry ...");
-            hll = new HLL(log2m, regwidth);
-            tokenCounters = new ConcurrentHashMap<>();
-
-            currentEntry = new StatEntry();
-            currentEntry.setId(nodeId);
-            currentEntry.setDn(dn);
-            currentEntry.setUserHllData(new String(hll.toBytes(), StandardCharsets.UTF_8));
-            currentEntry.getStat().setMonth(PERIOD_DATE_FORMAT.format(new Date()));
-            entryManager.persist(currentEntry);
-            log.trace("Created stat entry.");
+        log.trace("Creating stat entry ...");
+        final StatAccumulator newAccumulator = new StatAccumulator(month);
+
+        final StatEntry newEntry = new StatEntry();
+        newEntry.setId(nodeId);
+        newEntry.setDn(dn);
+        newEntry.setUserHllData(new String(newAccumulator.getUserHll().toBytes(), StandardCharsets.UTF_8));
+        newEntry.getStat().setMonth(month);
+        entryManager.persist(newEntry);
+
+        accumulator = newAccumulator;
+        currentEntry = newEntry;
+        currentPeriodEnd = periodEnd(now);
+        log.trace("Created stat entry.");
+        flushPrevious(previousEntry, previousAccumulator, now);
+    }
+
+    // write counts reported after last update into entry of previous month
+    private void flushPrevious(StatEntry previousEntry, StatAccumulator previousAccumulator, Date now) {
+        if (previousEntry == null || previousAccumulator == null) {
+            return;
         }
+        try {
+            writeEntry(previousEntry, previousAccumulator, now);
+        } catch (Exception e) {
+            log.error("Failed to write stat entry of previous month.", e);
+        }
+    }
+
+    private static ZonedDateTime toZoned(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault());
+    }
+
+    private static long periodEnd(Date now) {
+        return toZoned(now).withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1).toInstant().toEpochMilli();
     }
 
     private void initNodeId() {
@@ -181,7 +225,7 @@ public class StatService {
     private void prepareMonthlyBranch(Date now) {
         final String baseDn = getBaseDn();
 
-        final String month = PERIOD_DATE_FORMAT.format(now); // yyyyMM
+        final String month = PERIOD_DATE_FORMAT.format(toZoned(now)); // yyyyMM
         monthlyDn = String.format("ou=%s,%s", month, baseDn); // ou=yyyyMM,ou=stat,o=gluu
         if (!entryManager.hasBranchesSupport(baseDn)) {
             return;
@@ -217,8 +261,12 @@ public class StatService {
         if (StringUtils.isBlank(id)) {
             return;
         }
-        setupCurrentEntry();
-        hll.addRaw(id.hashCode());
+        final StatAccumulator statAccumulator = currentAccumulator();
+        if (statAccumulator == null) {
+            log.error("Stat service is not initialized.");
+            return;
+        }
+        statAccumulator.reportActiveUser(id);
     }
 
     public void reportAccessToken(GrantType grantType) {
@@ -242,22 +290,12 @@ public class StatService {
         if (grantType == null || tokenKey == null) {
             return;
         }
-        if (tokenCounters == null) {
+        final StatAccumulator statAccumulator = currentAccumulator();
+        if (statAccumulator == null) {
             log.error("Stat service is not initialized.");
             return;
         }
 
-        Map<String, Long> tokenMap = tokenCounters.computeIfAbsent(grantType.getValue(), k -> new ConcurrentHashMap<>());
-
-        Long counter = tokenMap.get(tokenKey);
-
-        if (counter == null) {
-            counter = 1L;
-        } else {
-            counter++;
-        }
-
-        tokenMap.put(tokenKey, counter);
-
+        statAccumulator.reportToken(grantType.getValue(), tokenKey);
     }
 }
@@ -16,6 +16,7 @@ import io.jans.as.persistence.model.Scope;
 import io.jans.as.persistence.model.ScopeAttributes;
 import io.jans.as.server.ciba.CIBAConfigurationService;
 import io.jans.as.server.service.LocalResponseCache;
+import io.jans.as.server.service.ResponseSnapshot;
 import io.jans.as.server.service.ScopeService;
 import io.jans.as.server.service.external.ExternalAuthenticationService;
 import io.jans.as.server.service.external.ExternalDynamicScopeService;
@@ -32,7 +33,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.*;
 
 import static io.jans.as.model.configuration.ConfigurationResponseClaim.*;
@@ -90,12 +90,11 @@ public class OpenIdConfiguration extends HttpServlet {
 			return;
 		}
 
-		httpResponse.setContentType("application/json");
-		try (PrintWriter out = httpResponse.getWriter()) {
-            final JSONObject cachedResponse = localResponseCache.getDiscoveryResponse();
+		try {
+            final ResponseSnapshot cachedResponse = localResponseCache.getDiscoveryResponse();
             if (cachedResponse != null) {
                 log.trace("Cached discovery response returned.");
-                out.println(ServerUtil.toPrettyJson(cachedResponse).replace("\\/", "/"));
+                cachedResponse.write(servletRequest, httpResponse, appConfiguration.getDiscoveryCacheControlMaxAgeInSeconds());
                 return;
             }
 
@@ -317,9 +316,10 @@ public class OpenIdConfiguration extends HttpServlet {
 			// CIBA Configuration
 			cibaConfigurationService.processConfiguration(jsonObj);
 
-            localResponseCache.putDiscoveryResponse(jsonObj);
+            final ResponseSnapshot response = new ResponseSnapshot(ServerUtil.toPrettyJson(jsonObj).replace("\\/", "/") + System.lineSeparator(), "application/json");
+            localResponseCache.putDiscoveryResponse(response);
 
-			out.println(ServerUtil.toPrettyJson(jsonObj).replace("\\/", "/"));
+            response.write(servletRequest, httpResponse, appConfiguration.getDiscoveryCacheControlMaxAgeInSeconds());
 		} catch (Exception e) {
 			log.error(e.getMessage(), e);
 		}
@@ -0,0 +1,161 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.session.ws.rs;
+
+import com.codahale.metrics.Gauge;
+import io.jans.as.server.service.MetricService;
+import io.jans.as.server.service.net.HttpService;
+import io.jans.as.server.util.ServerUtil;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient4Engine;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Form;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends backchannel logout notifications to RPs asynchronously (fire-and-forget), so end session request does not
+ * wait for RPs.
+ * <p>
+ * Notifications are sent by bounded worker pool through shared outbound http client of {@link HttpService}. Failed
+ * call (connection failure or 5xx) is retried with exponential backoff, at most MAX_ATTEMPTS times.
+ */
+@ApplicationScoped
+@Named
+public class BackchannelLogoutDispatcher {
+
+    public static final String QUEUE_DEPTH_GAUGE = "backchannel_logout_queue_depth";
+    public static final String LATENCY_TIMER = "backchannel_logout_latency";
+    public static final String FAILURE_COUNTER = "backchannel_logout_failure";
+    public static final String RETRY_COUNTER = "backchannel_logout_retry";
+    public static final String REJECTED_COUNTER = "backchannel_logout_rejected";
+
+    private static final int WORKERS = 8;
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long INITIAL_BACKOFF_IN_MILLIS = 1000;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private MetricService metricService;
+
+    @Inject
+    private HttpService httpService;
+
+    private ThreadPoolExecutor workers;
+    private ScheduledExecutorService retryScheduler;
+    private javax.ws.rs.client.Client client;
+
+    private volatile boolean gaugeRegistered;
+
+    @PostConstruct
+    public void init() {
+        workers = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), ServerUtil.daemonThreadFactory());
+        workers.allowCoreThreadTimeOut(true);
+        retryScheduler = ServerUtil.createExecutor();
+
+        final ApacheHttpClient4Engine engine = new ApacheHttpClient4Engine(httpService.getOutboundHttpClient()); // does not close shared client
+        engine.setFollowRedirects(true);
+        client = new ResteasyClientBuilder().httpEngine(engine).build();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    /**
+     * Queues logout notification and returns immediately.
+     */
+    public void dispatch(String backchannelLogoutUri, String logoutToken) {
+        registerGauge();
+        submit(new Notification(backchannelLogoutUri, logoutToken));
+    }
+
+    private void submit(Notification notification) {
+        try {
+            workers.execute(() -> send(notification));
+        } catch (RejectedExecutionException e) {
+            metricService.incCounter(REJECTED_COUNTER, 1);
+            log.error("Backchannel logout queue is full, notification is dropped, backchannel_logout_uri: " + notification.uri);
+        }
+    }
+
+    private void send(Notification notification) {
+        notification.attempt++;
+        log.debug("Calling RP with backchannel, backchannel_logout_uri: {}, attempt: {}", notification.uri, notification.attempt);
+
+        final long start = System.nanoTime();
+        boolean retry;
+        try (Response response = client.target(notification.uri).request().post(Entity.form(new Form("logout_token", notification.logoutToken)))) {
+            log.debug("Backchannel RP response, status: {}, backchannel_logout_uri: {}", response.getStatus(), notification.uri);
+            if (response.getStatus() < 400) {
+                return;
+            }
+            retry = response.getStatus() >= 500; // 4xx means that RP rejected logout token, retry won't help
+        } catch (Exception e) {
+            log.debug("Failed to call backchannel_logout_uri " + notification.uri + ", message: " + e.getMessage(), e);
+            retry = true;
+        } finally {
+            metricService.updateTimer(LATENCY_TIMER, System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (retry && notification.attempt < MAX_ATTEMPTS) {
+            final long backoff = INITIAL_BACKOFF_IN_MILLIS << (notification.attempt - 1);
+            try {
+                retryScheduler.schedule(() -> submit(notification), backoff, TimeUnit.MILLISECONDS);
+                metricService.incCounter(RETRY_COUNTER, 1);
+                return;
+            } catch (RejectedExecutionException e) {
+                log.trace("Failed to schedule retry, shutdown?", e);
+            }
+        }
+
+        metricService.incCounter(FAILURE_COUNTER, 1);
+        log.error("Failed to call backchannel_logout_uri {} after {} attempt(s)", notification.uri, notification.attempt);
+    }
+
+    private void registerGauge() {
+        if (!gaugeRegistered) {
+            gaugeRegistered = metricService.registerGauge(QUEUE_DEPTH_GAUGE, (Gauge<Integer>) () -> workers.getQueue().size());
+        }
+    }
+
+    private static class Notification {
+
+        private final String uri;
+        private final String logoutToken;
+        private int attempt; // accessed by one thread at a time
+
+        private Notification(String uri, String logoutToken) {
+            this.uri = uri;
+            this.logoutToken = logoutToken;
+        }
+    }
+}
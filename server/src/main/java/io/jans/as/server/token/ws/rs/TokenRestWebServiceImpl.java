@@ -18,6 +18,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.lang.StringUtils;
 import org.json.JSONException;
@@ -38,6 +39,7 @@ import io.jans.as.model.crypto.binding.TokenBindingMessage;
 import io.jans.as.model.error.ErrorResponseFactory;
 import io.jans.as.model.token.JsonWebResponse;
 import io.jans.as.model.token.TokenErrorResponseType;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.server.audit.ApplicationAuditLogger;
 import io.jans.as.server.model.audit.Action;
 import io.jans.as.server.model.audit.OAuth2AuditLog;
@@ -228,49 +230,52 @@ public class TokenRestWebServiceImpl implements TokenRestWebService {
 
                 validatePKCE(authorizationCodeGrant, codeVerifier, oAuth2AuditLog);
 
-                authorizationCodeGrant.setIsCachedWithNoPersistence(false);
-                authorizationCodeGrant.save();
+                try (GrantService.TokenBatch batch = grantService.beginBatch()) { // tokens of the grant are written at once, grant state merge is deferred
+                    authorizationCodeGrant.setIsCachedWithNoPersistence(false);
+                    authorizationCodeGrant.save();
 
-                RefreshToken reToken = null;
-                if (isRefreshTokenAllowed(client, scope, authorizationCodeGrant)) {
-                    reToken = authorizationCodeGrant.createRefreshToken();
-                }
+                    RefreshToken reToken = null;
+                    if (isRefreshTokenAllowed(client, scope, authorizationCodeGrant)) {
+                        reToken = authorizationCodeGrant.createRefreshToken();
+                    }
 
-                if (scope != null && !scope.isEmpty()) {
-                    scope = authorizationCodeGrant.checkScopesPolicy(scope);
-                }
+                    if (scope != null && !scope.isEmpty()) {
+                        scope = authorizationCodeGrant.checkScopesPolicy(scope);
+                    }
 
-                AccessToken accToken = authorizationCodeGrant.createAccessToken(request.getHeader("X-ClientCert"), new ExecutionContext(request, response)); // create token after scopes are checked
-                log.debug("Issuing access token: {}", accToken.getCode());
+                    AccessToken accToken = authorizationCodeGrant.createAccessToken(request.getHeader("X-ClientCert"), new ExecutionContext(request, response)); // create token after scopes are checked
+                    log.debug("Issuing access token: {}", accToken.getCode());
 
-                IdToken idToken = null;
-                if (authorizationCodeGrant.getScopes().contains("openid")) {
-                    String nonce = authorizationCodeGrant.getNonce();
-                    boolean includeIdTokenClaims = Boolean.TRUE.equals(
-                            appConfiguration.getLegacyIdTokenClaims());
-                    final String idTokenTokenBindingCnf = client.getIdTokenTokenBindingCnf();
-                    Function<JsonWebResponse, Void> authorizationCodePreProcessing = jsonWebResponse -> {
-                        if (StringUtils.isNotBlank(idTokenTokenBindingCnf) && StringUtils.isNotBlank(authorizationCodeGrant.getTokenBindingHash())) {
-                            TokenBindingMessage.setCnfClaim(jsonWebResponse, authorizationCodeGrant.getTokenBindingHash(), idTokenTokenBindingCnf);
-                        }
-                        return null;
-                    };
+                    IdToken idToken = null;
+                    if (authorizationCodeGrant.getScopes().contains("openid")) {
+                        String nonce = authorizationCodeGrant.getNonce();
+                        boolean includeIdTokenClaims = Boolean.TRUE.equals(
+                                appConfiguration.getLegacyIdTokenClaims());
+                        final String idTokenTokenBindingCnf = client.getIdTokenTokenBindingCnf();
+                        Function<JsonWebResponse, Void> authorizationCodePreProcessing = jsonWebResponse -> {
+                            if (StringUtils.isNotBlank(idTokenTokenBindingCnf) && StringUtils.isNotBlank(authorizationCodeGrant.getTokenBindingHash())) {
+                                TokenBindingMessage.setCnfClaim(jsonWebResponse, authorizationCodeGrant.getTokenBindingHash(), idTokenTokenBindingCnf);
+                            }
+                            return null;
+                        };
                     
-                    ExternalUpdateTokenContext context = new ExternalUpdateTokenContext(request, authorizationCodeGrant, client, appConfiguration, attributeService);
-                    Function<JsonWebResponse, Void> postProcessor = externalUpdateTokenService.buildModifyIdTokenProcessor(context);
+                        ExternalUpdateTokenContext context = new ExternalUpdateTokenContext(request, authorizationCodeGrant, client, appConfiguration, attributeService);
+                        Function<JsonWebResponse, Void> postProcessor = externalUpdateTokenService.buildModifyIdTokenProcessor(context);
 
-                    idToken = authorizationCodeGrant.createIdToken(
-                            nonce, authorizationCodeGrant.getAuthorizationCode(), accToken, null, null,
-                            authorizationCodeGrant, includeIdTokenClaims, JwrService.wrapWithSidFunction(authorizationCodePreProcessing, sessionIdObj != null ? sessionIdObj.getOutsideSid() : null),
-                            postProcessor);
-                }
+                        idToken = authorizationCodeGrant.createIdToken(
+                                nonce, authorizationCodeGrant.getAuthorizationCode(), accToken, null, null,
+                                authorizationCodeGrant, includeIdTokenClaims, JwrService.wrapWithSidFunction(authorizationCodePreProcessing, sessionIdObj != null ? sessionIdObj.getOutsideSid() : null),
+                                postProcessor);
+                    }
 
-                oAuth2AuditLog.updateOAuth2AuditLog(authorizationCodeGrant, true);
+                    oAuth2AuditLog.updateOAuth2AuditLog(authorizationCodeGrant, true);
 
-                grantService.removeAuthorizationCode(authorizationCodeGrant.getAuthorizationCode().getCode());
+                    grantService.flushBatch(); // tokens must be written before they are returned to client
+                    grantService.removeAuthorizationCode(authorizationCodeGrant.getAuthorizationCode().getCode());
 
-                final String entity = getJSonResponse(accToken, accToken.getTokenType(), accToken.getExpiresIn(), reToken, scope, idToken);
-                return response(Response.ok().entity(entity), oAuth2AuditLog);
+                    final StreamingOutput entity = getJSonEntity(accToken, accToken.getTokenType(), accToken.getExpiresIn(), reToken, scope, idToken);
+                    return response(Response.ok().entity(entity), oAuth2AuditLog);
+                }
             }
 
             if (gt == io.jans.as.model.common.GrantType.REFRESH_TOKEN) {
@@ -322,7 +327,7 @@ public class TokenRestWebServiceImpl implements TokenRestWebService {
                             null, authorizationGrant, includeIdTokenClaims, idTokenPreProcessing, postProcessor);
                 }
 
-                builder.entity(getJSonResponse(accToken,
+                builder.entity(getJSonEntity(accToken,
                         accToken.getTokenType(),
                         accToken.getExpiresIn(),
                         reToken,
@@ -356,7 +361,7 @@ public class TokenRestWebServiceImpl implements TokenRestWebService {
                 }
 
                 oAuth2AuditLog.updateOAuth2AuditLog(clientCredentialsGrant, true);
-                builder.entity(getJSonResponse(accessToken,
+                builder.entity(getJSonEntity(accessToken,
                         accessToken.getTokenType(),
                         accessToken.getExpiresIn(),
                         null,
@@ -439,7 +444,7 @@ public class TokenRestWebServiceImpl implements TokenRestWebService {
                     }
 
                     oAuth2AuditLog.updateOAuth2AuditLog(resourceOwnerPasswordCredentialsGrant, true);
-                    builder.entity(getJSonResponse(accessToken,
+                    builder.entity(getJSonEntity(accessToken,
                             accessToken.getTokenType(),
                             accessToken.getExpiresIn(),
                             reToken,
@@ -497,7 +502,7 @@ public class TokenRestWebServiceImpl implements TokenRestWebService {
                                 scope = cibaGrant.checkScopesPolicy(scope);
                             }
 
-                            builder.entity(getJSonResponse(accessToken,
+                            builder.entity(getJSonEntity(accessToken,
                                     accessToken.getTokenType(),
                                     accessToken.getExpiresIn(),
                                     reToken,
@@ -617,7 +622,7 @@ public class TokenRestWebServiceImpl implements TokenRestWebService {
 
             grantService.removeByCode(deviceCodeGrant.getDeviceCode());
 
-            return Response.ok().entity(getJSonResponse(accessToken, accessToken.getTokenType(),
+            return Response.ok().entity(getJSonEntity(accessToken, accessToken.getTokenType(),
                     accessToken.getExpiresIn(), reToken, scope, idToken)).build();
         } else {
             final DeviceAuthorizationCacheControl cacheData = deviceAuthorizationService.getDeviceAuthzByDeviceCode(deviceCode);
@@ -699,6 +704,21 @@ public class TokenRestWebServiceImpl implements TokenRestWebService {
     public String getJSonResponse(AccessToken accessToken, io.jans.as.model.common.TokenType tokenType,
                                   Integer expiresIn, RefreshToken refreshToken, String scope,
                                   IdToken idToken) {
+        return createJsonResponse(accessToken, tokenType, expiresIn, refreshToken, scope, idToken).toString();
+    }
+
+    /**
+     * Builds a JSon entity for token issues, it is written directly to response stream.
+     */
+    public StreamingOutput getJSonEntity(AccessToken accessToken, io.jans.as.model.common.TokenType tokenType,
+                                         Integer expiresIn, RefreshToken refreshToken, String scope,
+                                         IdToken idToken) {
+        return JsonMappers.streamingOutput(createJsonResponse(accessToken, tokenType, expiresIn, refreshToken, scope, idToken));
+    }
+
+    private JSONObject createJsonResponse(AccessToken accessToken, io.jans.as.model.common.TokenType tokenType,
+                                          Integer expiresIn, RefreshToken refreshToken, String scope,
+                                          IdToken idToken) {
         JSONObject jsonObj = new JSONObject();
         try {
             jsonObj.put("access_token", accessToken.getCode()); // Required
@@ -719,6 +739,6 @@ public class TokenRestWebServiceImpl implements TokenRestWebService {
             log.error(e.getMessage(), e);
         }
 
-        return jsonObj.toString();
+        return jsonObj;
     }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ import io.jans.as.model.util.Util;
 import io.jans.as.server.service.external.ExternalUmaRptPolicyService;
 import io.jans.as.server.uma.authorization.UmaAuthorizationContext;
 import io.jans.as.server.uma.authorization.UmaScriptByScope;
+import io.jans.as.server.uma.service.UmaScopeExpressionCache.CompiledScopeExpression;
 import io.jans.util.StringHelper;
 import org.slf4j.Logger;
 
@@ -44,7 +45,9 @@ public class UmaExpressionService {
     @Inject
     private ErrorResponseFactory errorResponseFactory;
     @Inject
-    private UmaResourceService resourceService;
+    private UmaRequestCache umaRequestCache;
+    @Inject
+    private UmaScopeExpressionCache scopeExpressionCache;
     @Inject
 
     private UmaPermissionService permissionService;
@@ -55,7 +58,7 @@ public class UmaExpressionService {
 
     public void evaluate(Map<UmaScriptByScope, UmaAuthorizationContext> scriptMap, List<UmaPermission> permissions) {
         for (UmaPermission permission : permissions) {
-            UmaResource resource = resourceService.getResourceById(permission.getResourceId());
+            UmaResource resource = umaRequestCache.getResource(permission.getResourceId());
             if (StringHelper.isNotEmpty(resource.getScopeExpression())) {
                 evaluateScopeExpression(scriptMap, permission, resource);
             } else {
@@ -81,8 +84,9 @@ public class UmaExpressionService {
 
     private void evaluateScopeExpression(Map<UmaScriptByScope, UmaAuthorizationContext> scriptMap, UmaPermission permission, UmaResource resource) {
         String scopeExpression = resource.getScopeExpression();
-        JsonLogicNode node = JsonLogicNodeParser.parseNode(scopeExpression);
-        if (node != null) {
+        CompiledScopeExpression compiled = scopeExpressionCache.get(resource);
+        if (compiled != null) {
+            JsonLogicNode node = compiled.getNode();
             log.trace("Evaluating scope expression ...");
 
             // validate scopes, all must be present
@@ -98,15 +102,19 @@ public class UmaExpressionService {
                         evaluatedResults.add(b);
                     }
 
-                    String rule = node.getRule().toString();
+                    String rule = compiled.getRule();
                     final boolean result;
-                    if (evaluatedResults.isEmpty()) {
+                    if (compiled.getCompiledRule() != null) {
+                        result = compiled.getCompiledRule().evaluate(evaluatedResults);
+                    } else if (evaluatedResults.isEmpty()) {
                         result = JsonLogic.apply(rule);
                     } else {
                         result = JsonLogic.apply(rule, Util.asJsonSilently(evaluatedResults));
                     }
 
-                    log.trace("JsonLogic evaluation result: " + result + ", rule: " + rule + ", data:" + Util.asJsonSilently(evaluatedResults));
+                    if (log.isTraceEnabled()) {
+                        log.trace("JsonLogic evaluation result: " + result + ", rule: " + rule + ", data:" + evaluatedResults);
+                    }
                     if (result) {
                         // access granted at this point but we have to remove scopes from permissions for which we got 'false' result
                         removeFalseScopesFromPermission(permission, dataScopes, scopeIdToDnMap, evaluatedResults);
@@ -0,0 +1,104 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.uma.service;
+
+import io.jans.as.model.uma.persistence.UmaPermission;
+import io.jans.as.model.uma.persistence.UmaResource;
+import io.jans.as.persistence.model.Scope;
+import io.jans.as.server.uma.authorization.UmaRPT;
+import org.apache.commons.lang.StringUtils;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resources, RPT permissions and scopes loaded during one request, so services which handle the same request
+ * (token endpoint, expression evaluation, RPT introspection) do not load them again one by one.
+ */
+@RequestScoped
+@Named
+public class UmaRequestCache {
+
+    @Inject
+    private UmaResourceService resourceService;
+
+    @Inject
+    private UmaRptService rptService;
+
+    @Inject
+    private UmaScopeService umaScopeService;
+
+    private final Map<String, UmaResource> resources = new HashMap<>();
+    private final Map<String, List<UmaPermission>> rptPermissions = new HashMap<>();
+    private final Map<String, String> scopeIds = new HashMap<>();
+
+    /**
+     * Loads resources of given permissions with one call.
+     */
+    public void preloadResources(Collection<UmaPermission> permissions) {
+        if (permissions == null) {
+            return;
+        }
+
+        final List<String> missed = new ArrayList<>();
+        for (UmaPermission permission : permissions) {
+            if (StringUtils.isNotBlank(permission.getResourceId()) && !resources.containsKey(permission.getResourceId())) {
+                missed.add(permission.getResourceId());
+            }
+        }
+        if (!missed.isEmpty()) {
+            resources.putAll(resourceService.getResourcesByIds(missed));
+        }
+    }
+
+    /**
+     * @return resource (throws web application exception with 404 if resource is not found, same as {@link UmaResourceService#getResourceById(String)})
+     */
+    public UmaResource getResource(String resourceId) {
+        return resources.computeIfAbsent(resourceId, resourceService::getResourceById);
+    }
+
+    public List<UmaPermission> getRptPermissions(UmaRPT rpt) {
+        if (rpt == null || StringUtils.isBlank(rpt.getDn())) {
+            return rptService.getRptPermissions(rpt);
+        }
+        return rptPermissions.computeIfAbsent(rpt.getDn(), dn -> rptService.getRptPermissions(rpt));
+    }
+
+    public List<String> getScopeIdsByDns(List<String> scopeDns) {
+        final List<String> result = new ArrayList<>();
+        if (scopeDns == null || scopeDns.isEmpty()) {
+            return result;
+        }
+
+        final List<String> missed = new ArrayList<>();
+        for (String dn : scopeDns) {
+            if (!scopeIds.containsKey(dn)) {
+                missed.add(dn);
+            }
+        }
+        if (!missed.isEmpty()) {
+            for (Map.Entry<String, Scope> entry : umaScopeService.getScopeMapByDns(missed).entrySet()) {
+                scopeIds.put(entry.getKey(), entry.getValue().getId());
+            }
+        }
+
+        for (String dn : scopeDns) {
+            final String scopeId = scopeIds.get(dn);
+            if (scopeId != null) {
+                result.add(scopeId);
+            }
+        }
+        return result;
+    }
+}
@@ -24,9 +24,13 @@ import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -42,6 +46,9 @@ public class UmaResourceService {
 
     private static final int RESOURCE_CACHE_EXPIRATION_IN_SECONDS = 120;
 
+    // branch is created once and never removed, so it is enough to check it once per server (bean itself is not shared)
+    private static volatile boolean branchPrepared;
+
     @Inject
     private Logger log;
 
@@ -145,8 +152,9 @@ public class UmaResourceService {
     public Set<UmaResource> getResources(Set<String> ids) {
         Set<UmaResource> result = new HashSet<UmaResource>();
         if (ids != null) {
+            final Map<String, UmaResource> resources = getResourcesByIds(ids);
             for (String id : ids) {
-                UmaResource resource = getResourceById(id);
+                UmaResource resource = resources.get(id);
                 if (resource != null) {
                     result.add(resource);
                 } else {
@@ -157,9 +165,47 @@ public class UmaResourceService {
         return result;
     }
 
-    public UmaResource getResourceById(String id) {
-        prepareBranch();
+    /**
+     * Loads resources with one persistence call (resources found in cache are not loaded).
+     *
+     * @param ids resource ids
+     * @return resource id -> resource, map does not contain ids of resources which are not found
+     */
+    public Map<String, UmaResource> getResourcesByIds(Collection<String> ids) {
+        final Map<String, UmaResource> result = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+
+        final List<Filter> missed = new ArrayList<>();
+        for (String id : new HashSet<>(ids)) {
+            if (StringUtils.isBlank(id)) {
+                continue;
+            }
+            final Object cached = cacheService.get(getDnForResource(id));
+            if (cached instanceof UmaResource) {
+                result.put(id, (UmaResource) cached);
+            } else {
+                missed.add(Filter.createEqualityFilter("jansId", id));
+            }
+        }
+        if (missed.isEmpty()) {
+            return result;
+        }
 
+        try {
+            final Filter filter = missed.size() == 1 ? missed.get(0) : Filter.createORFilter(missed.toArray(new Filter[0]));
+            for (UmaResource resource : ldapEntryManager.findEntries(getBaseDnForResource(), UmaResource.class, filter)) {
+                result.put(resource.getId(), resource);
+                cacheService.put(RESOURCE_CACHE_EXPIRATION_IN_SECONDS, resource.getDn(), resource);
+            }
+        } catch (Exception e) {
+            log.error("Failed to load resources by ids: " + ids, e);
+        }
+        return result;
+    }
+
+    public UmaResource getResourceById(String id) {
         try {
             final String key = getDnForResource(id);
             final UmaResource resource = cacheService.getWithPut(key, () -> ldapEntryManager.find(UmaResource.class, key), RESOURCE_CACHE_EXPIRATION_IN_SECONDS);
@@ -174,15 +220,25 @@ public class UmaResourceService {
     }
 
     public Set<String> getResourceScopes(Set<String> resourceIds) {
+        final Map<String, UmaResource> resources = getResourcesByIds(resourceIds);
         Set<String> result = Sets.newHashSet();
         for (String resourceId : resourceIds) {
-            result.addAll(getResourceById(resourceId).getScopes());
+            final UmaResource resource = resources.get(resourceId);
+            if (resource == null) {
+                log.error("Failed to find resource set with id: " + resourceId);
+                throw errorResponseFactory.createWebApplicationException(Response.Status.NOT_FOUND, UmaErrorResponseType.NOT_FOUND, "Failed to find resource set with id: " + resourceId);
+            }
+            result.addAll(resource.getScopes());
         }
         return result;
     }
 
     private void prepareBranch() {
+        if (branchPrepared) {
+            return;
+        }
         if (!ldapEntryManager.hasBranchesSupport(getDnForResource(null))) {
+            branchPrepared = true;
             return;
         }
 
@@ -190,6 +246,7 @@ public class UmaResourceService {
         if (!ldapEntryManager.contains(getDnForResource(null), SimpleBranch.class)) {
             addBranch();
         }
+        branchPrepared = true;
     }
 
     /**
@@ -88,7 +88,8 @@ public class UmaRptService {
     @Inject
     private StatService statService;
 
-    private boolean containsBranch = false;
+    // branch is created once and never removed, so it is enough to check it once per server (bean itself is not shared)
+    private static volatile boolean containsBranch = false;
 
     public String createDn(String tokenCode) {
         return String.format("tknCde=%s,%s", TokenHashUtil.hash(tokenCode), branchDn());
@@ -176,13 +177,7 @@ public class UmaRptService {
         final List<UmaPermission> result = new ArrayList<UmaPermission>();
         try {
             if (p_rpt != null && p_rpt.getPermissions() != null) {
-                final List<String> permissionDns = p_rpt.getPermissions();
-                for (String permissionDn : permissionDns) {
-                    final UmaPermission permissionObject = ldapEntryManager.find(UmaPermission.class, permissionDn);
-                    if (permissionObject != null) {
-                        result.add(permissionObject);
-                    }
-                }
+                result.addAll(ServerUtil.findEntriesByDns(ldapEntryManager, UmaPermission.class, p_rpt.getPermissions(), UmaPermission::getDn).values());
             }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
@@ -236,7 +231,7 @@ public class UmaRptService {
             signatureAlgorithm = SignatureAlgorithm.fromString(client.getAccessTokenSigningAlg());
         }
 
-        final JwtSigner jwtSigner = new JwtSigner(appConfiguration, webKeysConfiguration, signatureAlgorithm, client.getClientId(), clientService.decryptSecret(client.getClientSecret()));
+        final JwtSigner jwtSigner = new JwtSigner(appConfiguration, webKeysConfiguration, signatureAlgorithm, client.getClientId(), clientService.decryptSecret(client));
         final Jwt jwt = jwtSigner.newJwt();
         jwt.getClaims().setClaim("client_id", client.getClientId());
         jwt.getClaims().setExpirationTime(expirationDate);
@@ -304,11 +299,13 @@ public class UmaRptService {
     }
 
     public void addBranchIfNeeded() {
-        if (!containsBranch() && !containsBranch) {
+        if (containsBranch) {
+            return;
+        }
+        if (!containsBranch()) {
             addBranch();
-        } else {
-            containsBranch = true;
         }
+        containsBranch = true;
     }
 
     public boolean containsBranch() {
@@ -0,0 +1,100 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.uma.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.jans.as.model.uma.JsonLogicExpression;
+import io.jans.as.model.uma.JsonLogicNode;
+import io.jans.as.model.uma.JsonLogicNodeParser;
+import io.jans.as.model.uma.persistence.UmaResource;
+import org.apache.commons.lang.StringUtils;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Named;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scope expressions of resources compiled once per resource revision (key is resource dn plus hash of expression,
+ * so changed expression gets new entry and old one expires).
+ */
+@ApplicationScoped
+@Named
+public class UmaScopeExpressionCache {
+
+    private static final int MAX_ENTRIES = 10000;
+    private static final int EXPIRATION_IN_MINUTES = 60;
+
+    private final Cache<String, CompiledScopeExpression> cache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterAccess(EXPIRATION_IN_MINUTES, TimeUnit.MINUTES).build();
+
+    /**
+     * @return compiled scope expression of resource or null if expression can't be parsed
+     */
+    public CompiledScopeExpression get(UmaResource resource) {
+        final String expression = resource.getScopeExpression();
+        if (StringUtils.isBlank(expression)) {
+            return null;
+        }
+
+        final String key = resource.getDn() + "_" + Integer.toHexString(expression.hashCode());
+        CompiledScopeExpression compiled = cache.getIfPresent(key);
+        if (compiled != null && compiled.getExpression().equals(expression)) {
+            return compiled;
+        }
+
+        final JsonLogicNode node = JsonLogicNodeParser.parseNode(expression);
+        if (node == null) {
+            return null;
+        }
+        compiled = new CompiledScopeExpression(expression, node);
+        cache.put(key, compiled);
+        return compiled;
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public static class CompiledScopeExpression {
+
+        private final String expression;
+        private final JsonLogicNode node;
+        private final String rule;
+        private final JsonLogicExpression compiledRule;
+
+        public CompiledScopeExpression(String expression, JsonLogicNode node) {
+            this.expression = expression;
+            this.node = node;
+            this.rule = node.getRule() != null ? node.getRule().toString() : null;
+            this.compiledRule = JsonLogicExpression.compile(node.getRule());
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+
+        public JsonLogicNode getNode() {
+            return node;
+        }
+
+        /**
+         * @return rule serialized to string (for evaluation by JsonLogic if rule is not compiled)
+         */
+        public String getRule() {
+            return rule;
+        }
+
+        /**
+         * @return compiled rule or null if rule contains operations which are not supported by {@link JsonLogicExpression}
+         */
+        public JsonLogicExpression getCompiledRule() {
+            return compiledRule;
+        }
+    }
+}
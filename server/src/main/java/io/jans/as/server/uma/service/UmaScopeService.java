@@ -15,6 +15,7 @@ import io.jans.as.model.error.ErrorResponseFactory;
 import io.jans.as.model.uma.UmaErrorResponseType;
 import io.jans.as.persistence.model.Scope;
 import io.jans.as.server.service.SpontaneousScopeService;
+import io.jans.as.server.util.ServerUtil;
 import io.jans.orm.PersistenceEntryManager;
 import io.jans.orm.search.filter.Filter;
 import org.apache.commons.lang.StringUtils;
@@ -27,6 +28,7 @@ import javax.ws.rs.core.Response;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -122,8 +124,9 @@ public class UmaScopeService {
         final List<Scope> result = new ArrayList<Scope>();
         try {
             if (scopeDns != null && !scopeDns.isEmpty()) {
+                final Map<String, Scope> scopes = getScopeMapByDns(scopeDns);
                 for (String dn : scopeDns) {
-                    final Scope scopeDescription = ldapEntryManager.find(Scope.class, dn);
+                    final Scope scopeDescription = scopes.get(dn);
                     if (scopeDescription != null) {
                         result.add(scopeDescription);
                     } else {
@@ -137,6 +140,13 @@ public class UmaScopeService {
         return result;
     }
 
+    /**
+     * @return scope dn -> scope, loaded with one search (map does not contain dns of scopes which are not found)
+     */
+    public Map<String, Scope> getScopeMapByDns(Collection<String> scopeDns) {
+        return ServerUtil.findEntriesByDns(ldapEntryManager, Scope.class, scopeDns, Scope::getDn);
+    }
+
     public List<String> getScopeIdsByDns(List<String> scopeDns) {
         return getScopeIds(getScopesByDns(scopeDns));
     }
@@ -56,6 +56,8 @@ public class UmaTokenService {
     private UmaNeedsInfoService umaNeedsInfoService;
     @Inject
     private UmaExpressionService expressionService;
+    @Inject
+    private UmaRequestCache umaRequestCache;
 
     public Response requestRpt(
             String grantType,
@@ -73,6 +75,7 @@ public class UmaTokenService {
 
             umaValidationService.validateGrantType(grantType);
             List<UmaPermission> permissions = umaValidationService.validateTicket(ticket);
+            umaRequestCache.preloadResources(permissions);
             Jwt idToken = umaValidationService.validateClaimToken(claimToken, claimTokenFormat);
             UmaPCT pct = umaValidationService.validatePct(pctCode);
             UmaRPT rpt = umaValidationService.validateRPT(rptCode);
@@ -6,15 +6,13 @@
 
 package io.jans.as.server.uma.ws.rs;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import io.jans.as.model.error.ErrorResponseFactory;
 import io.jans.as.model.uma.*;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.server.model.common.AuthorizationGrant;
 import io.jans.as.server.service.token.TokenService;
 import io.jans.as.server.uma.service.UmaPermissionService;
 import io.jans.as.server.uma.service.UmaValidationService;
-import io.jans.as.server.util.ServerUtil;
 import org.slf4j.Logger;
 
 import javax.inject.Inject;
@@ -92,16 +90,15 @@ public class UmaPermissionRegistrationWS {
      * @return uma permission list
      */
     private UmaPermissionList parseRequest(String requestAsString) {
-        final ObjectMapper mapper = ServerUtil.createJsonMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, false);
         try {
-            UmaPermission permission = mapper.readValue(requestAsString, UmaPermission.class);
+            UmaPermission permission = JsonMappers.readerFor(UmaPermission.class).readValue(requestAsString);
             return new UmaPermissionList().addPermission(permission);
         } catch (IOException e) {
             // ignore
         }
 
         try {
-            UmaPermissionList permissions = mapper.readValue(requestAsString, UmaPermissionList.class);
+            UmaPermissionList permissions = JsonMappers.readerFor(UmaPermissionList.class).readValue(requestAsString);
             if (!permissions.isEmpty()) {
                 return permissions;
             }
@@ -17,8 +17,8 @@ import io.jans.as.server.service.external.context.ExternalUmaRptClaimsContext;
 import io.jans.as.server.uma.authorization.UmaPCT;
 import io.jans.as.server.uma.authorization.UmaRPT;
 import io.jans.as.server.uma.service.UmaPctService;
+import io.jans.as.server.uma.service.UmaRequestCache;
 import io.jans.as.server.uma.service.UmaRptService;
-import io.jans.as.server.uma.service.UmaScopeService;
 import io.jans.as.server.uma.service.UmaValidationService;
 import io.jans.as.server.util.ServerUtil;
 import io.jans.util.StringHelper;
@@ -54,7 +54,7 @@ public class UmaRptIntrospectionWS {
     @Inject
     private UmaValidationService umaValidationService;
     @Inject
-    private UmaScopeService umaScopeService;
+    private UmaRequestCache umaRequestCache;
     @Inject
     private UmaPctService pctService;
     @Inject
@@ -107,7 +107,7 @@ public class UmaRptIntrospectionWS {
             statusResponse.setAud(rpt.getClientId());
             statusResponse.setSub(rpt.getUserId());
 
-            final List<UmaPermission> rptPermissions = rptService.getRptPermissions(rpt);
+            final List<UmaPermission> rptPermissions = umaRequestCache.getRptPermissions(rpt);
             if (!rptPermissions.isEmpty()) {
                 UmaPermission permission = rptPermissions.iterator().next();
                 String pctCode = permission.getAttributes().get(UmaPermission.PCT);
@@ -167,11 +167,11 @@ public class UmaRptIntrospectionWS {
     private List<io.jans.as.model.uma.UmaPermission> buildStatusResponsePermissions(UmaRPT rpt) {
         final List<io.jans.as.model.uma.UmaPermission> result = new ArrayList<io.jans.as.model.uma.UmaPermission>();
         if (rpt != null) {
-            final List<UmaPermission> rptPermissions = rptService.getRptPermissions(rpt);
+            final List<UmaPermission> rptPermissions = umaRequestCache.getRptPermissions(rpt);
             if (rptPermissions != null && !rptPermissions.isEmpty()) {
                 for (UmaPermission permission : rptPermissions) {
                     if (isValid(permission)) {
-                        final io.jans.as.model.uma.UmaPermission toAdd = ServerUtil.convert(permission, umaScopeService);
+                        final io.jans.as.model.uma.UmaPermission toAdd = ServerUtil.convert(permission, umaRequestCache.getScopeIdsByDns(permission.getScopeDns()));
                         if (toAdd != null) {
                             result.add(toAdd);
                         }
@@ -8,7 +8,6 @@ package io.jans.as.server.userinfo.ws.rs;
 
 import io.jans.as.common.claims.Audience;
 import io.jans.as.common.model.common.User;
-import io.jans.as.common.model.registration.Client;
 import io.jans.as.common.service.AttributeService;
 import io.jans.as.model.common.ScopeType;
 import io.jans.as.model.config.WebKeysConfiguration;
@@ -33,7 +32,7 @@ import io.jans.as.model.jwt.JwtSubClaimObject;
 import io.jans.as.model.jwt.JwtType;
 import io.jans.as.model.token.JsonWebResponse;
 import io.jans.as.model.userinfo.UserInfoErrorResponseType;
-import io.jans.as.model.util.JwtUtil;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.model.util.Util;
 import io.jans.as.persistence.model.Scope;
 import io.jans.as.server.audit.ApplicationAuditLogger;
@@ -41,9 +40,11 @@ import io.jans.as.server.model.audit.Action;
 import io.jans.as.server.model.audit.OAuth2AuditLog;
 import io.jans.as.server.model.authorize.Claim;
 import io.jans.as.server.model.common.*;
+import io.jans.as.server.model.token.ClaimPlan;
 import io.jans.as.server.model.userinfo.UserInfoParamsValidator;
+import io.jans.as.server.service.ClaimPlanService;
 import io.jans.as.server.service.ClientService;
-import io.jans.as.server.service.ScopeService;
+import io.jans.as.server.service.JwksResolverService;
 import io.jans.as.server.service.ServerCryptoProvider;
 import io.jans.as.server.service.UserService;
 import io.jans.as.server.service.external.ExternalDynamicScopeService;
@@ -54,7 +55,6 @@ import io.jans.model.GluuAttribute;
 import io.jans.model.attribute.AttributeDataType;
 import io.jans.orm.PersistenceEntryManager;
 import io.jans.orm.exception.EntryPersistenceException;
-import org.apache.commons.lang.StringUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -65,6 +65,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.StreamingOutput;
 import java.security.PublicKey;
 import java.text.ParseException;
 import java.util.*;
@@ -94,7 +95,10 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
     private ClientService clientService;
 
     @Inject
-    private ScopeService scopeService;
+    private JwksResolverService jwksResolverService;
+
+    @Inject
+    private ClaimPlanService claimPlanService;
 
     @Inject
     private AttributeService attributeService;
@@ -177,11 +181,13 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
             builder.cacheControl(ServerUtil.cacheControlWithNoStoreTransformAndPrivate());
             builder.header("Pragma", "no-cache");
 
-            User currentUser = authorizationGrant.getUser();
+            // grant user is loaded lazily, so read actual user entry by dn directly instead of loading it twice
+            User currentUser;
             try {
                 currentUser = userService.getUserByDn(authorizationGrant.getUserDn());
             } catch (EntryPersistenceException ex) {
                 log.warn("Failed to reload user entry: '{}'", authorizationGrant.getUserDn());
+                currentUser = authorizationGrant.getUser();
             }
 
             if (authorizationGrant.getClient() != null
@@ -206,7 +212,7 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
                         authorizationGrant.getScopes()));
             } else {
                 builder.type((MediaType.APPLICATION_JSON + ";charset=UTF-8"));
-                builder.entity(getJSonResponse(currentUser,
+                builder.entity(getJSonEntity(currentUser,
                         authorizationGrant,
                         authorizationGrant.getScopes()));
             }
@@ -251,8 +257,8 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
         jwt.setClaims(createJwtClaims(user, authorizationGrant, scopes));
 
         // Signature
-        String sharedSecret = clientService.decryptSecret(authorizationGrant.getClient().getClientSecret());
-        String signature = cryptoProvider.sign(jwt.getSigningInput(), jwt.getHeader().getKeyId(), sharedSecret, signatureAlgorithm);
+        String sharedSecret = clientService.decryptSecret(authorizationGrant.getClient());
+        String signature = cryptoProvider.sign(jwt.getSigningInputBytes(), jwt.getHeader().getKeyId(), sharedSecret, signatureAlgorithm);
         jwt.setEncodedSignature(signature);
 
         return jwt.toString();
@@ -285,7 +291,7 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
         // Encryption
         if (keyEncryptionAlgorithm == KeyEncryptionAlgorithm.RSA_OAEP
                 || keyEncryptionAlgorithm == KeyEncryptionAlgorithm.RSA1_5) {
-            JSONObject jsonWebKeys = JwtUtil.getJSONWebKeys(authorizationGrant.getClient().getJwksUri());
+            JSONObject jsonWebKeys = jwksResolverService.getJwks(authorizationGrant.getClient().getJwksUri());
             String keyId = new ServerCryptoProvider(cryptoProvider).getKeyId(JSONWebKeySet.fromJSONObject(jsonWebKeys),
                     Algorithm.fromString(keyEncryptionAlgorithm.getName()),
                     Use.ENCRYPTION);
@@ -300,7 +306,7 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
         } else if (keyEncryptionAlgorithm == KeyEncryptionAlgorithm.A128KW
                 || keyEncryptionAlgorithm == KeyEncryptionAlgorithm.A256KW) {
             try {
-                byte[] sharedSymmetricKey = clientService.decryptSecret(authorizationGrant.getClient().getClientSecret()).getBytes(Util.UTF8_STRING_ENCODING);
+                byte[] sharedSymmetricKey = clientService.decryptSecret(authorizationGrant.getClient()).getBytes(Util.UTF8_STRING_ENCODING);
                 JweEncrypter jweEncrypter = new JweEncrypterImpl(keyEncryptionAlgorithm, blockEncryptionAlgorithm, sharedSymmetricKey);
                 jwe = jweEncrypter.encrypt(jwe);
             } catch (Exception e) {
@@ -316,28 +322,38 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
      */
     public String getJSonResponse(User user, AuthorizationGrant authorizationGrant, Collection<String> scopes)
             throws Exception {
+        return createJsonWebResponse(user, authorizationGrant, scopes).toString();
+    }
+
+    /**
+     * Builds a JSon entity with the response parameters, claims are written directly to response stream (slashes are
+     * not escaped, same as in {@link #getJSonResponse(User, AuthorizationGrant, Collection)}).
+     */
+    private StreamingOutput getJSonEntity(User user, AuthorizationGrant authorizationGrant, Collection<String> scopes)
+            throws Exception {
+        final JSONObject claims = createJsonWebResponse(user, authorizationGrant, scopes).getClaims().toJsonObject();
+        return JsonMappers.streamingOutput(JsonMappers.writerFor(claims), claims);
+    }
+
+    private JsonWebResponse createJsonWebResponse(User user, AuthorizationGrant authorizationGrant, Collection<String> scopes)
+            throws Exception {
         log.trace("Building JSON reponse with next scopes {0} for user {1} and user custom attributes {0}", scopes, user.getUserId(), user.getCustomAttributes());
 
         JsonWebResponse jsonWebResponse = new JsonWebResponse();
 
         // Claims
+        final ClaimPlan claimPlan = claimPlanService.getPlan(authorizationGrant.getClient().getClaims(), scopes);
         List<Scope> dynamicScopes = new ArrayList<Scope>();
-        for (String scopeName : scopes) {
-            Scope scope = scopeService.getScopeById(scopeName);
-            if ((scope != null) && (ScopeType.DYNAMIC == scope.getScopeType())) {
+        for (ClaimPlan.ScopeClaims scopeClaims : claimPlan.getScopes()) {
+            Scope scope = scopeClaims.getScope();
+            if (ScopeType.DYNAMIC == scope.getScopeType()) {
                 dynamicScopes.add(scope);
                 continue;
             }
 
-            Map<String, Object> claims = getClaims(user, scope);
-            if (claims == null) {
-                continue;
-            }
-            if (scope == null) {
-                log.trace("Unable to find scope in persistence. Is it removed? Scope name: " + scopeName);
-            }
+            Map<String, Object> claims = getClaims(user, scopeClaims.getAttributes());
 
-            if (scope != null && Boolean.TRUE.equals(scope.isGroupClaims())) {
+            if (Boolean.TRUE.equals(scope.isGroupClaims())) {
                 JwtSubClaimObject groupClaim = new JwtSubClaimObject();
                 groupClaim.setName(scope.getId());
                 for (Map.Entry<String, Object> entry : claims.entrySet()) {
@@ -396,9 +412,7 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
                 GluuAttribute gluuAttribute = attributeService.getByClaimName(claim.getName());
 
                 if (gluuAttribute != null) {
-                    Client client = authorizationGrant.getClient();
-
-                    if (validateRequesteClaim(gluuAttribute, client.getClaims(), scopes)) {
+                    if (claimPlan.isClaimAllowed(gluuAttribute)) {
                         String ldapClaimName = gluuAttribute.getName();
                         Object attribute = user.getAttribute(ldapClaimName, optional, gluuAttribute.getOxMultiValuedAttribute());
                         jsonWebResponse.getClaims().setClaimFromJsonObject(claim.getName(), attribute);
@@ -415,7 +429,7 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
             externalDynamicScopeService.executeExternalUpdateMethods(dynamicScopeContext);
         }
 
-        return jsonWebResponse.toString();
+        return jsonWebResponse;
     }
 
     public boolean validateRequesteClaim(GluuAttribute gluuAttribute, String[] clientAllowedClaims, Collection<String> scopes) {
@@ -423,59 +437,20 @@ public class UserInfoRestWebServiceImpl implements UserInfoRestWebService {
             log.trace("gluuAttribute is null.");
             return false;
         }
-        if (clientAllowedClaims != null) {
-            for (String clientAllowedClaim : clientAllowedClaims) {
-                if (gluuAttribute.getDn().equals(clientAllowedClaim)) {
-                    return true;
-                }
-            }
-        }
-
-        for (String scopeName : scopes) {
-            Scope scope = scopeService.getScopeById(scopeName);
-
-            if (scope != null && scope.getClaims() != null) {
-                for (String claimDn : scope.getClaims()) {
-                    if (gluuAttribute.getDisplayName().equals(attributeService.getAttributeByDn(claimDn).getDisplayName())) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        return false;
+        return claimPlanService.getPlan(clientAllowedClaims, scopes).isClaimAllowed(gluuAttribute);
     }
 
-    public Map<String, Object> getClaims(User user, Scope scope) throws InvalidClaimException, ParseException {
+    /**
+     * @param attributes claim attributes of the scope (with claim name and ldap name), see {@link ClaimPlan.ScopeClaims#getAttributes()}
+     */
+    public Map<String, Object> getClaims(User user, List<GluuAttribute> attributes) throws InvalidClaimException, ParseException {
         Map<String, Object> claims = new HashMap<String, Object>();
 
-        if (scope == null) {
-            log.trace("Scope is null.");
-            return claims;
-        }
-
-        final List<String> scopeClaims = scope.getClaims();
-        if (scopeClaims == null) {
-            log.trace("No claims set for scope: " + scope.getId());
-            return claims;
-        }
-
-        for (String claimDn : scopeClaims) {
-            GluuAttribute gluuAttribute = attributeService.getAttributeByDn(claimDn);
-
+        for (GluuAttribute gluuAttribute : attributes) {
             String claimName = gluuAttribute.getClaimName();
             String ldapName = gluuAttribute.getName();
             Object attribute = null;
 
-            if (StringUtils.isBlank(claimName)) {
-                log.error("Failed to get claim because claim name is not set for attribute, id: " + gluuAttribute.getDn());
-                continue;
-            }
-            if (StringUtils.isBlank(ldapName)) {
-                log.error("Failed to get claim because name is not set for attribute, id: " + gluuAttribute.getDn());
-                continue;
-            }
-
 
             if (ldapName.equals("uid")) {
                 attribute = user.getUserId();
@@ -12,13 +12,14 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
-import com.fasterxml.jackson.datatype.jsonorg.JsonOrgModule;
 import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
 import io.jans.as.common.service.common.ApplicationFactory;
 import io.jans.as.model.uma.persistence.UmaPermission;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.server.uma.service.UmaScopeService;
 import io.jans.orm.PersistenceEntryManager;
 import io.jans.orm.model.base.CustomAttribute;
+import io.jans.orm.search.filter.Filter;
 import io.jans.service.cdi.util.CdiUtil;
 import io.jans.util.ArrayHelper;
 import io.jans.util.Util;
@@ -40,6 +41,7 @@ import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
 
 /**
  * @author Yuriy Zabrovarnyy
@@ -91,13 +93,11 @@ public class ServerUtil {
     }
 
     public static String asPrettyJson(Object p_object) throws IOException {
-        final ObjectMapper mapper = ServerUtil.createJsonMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, false);
-        return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(p_object);
+        return JsonMappers.prettyWriter().writeValueAsString(p_object);
     }
 
     public static String asJson(Object p_object) throws IOException {
-        final ObjectMapper mapper = ServerUtil.createJsonMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, false);
-        return mapper.writeValueAsString(p_object);
+        return JsonMappers.writerFor(p_object).writeValueAsString(p_object);
     }
 
     public static CacheControl cacheControl(boolean p_noStore) {
@@ -140,10 +140,8 @@ public class ServerUtil {
     }
 
     public static String toPrettyJson(JSONObject jsonObject) throws JsonProcessingException {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.registerModule(new JsonOrgModule());
-		return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonObject);
-	}
+        return JsonMappers.jsonOrgPrettyWriter().writeValueAsString(jsonObject);
+    }
 
     public static PersistenceEntryManager getLdapManager() {
         return CdiUtil.bean(PersistenceEntryManager.class, ApplicationFactory.PERSISTENCE_ENTRY_MANAGER_NAME);
@@ -190,16 +188,69 @@ public class ServerUtil {
     }
 
     public static io.jans.as.model.uma.UmaPermission convert(UmaPermission permission, UmaScopeService umaScopeService) {
+        if (permission != null) {
+            return convert(permission, umaScopeService.getScopeIdsByDns(permission.getScopeDns()));
+        }
+        return null;
+    }
+
+    public static io.jans.as.model.uma.UmaPermission convert(UmaPermission permission, List<String> scopeIds) {
         if (permission != null) {
             final io.jans.as.model.uma.UmaPermission result = new io.jans.as.model.uma.UmaPermission();
             result.setResourceId(permission.getResourceId());
-            result.setScopes(umaScopeService.getScopeIdsByDns(permission.getScopeDns()));
+            result.setScopes(scopeIds);
             result.setExpiresAt(dateToSeconds(permission.getExpirationDate()));
             return result;
         }
         return null;
     }
 
+    /**
+     * Loads entries by dns with one search per parent dn (filter by RDN values) instead of one find per dn.
+     * Entries with dn which is not in simple "attr=value,parent" form are loaded one by one.
+     *
+     * @return dn -> entry (in order of given dns), map does not contain dns of entries which are not found
+     */
+    public static <T> Map<String, T> findEntriesByDns(PersistenceEntryManager entryManager, Class<T> entryClass, Collection<String> dns, Function<T, String> dnGetter) {
+        final Map<String, T> result = new LinkedHashMap<>();
+        if (dns == null || dns.isEmpty()) {
+            return result;
+        }
+
+        final Map<String, List<Filter>> filtersByParent = new HashMap<>();
+        final Set<String> searched = new HashSet<>();
+        for (String dn : new LinkedHashSet<>(dns)) {
+            final String rdn = StringUtils.substringBefore(dn, ",");
+            final String parent = StringUtils.substringAfter(dn, ",");
+            if (StringUtils.isNotBlank(parent) && rdn.indexOf('=') > 0 && !rdn.contains("\\")) {
+                filtersByParent.computeIfAbsent(parent, k -> new ArrayList<>())
+                        .add(Filter.createEqualityFilter(StringUtils.substringBefore(rdn, "="), StringUtils.substringAfter(rdn, "=")));
+                searched.add(dn);
+            }
+        }
+
+        final Map<String, T> found = new HashMap<>();
+        for (Map.Entry<String, List<Filter>> entry : filtersByParent.entrySet()) {
+            final List<Filter> filters = entry.getValue();
+            final Filter filter = filters.size() == 1 ? filters.get(0) : Filter.createORFilter(filters.toArray(new Filter[0]));
+            for (T object : entryManager.findEntries(entry.getKey(), entryClass, filter)) {
+                found.put(normalizeDn(dnGetter.apply(object)), object);
+            }
+        }
+
+        for (String dn : dns) {
+            final T object = searched.contains(dn) ? found.get(normalizeDn(dn)) : entryManager.find(entryClass, dn);
+            if (object != null) {
+                result.put(dn, object);
+            }
+        }
+        return result;
+    }
+
+    private static String normalizeDn(String dn) {
+        return dn != null ? dn.replace(", ", ",").toLowerCase() : null;
+    }
+
     public static String getFirstValue(Map<String, String[]> map, String key) {
         if (map.containsKey(key)) {
             String[] values = map.get(key);
@@ -15,6 +15,7 @@ import io.jans.as.model.fido.u2f.protocol.AuthenticateRequestMessage;
 import io.jans.as.model.fido.u2f.protocol.AuthenticateResponse;
 import io.jans.as.model.fido.u2f.protocol.AuthenticateStatus;
 import io.jans.as.model.util.Base64Util;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.server.exception.fido.u2f.DeviceCompromisedException;
 import io.jans.as.server.exception.fido.u2f.InvalidKeyHandleDeviceException;
 import io.jans.as.server.exception.fido.u2f.NoEligableDevicesException;
@@ -140,7 +141,7 @@ public class U2fAuthenticationWS {
 
             log.debug("Finishing authentication for username '{}' with response '{}'", userName, authenticateResponseString);
 
-            AuthenticateResponse authenticateResponse = ServerUtil.jsonMapperWithWrapRoot().readValue(authenticateResponseString, AuthenticateResponse.class);
+            AuthenticateResponse authenticateResponse = JsonMappers.readerFor(AuthenticateResponse.class).readValue(authenticateResponseString);
 
             String requestId = authenticateResponse.getRequestId();
             AuthenticateRequestMessageLdap authenticateRequestMessageLdap = u2fAuthenticationService.getAuthenticationRequestMessageByRequestId(requestId);
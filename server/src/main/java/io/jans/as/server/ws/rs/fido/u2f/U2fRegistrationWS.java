@@ -16,6 +16,7 @@ import io.jans.as.model.fido.u2f.exception.RegistrationNotAllowed;
 import io.jans.as.model.fido.u2f.protocol.RegisterRequestMessage;
 import io.jans.as.model.fido.u2f.protocol.RegisterResponse;
 import io.jans.as.model.fido.u2f.protocol.RegisterStatus;
+import io.jans.as.model.util.JsonMappers;
 import io.jans.as.server.model.common.SessionId;
 import io.jans.as.server.model.config.Constants;
 import io.jans.as.server.model.fido.u2f.DeviceRegistration;
@@ -164,7 +165,7 @@ public class U2fRegistrationWS {
 
             log.debug("Finishing registration for username '{}' with response '{}'", userName, registerResponseString);
 
-            RegisterResponse registerResponse = ServerUtil.jsonMapperWithWrapRoot().readValue(registerResponseString, RegisterResponse.class);
+            RegisterResponse registerResponse = JsonMappers.readerFor(RegisterResponse.class).readValue(registerResponseString);
 
             String requestId = registerResponse.getRequestId();
             RegisterRequestMessageLdap registerRequestMessageLdap = u2fRegistrationService.getRegisterRequestMessageByRequestId(requestId);
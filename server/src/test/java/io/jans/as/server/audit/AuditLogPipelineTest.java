@@ -0,0 +1,154 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.audit;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.jms.Connection;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Audit log batches and spool against embedded in-VM broker.
+ */
+public class AuditLogPipelineTest {
+
+    private static final String QUEUE = "oauth2.audit.logging.test";
+
+    private BrokerService broker;
+    private ActiveMQConnectionFactory connectionFactory;
+    private File spoolFile;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("audit");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.start();
+
+        connectionFactory = new ActiveMQConnectionFactory("vm://audit?create=false");
+        spoolFile = File.createTempFile("audit", ".spool");
+        Files.delete(spoolFile.toPath());
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+        broker.stop();
+        Files.deleteIfExists(spoolFile.toPath());
+    }
+
+    @Test
+    public void send_withBatch_shouldDeliverAllMessagesInOrder() throws Exception {
+        new AuditLogJmsSender(connectionFactory, QUEUE).send(Arrays.asList("{\"a\":1}", "{\"a\":2}", "{\"a\":3}"));
+
+        assertEquals(receiveAll(), Arrays.asList("{\"a\":1}", "{\"a\":2}", "{\"a\":3}"));
+    }
+
+    @Test
+    public void replay_withSpooledMessages_shouldDeliverInBatchesAndClearSpool() throws Exception {
+        final AuditLogSpool spool = new AuditLogSpool(spoolFile);
+        spool.append(Arrays.asList("{\"s\":1}", "{\"s\":2}"));
+        spool.append(Arrays.asList("{\"s\":3}"));
+        assertFalse(spool.isEmpty());
+
+        final List<Integer> batchSizes = new ArrayList<>();
+        final AuditLogJmsSender sender = new AuditLogJmsSender(connectionFactory, QUEUE);
+        final int sent = spool.replay(messages -> {
+            batchSizes.add(messages.size());
+            sender.send(messages);
+        }, 2);
+
+        assertEquals(sent, 3);
+        assertEquals(batchSizes, Arrays.asList(2, 1));
+        assertTrue(spool.isEmpty());
+        assertEquals(receiveAll(), Arrays.asList("{\"s\":1}", "{\"s\":2}", "{\"s\":3}"));
+    }
+
+    @Test
+    public void replay_whenBrokerFails_shouldKeepNotSentMessagesInSpool() throws Exception {
+        final AuditLogSpool spool = new AuditLogSpool(spoolFile);
+        spool.append(Arrays.asList("{\"f\":1}", "{\"f\":2}", "{\"f\":3}"));
+
+        final AuditLogJmsSender sender = new AuditLogJmsSender(connectionFactory, QUEUE);
+        final List<Integer> calls = new ArrayList<>();
+        try {
+            spool.replay(messages -> {
+                calls.add(messages.size());
+                if (calls.size() > 1) {
+                    throw new IllegalStateException("broker is not available");
+                }
+                sender.send(messages);
+            }, 1);
+            fail("Replay has to fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertFalse(spool.isEmpty());
+        spool.append(Arrays.asList("{\"f\":4}")); // appended while broker is down
+
+        assertEquals(spool.replay(sender, 10), 2);
+        assertEquals(spool.replay(sender, 10), 1);
+        assertTrue(spool.isEmpty());
+        assertEquals(receiveAll(), Arrays.asList("{\"f\":1}", "{\"f\":2}", "{\"f\":3}", "{\"f\":4}"));
+    }
+
+    @Test
+    public void migrateTo_withSpooledMessages_shouldMoveThemToNewSpool() throws Exception {
+        final File newSpoolFile = File.createTempFile("audit-new", ".spool");
+        Files.delete(newSpoolFile.toPath());
+        try {
+            final AuditLogSpool previous = new AuditLogSpool(spoolFile);
+            previous.append(Arrays.asList("{\"m\":1}", "{\"m\":2}", "{\"m\":3}"));
+
+            final AuditLogSpool current = new AuditLogSpool(newSpoolFile);
+            assertEquals(previous.migrateTo(current, 2), 3);
+            assertTrue(previous.isEmpty());
+            assertFalse(current.isEmpty());
+
+            assertEquals(current.replay(new AuditLogJmsSender(connectionFactory, QUEUE), 10), 3);
+            assertEquals(receiveAll(), Arrays.asList("{\"m\":1}", "{\"m\":2}", "{\"m\":3}"));
+        } finally {
+            Files.deleteIfExists(newSpoolFile.toPath());
+        }
+    }
+
+    private List<String> receiveAll() throws Exception {
+        final List<String> result = new ArrayList<>();
+        final Connection connection = connectionFactory.createConnection();
+        try {
+            connection.start();
+            final Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            final MessageConsumer consumer = session.createConsumer(session.createQueue(QUEUE));
+            TextMessage message;
+            while ((message = (TextMessage) consumer.receive(500)) != null) {
+                result.add(message.getText());
+            }
+            assertNull(consumer.receiveNoWait());
+        } finally {
+            connection.close();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import io.jans.as.model.common.ScopeType;
+import io.jans.as.persistence.model.Scope;
+import io.jans.as.server.model.token.ClaimPlan;
+import io.jans.model.GluuAttribute;
+import org.slf4j.LoggerFactory;
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Compares resolution of scopes and claim attributes needed to build id_token/userinfo: per token resolution
+ * (as it was done before) and cached {@link ClaimPlan}. Scope and attribute lookups are in-memory here, so real
+ * gain (with distributed cache or persistence lookups) is bigger. Run with -Dbenchmark (testng-benchmark.xml).
+ */
+public class ClaimPlanServiceBenchmark {
+
+    private static final int WARM_UP = 10000;
+    private static final int ITERATIONS = 200000;
+    private static final int SCOPES = 6;
+    private static final int CLAIMS_PER_SCOPE = 10;
+
+    private final Map<String, Scope> scopesById = new HashMap<>();
+    private final Map<String, GluuAttribute> attributesByDn = new HashMap<>();
+    private final Set<String> requestedScopes = new LinkedHashSet<>();
+    private final String[] clientClaims = new String[]{"inum=client_claim,ou=attributes,o=jans"};
+
+    private ClaimPlanService claimPlanService;
+    private GluuAttribute requestedClaim;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        for (int i = 0; i < SCOPES; i++) {
+            final List<String> claims = new ArrayList<>();
+            for (int j = 0; j < CLAIMS_PER_SCOPE; j++) {
+                final GluuAttribute attribute = new GluuAttribute();
+                attribute.setDn("inum=" + i + "_" + j + ",ou=attributes,o=jans");
+                attribute.setName("attr" + i + "_" + j);
+                attribute.setClaimName("claim" + i + "_" + j);
+                attribute.setDisplayName("Claim " + i + " " + j);
+                attributesByDn.put(attribute.getDn(), attribute);
+                claims.add(attribute.getDn());
+            }
+
+            final Scope scope = new Scope();
+            scope.setId("scope" + i);
+            scope.setDn("inum=" + i + ",ou=scopes,o=jans");
+            scope.setScopeType(ScopeType.OPENID);
+            scope.setClaims(claims);
+            scopesById.put(scope.getId(), scope);
+            requestedScopes.add(scope.getId());
+        }
+        requestedClaim = attributesByDn.get("inum=" + (SCOPES - 1) + "_" + (CLAIMS_PER_SCOPE - 1) + ",ou=attributes,o=jans");
+
+        claimPlanService = new ClaimPlanService();
+        set(claimPlanService, "log", LoggerFactory.getLogger(ClaimPlanService.class));
+        set(claimPlanService, "scopeService", new ScopeService() {
+            @Override
+            public Scope getScopeById(String id) {
+                return scopesById.get(id);
+            }
+        });
+        set(claimPlanService, "attributeService", new AttributeService() {
+            @Override
+            public GluuAttribute getAttributeByDn(String dn) {
+                return attributesByDn.get(dn);
+            }
+
+            @Override
+            public long getAttributesVersion() {
+                return 1;
+            }
+        });
+    }
+
+    @Test
+    public void perTokenResolution() {
+        run("perTokenResolution", false);
+    }
+
+    @Test
+    public void claimPlan() {
+        run("claimPlan", true);
+    }
+
+    private void run(String name, boolean usePlan) {
+        for (int i = 0; i < WARM_UP; i++) {
+            resolve(usePlan);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(resolve(usePlan), SCOPES * CLAIMS_PER_SCOPE + 1);
+        }
+        final long takes = System.nanoTime() - start;
+
+        Reporter.log("BENCHMARK REPORT | Method: '" + name + "' | Invoked: " + ITERATIONS + " | Takes: " + takes / 1000000 + "ms"
+                + " | Throughput: " + (ITERATIONS * 1000000000L / takes) + " ops/s", true);
+    }
+
+    // returns number of resolved claims + 1 if requested claim is allowed
+    private int resolve(boolean usePlan) {
+        int count = 0;
+        if (usePlan) {
+            final ClaimPlan plan = claimPlanService.getPlan(clientClaims, requestedScopes);
+            for (ClaimPlan.ScopeClaims scopeClaims : plan.getScopes()) {
+                count += scopeClaims.getAttributes().size();
+            }
+            return plan.isClaimAllowed(requestedClaim) ? count + 1 : count;
+        }
+
+        for (String scopeName : requestedScopes) {
+            final Scope scope = scopesById.get(scopeName);
+            for (String claimDn : scope.getClaims()) {
+                if (attributesByDn.get(claimDn) != null) {
+                    count++;
+                }
+            }
+        }
+        return isAllowedLegacy(requestedClaim) ? count + 1 : count;
+    }
+
+    private boolean isAllowedLegacy(GluuAttribute gluuAttribute) {
+        for (String clientAllowedClaim : clientClaims) {
+            if (gluuAttribute.getDn().equals(clientAllowedClaim)) {
+                return true;
+            }
+        }
+        for (String scopeName : requestedScopes) {
+            final Scope scope = scopesById.get(scopeName);
+            for (String claimDn : scope.getClaims()) {
+                if (gluuAttribute.getDisplayName().equals(attributesByDn.get(claimDn).getDisplayName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void planIsCached() {
+        final ClaimPlan plan = claimPlanService.getPlan(clientClaims, requestedScopes);
+        assertTrue(plan.isComplete());
+        assertTrue(plan == claimPlanService.getPlan(clientClaims, requestedScopes));
+    }
+
+    private static void set(Object target, String fieldName, Object value) throws Exception {
+        final Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
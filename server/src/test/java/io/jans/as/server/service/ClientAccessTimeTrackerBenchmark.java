@@ -0,0 +1,193 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import io.jans.as.common.model.registration.Client;
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.orm.PersistenceEntryManager;
+import io.jans.orm.model.base.CustomEntry;
+import io.jans.service.CacheService;
+import io.jans.service.LocalCacheService;
+import org.slf4j.Logger;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Throughput of client lookup and access time update steps of authorization request
+ * ({@link ClientService#getClientByDn(String)} and {@link ClientService#updateAccessTime(Client, boolean)}) with access
+ * time merged (and client evicted from cache) on each request (clientAccessTimeFlushIntervalInSeconds=0) and with
+ * {@link ClientAccessTimeTracker}. Real ClientService, ClientRegistryCache, tracker and flush are used, only persistence
+ * and local cache are replaced by mocks. Persistence takes LATENCY_IN_MILLIS per find/merge (round trip to LDAP/RDBMS).
+ * <p>
+ * End-to-end authorize throughput can be compared with client BenchmarkRequestAuthorization against server with
+ * both settings. Run with -Dbenchmark (testng-benchmark.xml).
+ */
+public class ClientAccessTimeTrackerBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int CLIENTS = 10; // few hot clients
+    private static final long DURATION_IN_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long LATENCY_IN_MILLIS = 2;
+    private static final int FLUSH_INTERVAL_IN_SECONDS = 30;
+
+    @Test
+    public void mergeOnEachRequest() throws Exception {
+        run("mergeOnEachRequest", 0);
+    }
+
+    @Test
+    public void clientAccessTimeTracker() throws Exception {
+        run("clientAccessTimeTracker", FLUSH_INTERVAL_IN_SECONDS);
+    }
+
+    private void run(String method, int flushIntervalInSeconds) throws Exception {
+        final AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setUpdateClientAccessTime(true);
+        appConfiguration.setUseLocalCache(true);
+        appConfiguration.setClientAccessTimeFlushIntervalInSeconds(flushIntervalInSeconds);
+
+        final AtomicLong finds = new AtomicLong();
+        final AtomicLong merges = new AtomicLong();
+        final PersistenceEntryManager persistenceEntryManager = persistenceEntryManager(finds, merges);
+        final MetricService metricService = mock(MetricService.class);
+
+        final ClientAccessTimeTracker tracker = new ClientAccessTimeTracker();
+        setField(tracker, "log", mock(Logger.class));
+        setField(tracker, "persistenceEntryManager", persistenceEntryManager);
+        setField(tracker, "appConfiguration", appConfiguration);
+        setField(tracker, "metricService", metricService);
+
+        final ClientRegistryCache clientRegistryCache = new ClientRegistryCache();
+        setField(clientRegistryCache, "log", mock(Logger.class));
+        setField(clientRegistryCache, "ldapEntryManager", persistenceEntryManager);
+        setField(clientRegistryCache, "cacheService", mock(CacheService.class));
+        setField(clientRegistryCache, "localCacheService", localCacheService());
+        setField(clientRegistryCache, "appConfiguration", appConfiguration);
+        setField(clientRegistryCache, "metricService", metricService);
+
+        final ClientService clientService = new ClientService();
+        setField(clientService, "log", mock(Logger.class));
+        setField(clientService, "ldapEntryManager", persistenceEntryManager);
+        setField(clientService, "clientRegistryCache", clientRegistryCache);
+        setField(clientService, "clientSecretCache", new ClientSecretCache());
+        setField(clientService, "appConfiguration", appConfiguration);
+        setField(clientService, "clientAccessTimeTracker", tracker);
+
+        clientRegistryCache.init();
+        tracker.init();
+        final long requests;
+        try {
+            requests = runConcurrently(() -> {
+                final Client client = clientService.getClientByDn(clientDn(ThreadLocalRandom.current().nextInt(CLIENTS)));
+                assertNotNull(client);
+                clientService.updateAccessTime(client, false);
+            });
+        } finally {
+            tracker.destroy(); // flushes pending values
+            clientRegistryCache.destroy();
+        }
+
+        Reporter.log("BENCHMARK REPORT | Method: '" + method + "' | Threads: " + THREADS + " | Clients: " + CLIENTS
+                + " | Requests: " + requests + " | Throughput: " + requests * 1000 / DURATION_IN_MILLIS
+                + " ops/s | Finds: " + finds.get() + " | Merges: " + merges.get(), true);
+    }
+
+    private static PersistenceEntryManager persistenceEntryManager(AtomicLong finds, AtomicLong merges) {
+        final PersistenceEntryManager persistenceEntryManager = mock(PersistenceEntryManager.class);
+        when(persistenceEntryManager.encodeTime(anyString(), any(Date.class)))
+                .thenAnswer(invocation -> String.valueOf(invocation.<Date>getArgument(1).getTime()));
+        when(persistenceEntryManager.find(eq(Client.class), anyString())).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(LATENCY_IN_MILLIS);
+            finds.incrementAndGet();
+            final Client client = new Client();
+            client.setDn(invocation.getArgument(1));
+            return client;
+        });
+        doAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(LATENCY_IN_MILLIS);
+            merges.incrementAndGet();
+            return invocation.<CustomEntry>getArgument(0);
+        }).when(persistenceEntryManager).merge(any());
+        return persistenceEntryManager;
+    }
+
+    private static LocalCacheService localCacheService() {
+        final Map<String, Object> entries = new ConcurrentHashMap<>();
+        final LocalCacheService localCacheService = mock(LocalCacheService.class);
+        when(localCacheService.get(anyString())).thenAnswer(invocation -> entries.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> entries.put(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(localCacheService).put(anyInt(), anyString(), any());
+        doAnswer(invocation -> entries.remove(invocation.<String>getArgument(0)))
+                .when(localCacheService).remove(anyString());
+        return localCacheService;
+    }
+
+    private static String clientDn(int index) {
+        return "inum=" + index + ",ou=clients,o=jans";
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        final Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /**
+     * Runs task in loop on THREADS threads for DURATION_IN_MILLIS.
+     *
+     * @return number of task runs
+     */
+    private static long runConcurrently(Runnable task) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong runs = new AtomicLong();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                executor.execute(() -> {
+                    try {
+                        while (running.get()) {
+                            task.run();
+                            runs.incrementAndGet();
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            TimeUnit.MILLISECONDS.sleep(DURATION_IN_MILLIS);
+            running.set(false);
+            assertTrue(done.await(1, TimeUnit.MINUTES));
+            return runs.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
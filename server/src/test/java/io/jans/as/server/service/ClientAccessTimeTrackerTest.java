@@ -0,0 +1,105 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import io.jans.as.common.model.registration.Client;
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.orm.PersistenceEntryManager;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Checks that not flushed access time is visible by {@link ClientService} without modification of client.
+ */
+public class ClientAccessTimeTrackerTest {
+
+    private static final String CLIENT_DN = "inum=1,ou=clients,o=jans";
+
+    @Mock
+    private Logger log;
+
+    @Mock
+    private PersistenceEntryManager persistenceEntryManager;
+
+    @Mock
+    private AppConfiguration appConfiguration;
+
+    @Mock
+    private MetricService metricService;
+
+    @InjectMocks
+    private ClientAccessTimeTracker tracker;
+
+    private AutoCloseable mocks;
+
+    @BeforeMethod
+    public void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        when(appConfiguration.getClientAccessTimeFlushIntervalInSeconds()).thenReturn(30);
+        when(persistenceEntryManager.encodeTime(anyString(), any(Date.class))).thenReturn("20200101000000.000Z");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    public void getLastAccessTime_whenNotFlushed_shouldReturnPendingValue() {
+        final Date accessTime = new Date(2000);
+        tracker.touch(CLIENT_DN, accessTime, false);
+        tracker.touch(CLIENT_DN, new Date(1000), true);
+
+        assertEquals(tracker.getLastAccessTime(CLIENT_DN), accessTime);
+        assertEquals(tracker.getLastLogonTime(CLIENT_DN), new Date(1000));
+
+        tracker.flush();
+        assertNull(tracker.getLastAccessTime(CLIENT_DN));
+        assertNull(tracker.getLastLogonTime(CLIENT_DN));
+    }
+
+    @Test
+    public void clientServiceGetLastAccessTime_shouldReturnLatestWithoutModifyingClient() {
+        final ClientService clientService = new ClientService();
+        setTracker(clientService);
+
+        final Client client = new Client();
+        client.setDn(CLIENT_DN);
+        client.setLastAccessTime(new Date(1000));
+        client.setLastLogonTime(new Date(1000));
+
+        tracker.touch(CLIENT_DN, new Date(2000), false);
+
+        assertEquals(clientService.getLastAccessTime(client), new Date(2000));
+        assertEquals(clientService.getLastLogonTime(client), new Date(1000));
+        assertEquals(client.getLastAccessTime(), new Date(1000));
+    }
+
+    private void setTracker(ClientService clientService) {
+        try {
+            final Field field = ClientService.class.getDeclaredField("clientAccessTimeTracker");
+            field.setAccessible(true);
+            field.set(clientService, tracker);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
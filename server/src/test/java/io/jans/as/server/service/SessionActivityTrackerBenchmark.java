@@ -0,0 +1,186 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.as.server.model.common.SessionId;
+import io.jans.as.server.model.common.SessionIdState;
+import io.jans.as.server.service.external.ExternalApplicationSessionService;
+import io.jans.orm.PersistenceEntryManager;
+import io.jans.orm.model.base.CustomEntry;
+import io.jans.service.CacheService;
+import io.jans.service.LocalCacheService;
+import org.slf4j.Logger;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Throughput of session update step of authorization request ({@link SessionIdService#updateSessionId(SessionId)})
+ * with lastUsedAt merged on each update (sessionIdLastUsedAtFlushIntervalInSeconds=0) and with
+ * {@link SessionActivityTracker}. Real SessionIdService, tracker and flush are used, only persistence is replaced by
+ * mock which holds merged lastUsedAt and takes MERGE_LATENCY_IN_MILLIS per merge (round trip to LDAP/RDBMS).
+ * <p>
+ * End-to-end authorize throughput can be compared with client BenchmarkRequestAuthorization against server with
+ * both settings. Run with -Dbenchmark (testng-benchmark.xml).
+ */
+public class SessionActivityTrackerBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int SESSIONS = 200;
+    private static final long DURATION_IN_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long MERGE_LATENCY_IN_MILLIS = 2;
+    private static final int FLUSH_INTERVAL_IN_SECONDS = 30;
+
+    @Test
+    public void mergeOnEachUpdate() throws Exception {
+        run("mergeOnEachUpdate", 0);
+    }
+
+    @Test
+    public void sessionActivityTracker() throws Exception {
+        run("sessionActivityTracker", FLUSH_INTERVAL_IN_SECONDS);
+    }
+
+    private void run(String method, int flushIntervalInSeconds) throws Exception {
+        final AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setSessionIdUnusedLifetime(86400);
+        appConfiguration.setSessionIdLifetime(86400);
+        appConfiguration.setServerSessionIdLifetime(86400);
+        appConfiguration.setSessionIdPersistInCache(false);
+        appConfiguration.setSessionIdLastUsedAtFlushIntervalInSeconds(flushIntervalInSeconds);
+
+        final Map<String, Date> persisted = new ConcurrentHashMap<>();
+        final AtomicLong merges = new AtomicLong();
+        final PersistenceEntryManager persistenceEntryManager = persistenceEntryManager(persisted, merges);
+        final MetricService metricService = mock(MetricService.class);
+
+        final SessionActivityTracker tracker = new SessionActivityTracker();
+        setField(tracker, "log", mock(Logger.class));
+        setField(tracker, "persistenceEntryManager", persistenceEntryManager);
+        setField(tracker, "appConfiguration", appConfiguration);
+        setField(tracker, "metricService", metricService);
+
+        final SessionIdService sessionIdService = new SessionIdService();
+        setField(sessionIdService, "log", mock(Logger.class));
+        setField(sessionIdService, "appConfiguration", appConfiguration);
+        setField(sessionIdService, "persistenceEntryManager", persistenceEntryManager);
+        setField(sessionIdService, "cacheService", mock(CacheService.class));
+        setField(sessionIdService, "localCacheService", mock(LocalCacheService.class));
+        setField(sessionIdService, "sessionIndexService", mock(SessionIndexService.class));
+        setField(sessionIdService, "externalApplicationSessionService", mock(ExternalApplicationSessionService.class));
+        setField(sessionIdService, "sessionActivityTracker", tracker);
+
+        final Date started = new Date();
+        for (int i = 0; i < SESSIONS; i++) {
+            persisted.put(sessionDn(i), started);
+        }
+
+        tracker.init();
+        final long updates;
+        try {
+            updates = runConcurrently(() -> {
+                final int index = ThreadLocalRandom.current().nextInt(SESSIONS);
+                // as if session was loaded by request
+                final SessionId sessionId = new SessionId();
+                sessionId.setId(String.valueOf(index));
+                sessionId.setDn(sessionDn(index));
+                sessionId.setState(SessionIdState.AUTHENTICATED);
+                sessionId.setCreationDate(started);
+                sessionId.setLastUsedAt(persisted.get(sessionId.getDn()));
+                sessionId.setPersisted(true);
+                assertTrue(sessionIdService.updateSessionId(sessionId));
+            });
+        } finally {
+            tracker.destroy(); // flushes pending values
+        }
+
+        Reporter.log("BENCHMARK REPORT | Method: '" + method + "' | Threads: " + THREADS + " | Sessions: " + SESSIONS
+                + " | Updates: " + updates + " | Throughput: " + updates * 1000 / DURATION_IN_MILLIS
+                + " ops/s | Merges: " + merges.get(), true);
+    }
+
+    private static PersistenceEntryManager persistenceEntryManager(Map<String, Date> persisted, AtomicLong merges) {
+        final PersistenceEntryManager persistenceEntryManager = mock(PersistenceEntryManager.class);
+        when(persistenceEntryManager.encodeTime(anyString(), any(Date.class)))
+                .thenAnswer(invocation -> String.valueOf(invocation.<Date>getArgument(1).getTime()));
+        doAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(MERGE_LATENCY_IN_MILLIS);
+            final Object entry = invocation.getArgument(0);
+            if (entry instanceof SessionId) {
+                persisted.put(((SessionId) entry).getDn(), ((SessionId) entry).getLastUsedAt());
+            } else if (entry instanceof CustomEntry) {
+                final CustomEntry customEntry = (CustomEntry) entry;
+                persisted.put(customEntry.getDn(), new Date(Long.parseLong(customEntry.getCustomAttributes().get(0).getValue())));
+            }
+            merges.incrementAndGet();
+            return entry;
+        }).when(persistenceEntryManager).merge(any());
+        return persistenceEntryManager;
+    }
+
+    private static String sessionDn(int index) {
+        return "jansId=" + index + ",ou=sessions,o=jans";
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        final Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /**
+     * Runs task in loop on THREADS threads for DURATION_IN_MILLIS.
+     *
+     * @return number of task runs
+     */
+    private static long runConcurrently(Runnable task) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong runs = new AtomicLong();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                executor.execute(() -> {
+                    try {
+                        while (running.get()) {
+                            task.run();
+                            runs.incrementAndGet();
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            TimeUnit.MILLISECONDS.sleep(DURATION_IN_MILLIS);
+            running.set(false);
+            assertTrue(done.await(1, TimeUnit.MINUTES));
+            return runs.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service;
+
+import io.jans.as.model.configuration.AppConfiguration;
+import io.jans.orm.PersistenceEntryManager;
+import io.jans.orm.model.base.CustomEntry;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that lastUsedAt updates are coalesced into one merge per session per flush.
+ */
+public class SessionActivityTrackerTest {
+
+    private static final int THREADS = 8;
+    private static final int TOUCHES_PER_THREAD = 1000;
+    private static final int SESSIONS = 10;
+
+    @Mock
+    private Logger log;
+
+    @Mock
+    private PersistenceEntryManager persistenceEntryManager;
+
+    @Mock
+    private AppConfiguration appConfiguration;
+
+    @Mock
+    private MetricService metricService;
+
+    @InjectMocks
+    private SessionActivityTracker tracker;
+
+    private AutoCloseable mocks;
+
+    @BeforeMethod
+    public void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        when(appConfiguration.getSessionIdPersistInCache()).thenReturn(false);
+        when(appConfiguration.getSessionIdLastUsedAtFlushIntervalInSeconds()).thenReturn(30);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    public void flush_withConcurrentTouches_shouldMergeOncePerSession() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < TOUCHES_PER_THREAD; i++) {
+                        tracker.touch(sessionDn(i % SESSIONS), new Date(System.currentTimeMillis() + i));
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        tracker.flush();
+
+        final ArgumentCaptor<CustomEntry> merged = ArgumentCaptor.forClass(CustomEntry.class);
+        verify(persistenceEntryManager, times(SESSIONS)).merge(merged.capture());
+        final Set<String> dns = new HashSet<>();
+        for (CustomEntry entry : merged.getAllValues()) {
+            dns.add(entry.getDn());
+        }
+        assertEquals(dns.size(), SESSIONS);
+        verify(metricService).incCounter(SessionActivityTracker.FLUSH_COUNTER, SESSIONS);
+    }
+
+    @Test
+    public void flush_withoutNewTouches_shouldNotMergeAgain() {
+        tracker.touch(sessionDn(1), new Date());
+        tracker.flush();
+        tracker.flush();
+
+        verify(persistenceEntryManager, times(1)).merge(any(CustomEntry.class));
+    }
+
+    @Test
+    public void flush_withTouchAfterFlush_shouldMergeNewValue() {
+        final Date first = new Date();
+        tracker.touch(sessionDn(1), first);
+        tracker.flush();
+        tracker.touch(sessionDn(1), new Date(first.getTime() + 1000));
+        tracker.flush();
+
+        verify(persistenceEntryManager, times(2)).merge(any(CustomEntry.class));
+    }
+
+    @Test
+    public void flush_withWrittenSession_shouldNotMerge() {
+        final Date lastUsedAt = new Date();
+        tracker.touch(sessionDn(1), lastUsedAt);
+        tracker.written(sessionDn(1), lastUsedAt);
+
+        assertNull(tracker.getLastUsedAt(sessionDn(1)));
+        tracker.flush();
+
+        verify(persistenceEntryManager, never()).merge(any(CustomEntry.class));
+    }
+
+    @Test
+    public void flush_whenMetricsFail_shouldWriteAndKeepFlushing() {
+        doThrow(new IllegalStateException("metrics are not available")).when(metricService).incCounter(anyString(), anyLong());
+
+        tracker.touch(sessionDn(1), new Date());
+        tracker.flush();
+        tracker.touch(sessionDn(2), new Date());
+        tracker.flush();
+
+        verify(persistenceEntryManager, times(2)).merge(any(CustomEntry.class));
+    }
+
+    @Test
+    public void isEnabled_withSessionsInCache_shouldBeDisabled() {
+        when(appConfiguration.getSessionIdPersistInCache()).thenReturn(true);
+
+        assertFalse(tracker.isEnabled());
+    }
+
+    private static String sessionDn(int index) {
+        return "jansId=" + index + ",ou=sessions,o=jans";
+    }
+}
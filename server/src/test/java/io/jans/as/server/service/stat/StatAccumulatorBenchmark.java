@@ -0,0 +1,118 @@
+/*
+ * Janssen Project software is available under the Apache License (2004). See http://www.apache.org/licenses/ for full text.
+ *
+ * Copyright (c) 2020, Janssen Project
+ */
+
+package io.jans.as.server.service.stat;
+
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Reports tokens and active users from 64 threads and checks that no update is lost.
+ * Run with -Dbenchmark (testng-benchmark.xml).
+ */
+public class StatAccumulatorBenchmark {
+
+    private static final int THREADS = 64;
+    private static final int REPORTS_PER_THREAD = 100000;
+    private static final int USERS_PER_THREAD = 1000;
+
+    @Test
+    public void concurrentReports() throws Exception {
+        final StatAccumulator accumulator = new StatAccumulator("202001");
+
+        final long takes = runConcurrently(threadIndex -> {
+            for (int i = 0; i < REPORTS_PER_THREAD; i++) {
+                accumulator.reportToken("authorization_code", "access_token");
+                if (i < USERS_PER_THREAD) {
+                    accumulator.reportActiveUser("user_" + threadIndex + "_" + i);
+                }
+            }
+        });
+
+        final long expectedTokens = (long) THREADS * REPORTS_PER_THREAD;
+        final long expectedUsers = (long) THREADS * USERS_PER_THREAD;
+        final long tokens = accumulator.getTokenCounts().get("authorization_code").get("access_token");
+        final long users = accumulator.getUserHll().cardinality();
+
+        Reporter.log("BENCHMARK REPORT | Method: 'concurrentReports' | Threads: " + THREADS + " | Invoked: " + expectedTokens
+                + " | Takes: " + takes / 1000000 + "ms | Tokens: " + tokens + " | Users: " + users + " (expected " + expectedUsers + ")", true);
+
+        assertEquals(tokens, expectedTokens);
+        assertTrue(Math.abs(users - expectedUsers) < expectedUsers * 0.03, "Unexpected cardinality: " + users);
+    }
+
+    @Test
+    public void countsSurviveReload() {
+        final StatAccumulator accumulator = new StatAccumulator("202001");
+        accumulator.reportToken("refresh_token", "id_token");
+        accumulator.reportActiveUser("user");
+
+        final StatAccumulator reloaded = new StatAccumulator("202001", accumulator.getTokenCounts(), accumulator.getUserHll());
+        reloaded.reportToken("refresh_token", "id_token");
+        reloaded.reportActiveUser("user");
+
+        assertEquals(reloaded.getTokenCounts().get("refresh_token").get("id_token").longValue(), 2L);
+        assertEquals(reloaded.getUserHll().cardinality(), 1L);
+    }
+
+    @Test
+    public void legacyReadModifyWriteCounter() throws Exception {
+        final Map<String, Long> tokenMap = new ConcurrentHashMap<>();
+
+        final long takes = runConcurrently(threadIndex -> {
+            for (int i = 0; i < REPORTS_PER_THREAD; i++) {
+                Long counter = tokenMap.get("access_token");
+                tokenMap.put("access_token", counter == null ? 1L : counter + 1);
+            }
+        });
+
+        final long expected = (long) THREADS * REPORTS_PER_THREAD;
+        Reporter.log("BENCHMARK REPORT | Method: 'legacyReadModifyWriteCounter' | Threads: " + THREADS + " | Invoked: " + expected
+                + " | Takes: " + takes / 1000000 + "ms | Lost updates: " + (expected - tokenMap.get("access_token")), true);
+    }
+
+    private static long runConcurrently(ThreadTask task) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                final int threadIndex = t;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        task.run(threadIndex);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            final long startTime = System.nanoTime();
+            start.countDown();
+            assertTrue(done.await(5, TimeUnit.MINUTES));
+            return System.nanoTime() - startTime;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int threadIndex);
+    }
+}
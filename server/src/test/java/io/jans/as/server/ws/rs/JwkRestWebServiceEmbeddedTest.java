@@ -19,6 +19,7 @@ import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
 
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.net.URI;
@@ -64,6 +65,26 @@ public class JwkRestWebServiceEmbeddedTest extends BaseTest {
         }
     }
 
+    @Parameters({"jwksPath"})
+    @Test
+    public void requestJwksWithIfNoneMatch_shouldReturnNotModified(final String jwksPath) throws Exception {
+        Response response = ResteasyClientBuilder.newClient().target(url.toString() + jwksPath).request().get();
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        response.close();
+
+        assertEquals(response.getStatus(), 200, "Unexpected response code.");
+        assertNotNull(etag, "ETag is not set");
+
+        Builder request = ResteasyClientBuilder.newClient().target(url.toString() + jwksPath).request();
+        request.header(HttpHeaders.IF_NONE_MATCH, etag);
+
+        response = request.get();
+        showResponse("requestJwksWithIfNoneMatch", response);
+
+        assertEquals(response.getStatus(), 304, "Unexpected response code.");
+        assertEquals(response.getHeaderString(HttpHeaders.ETAG), etag);
+    }
+
     @Test
     public void setClaimTestJsonObj() {
         try {